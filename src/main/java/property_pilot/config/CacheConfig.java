@@ -0,0 +1,19 @@
+package property_pilot.config;
+
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Turns on Spring's cache abstraction. Cache names and the Caffeine eviction
+ * spec are set in application.properties.
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    // Cache of Property entities by id
+    public static final String PROPERTIES = "properties";
+
+    // Cache of the full property list
+    public static final String PROPERTY_LIST = "propertyList";
+}
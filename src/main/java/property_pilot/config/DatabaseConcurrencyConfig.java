@@ -0,0 +1,56 @@
+package property_pilot.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Bounds database concurrency to the connection pool size. Meant for virtual-thread mode
+ * (spring.threads.virtual.enabled, Java 21+), where request concurrency is no longer capped by
+ * Tomcat's thread pool; it follows that setting unless property_pilot.db.limit-concurrency says otherwise.
+ */
+@Configuration
+@ConditionalOnProperty(name = "property_pilot.db.limit-concurrency", havingValue = "true")
+public class DatabaseConcurrencyConfig {
+
+    @Bean
+    public static BeanPostProcessor concurrencyLimitingDataSourcePostProcessor(Environment environment) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof DataSource dataSource) || bean instanceof ConcurrencyLimitingDataSource) {
+                    return bean;
+                }
+                // Defaults to the Hikari pool size, so nobody waits inside the pool itself
+                int limit = environment.getProperty("property_pilot.db.max-concurrency", Integer.class,
+                        bean instanceof HikariDataSource hikari ? hikari.getMaximumPoolSize() : 10);
+                Duration timeout = environment.getProperty("property_pilot.db.acquire-timeout", Duration.class,
+                        Duration.ofSeconds(30));
+                return new ConcurrencyLimitingDataSource(dataSource, limit, timeout);
+            }
+        };
+    }
+
+    // db.concurrency.active / db.concurrency.waiting under /actuator/metrics
+    @Bean
+    public MeterBinder databaseConcurrencyMetrics(DataSource dataSource) {
+        return registry -> {
+            if (dataSource instanceof ConcurrencyLimitingDataSource limited) {
+                Gauge.builder("db.concurrency.active", limited, ConcurrencyLimitingDataSource::getActive)
+                        .description("Connections checked out under the concurrency limit")
+                        .register(registry);
+                Gauge.builder("db.concurrency.waiting", limited, ConcurrencyLimitingDataSource::getWaiting)
+                        .description("Callers waiting for a database permit")
+                        .register(registry);
+            }
+        };
+    }
+}
@@ -0,0 +1,43 @@
+package property_pilot.config;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.boot.autoconfigure.web.servlet.MultipartProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.server.PathContainer;
+import org.springframework.web.multipart.MultipartResolver;
+import org.springframework.web.multipart.support.StandardServletMultipartResolver;
+import org.springframework.web.servlet.DispatcherServlet;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+/**
+ * Multipart resolution for the dispatcher servlet. Receipt uploads are left unresolved, so the
+ * container never buffers them to its temp directory and the controller streams the file part
+ * straight into the receipt store; they are capped by property_pilot.receipts.max-upload-size
+ * alone. Other multipart requests get Spring Boot's standard resolver and spring.servlet.multipart.* limits.
+ */
+@Configuration
+public class MultipartConfig {
+
+    // POST /api/expenses/{id}/upload, read by ExpenseController.uploadReceipt
+    private static final PathPattern STREAMED_UPLOADS =
+            PathPatternParser.defaultInstance.parse("/api/expenses/{id}/upload");
+
+    @Bean(name = DispatcherServlet.MULTIPART_RESOLVER_BEAN_NAME)
+    public MultipartResolver multipartResolver(MultipartProperties properties) {
+        StandardServletMultipartResolver resolver = new StandardServletMultipartResolver() {
+            @Override
+            public boolean isMultipart(HttpServletRequest request) {
+                return super.isMultipart(request) && !isStreamedUpload(request);
+            }
+        };
+        resolver.setResolveLazily(properties.isResolveLazily());
+        return resolver;
+    }
+
+    private static boolean isStreamedUpload(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return "POST".equals(request.getMethod()) && STREAMED_UPLOADS.matches(PathContainer.parsePath(path));
+    }
+}
@@ -0,0 +1,12 @@
+package property_pilot.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Turns on @Scheduled jobs. Each job's schedule is a property and is off unless set.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -0,0 +1,109 @@
+package property_pilot.controller;
+
+import property_pilot.model.LedgerTotal;
+import property_pilot.model.YearOverYear;
+import property_pilot.service.LedgerSnapshot;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * REST endpoints for ledger analytics, answered from the in-memory columnar snapshot.
+ * Dates are ISO dates and inclusive; property and category filters are optional everywhere.
+ */
+@RestController
+@RequestMapping("/api/analytics")
+public class AnalyticsController {
+
+    @Autowired
+    private LedgerSnapshot ledgerSnapshot;
+
+    // Monthly burn: total spent per month
+    @GetMapping("/monthly")
+    public ResponseEntity<List<LedgerTotal>> getMonthlyBurn(
+            @RequestParam(required = false) Long propertyId,
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) String start,
+            @RequestParam(required = false) String end) {
+        return totals(propertyId, category, start, end, false, false, LedgerSnapshot.Period.MONTH);
+    }
+
+    // Category trends: total per category per month, or per year with period=year
+    @GetMapping("/categories")
+    public ResponseEntity<List<LedgerTotal>> getCategoryTrends(
+            @RequestParam(required = false) Long propertyId,
+            @RequestParam(required = false) String start,
+            @RequestParam(required = false) String end,
+            @RequestParam(defaultValue = "month") String period) {
+        LedgerSnapshot.Period grouping = period(period);
+        if (grouping == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        return totals(propertyId, null, start, end, false, true, grouping);
+    }
+
+    // Yearly total per property against the year before
+    @GetMapping("/year-over-year")
+    public List<YearOverYear> getYearOverYear(
+            @RequestParam(required = false) Long propertyId,
+            @RequestParam(required = false) String category) {
+        return ledgerSnapshot.yearOverYear(propertyId, category);
+    }
+
+    // Totals grouped by any of property and category (groupBy=property,category) and by month, year or neither
+    @GetMapping("/totals")
+    public ResponseEntity<List<LedgerTotal>> getTotals(
+            @RequestParam(required = false) Long propertyId,
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) String start,
+            @RequestParam(required = false) String end,
+            @RequestParam(required = false) Set<String> groupBy,
+            @RequestParam(defaultValue = "none") String period) {
+        LedgerSnapshot.Period grouping = period(period);
+        Set<String> dimensions = groupBy == null ? Set.of() : groupBy;
+        if (grouping == null || !Set.of("property", "category").containsAll(dimensions)) {
+            return ResponseEntity.badRequest().build();
+        }
+        return totals(propertyId, category, start, end,
+                dimensions.contains("property"), dimensions.contains("category"), grouping);
+    }
+
+    // Size, memory and load time of the snapshot
+    @GetMapping("/snapshot")
+    public LedgerSnapshot.Stats getSnapshotStats() {
+        return ledgerSnapshot.stats();
+    }
+
+    // Reload the snapshot from the database, reclaiming deleted rows
+    @PostMapping("/snapshot/rebuild")
+    public LedgerSnapshot.Stats rebuildSnapshot() {
+        return ledgerSnapshot.rebuild();
+    }
+
+    private ResponseEntity<List<LedgerTotal>> totals(Long propertyId, String category, String start, String end,
+                                                     boolean byProperty, boolean byCategory,
+                                                     LedgerSnapshot.Period period) {
+        try {
+            return ResponseEntity.ok(ledgerSnapshot.totals(propertyId, category,
+                    start == null ? null : LocalDate.parse(start),
+                    end == null ? null : LocalDate.parse(end),
+                    byProperty, byCategory, period));
+        } catch (IllegalArgumentException e) {
+            // Too many groups for the range
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    private static LedgerSnapshot.Period period(String period) {
+        try {
+            return LedgerSnapshot.Period.valueOf(period.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package property_pilot.controller;
+
+import property_pilot.service.BackupService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * REST endpoints to take, check and restore incremental backups.
+ */
+@RestController
+@RequestMapping("/api/backups")
+public class BackupController {
+
+    @Autowired
+    private BackupService backupService;
+
+    // Take a snapshot of the database and the receipts tree
+    @PostMapping
+    public BackupService.BackupResult createBackup() throws IOException {
+        return backupService.backup();
+    }
+
+    // List snapshot ids, oldest first
+    @GetMapping
+    public List<String> listBackups() throws IOException {
+        return backupService.listSnapshots();
+    }
+
+    // Check a snapshot's stored receipts against their hashes
+    @PostMapping("/{snapshot}/verify")
+    public ResponseEntity<BackupService.RestoreResult> verifyBackup(@PathVariable String snapshot) throws IOException {
+        try {
+            return ResponseEntity.ok(backupService.verify(snapshot));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    // Restore the receipts tree and the database; 409 with the bad paths if any receipt fails its hash check
+    @PostMapping("/{snapshot}/restore")
+    public ResponseEntity<BackupService.RestoreResult> restoreBackup(@PathVariable String snapshot) throws IOException {
+        try {
+            BackupService.RestoreResult result = backupService.restore(snapshot);
+            return ResponseEntity.status(result.restored() ? HttpStatus.OK : HttpStatus.CONFLICT).body(result);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package property_pilot.controller;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Builds strong ETags from the ids and versions of the rows behind a response,
+ * so a validator can be checked before anything is serialized.
+ */
+final class EntityTag {
+
+    private final MessageDigest digest;
+    private final ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES);
+
+    private EntityTag() {
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static EntityTag builder() {
+        return new EntityTag();
+    }
+
+    /**
+     * Adds one row's identity and version; a null version counts as zero.
+     */
+    EntityTag add(Long id, Long version) {
+        return add(id == null ? 0 : id).add(version == null ? 0 : version);
+    }
+
+    EntityTag add(long value) {
+        buffer.clear();
+        digest.update(buffer.putLong(value).array());
+        return this;
+    }
+
+    EntityTag add(String value) {
+        if (value != null) {
+            digest.update(value.getBytes(StandardCharsets.UTF_8));
+        }
+        digest.update((byte) 0);
+        return this;
+    }
+
+    /**
+     * Returns the quoted tag, truncated to 128 bits.
+     */
+    String build() {
+        byte[] hash = digest.digest();
+        return "\"" + HexFormat.of().formatHex(hash, 0, 16) + "\"";
+    }
+}
@@ -1,28 +1,55 @@
 package property_pilot.controller;
 
 import property_pilot.model.Expense;
+import property_pilot.model.ExpenseHit;
+import property_pilot.model.ExpenseView;
 import property_pilot.model.Property;
+import property_pilot.repository.ExpenseFilter;
 import property_pilot.repository.ExpenseRepository;
-import property_pilot.repository.PropertyRepository;
+import property_pilot.repository.ReceiptBlobRepository;
+import property_pilot.service.ExpenseExportService;
+import property_pilot.service.ExpenseImportService;
+import property_pilot.service.ExpenseSearchIndex;
+import property_pilot.service.ExpenseService;
+import property_pilot.service.ImportResult;
+import property_pilot.service.LedgerWorkbookService;
+import property_pilot.service.PropertyService;
+import property_pilot.service.ReceiptArchiveService;
+import property_pilot.service.ReceiptMigrationService;
+import property_pilot.service.ReceiptService;
+import property_pilot.service.StatementImportService;
+import property_pilot.service.ThumbnailService;
 import property_pilot.service.FileStorageService;
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.io.UrlResource;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.multipart.MaxUploadSizeExceededException;
 import org.springframework.web.multipart.MultipartFile;
-import org.springframework.core.io.Resource;
+import org.springframework.web.multipart.support.MissingServletRequestPartException;
+import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.math.BigDecimal;
-import java.net.MalformedURLException;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.BiFunction;
 import java.nio.file.Path;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.attribute.BasicFileAttributes;
 
 /**
  * REST endpoints to manage expenses.
@@ -31,45 +58,258 @@ import java.nio.file.Files;
 @RequestMapping("/api/expenses")
 public class ExpenseController {
 
+    private static final Logger log = LoggerFactory.getLogger(ExpenseController.class);
+
+    // Response header carrying the continuation token for the next page
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    // Export formats: newline-delimited JSON (one expense per line) and CSV
+    static final MediaType APPLICATION_NDJSON = MediaType.valueOf("application/x-ndjson");
+    static final MediaType TEXT_CSV = MediaType.valueOf("text/csv");
+
+    static final String XLSX_VALUE = "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet";
+
+    static final String APPLICATION_ZIP_VALUE = "application/zip";
+
     @Autowired
     private ExpenseRepository expenseRepository;
 
     @Autowired
-    private PropertyRepository propertyRepository;
+    private PropertyService propertyService;
+
+    @Autowired
+    private ExpenseService expenseService;
 
     @Autowired
     private FileStorageService fileStorageService;
 
-    @Value("${property_pilot.receipts.base-dir}")
-    private String baseDir;
+    @Autowired
+    private ReceiptService receiptService;
+
+    @Autowired
+    private ReceiptMigrationService receiptMigrationService;
+
+    @Autowired
+    private ThumbnailService thumbnailService;
+
+    @Autowired
+    private ReceiptBlobRepository receiptBlobRepository;
+
+    @Autowired
+    private ExpenseExportService exportService;
+
+    @Autowired
+    private ExpenseImportService importService;
+
+    @Autowired
+    private StatementImportService statementImportService;
+
+    @Autowired
+    private LedgerWorkbookService ledgerWorkbookService;
 
-    // Get all expenses
+    @Autowired
+    private ReceiptArchiveService receiptArchiveService;
+
+    @Autowired
+    private ExpenseSearchIndex searchIndex;
+
+    @Value("${property_pilot.expenses.default-page-size:100}")
+    private int defaultPageSize;
+
+    @Value("${property_pilot.expenses.max-page-size:1000}")
+    private int maxPageSize;
+
+    // Get all expenses, one keyset page at a time
     @GetMapping
-    public List<Expense> getAllExpenses() {
-        return expenseRepository.findAll();
+    public ResponseEntity<List<ExpenseView>> getAllExpenses(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        return page(cursor, limit, (after, pageLimit) -> after == null
+                ? expenseRepository.findViewPage(pageLimit)
+                : expenseRepository.findViewPageAfter(after.date(), after.id(), pageLimit));
     }
 
     // Get expenses by property
     @GetMapping("/property/{propertyId}")
-    public List<Expense> getExpensesByProperty(@PathVariable Long propertyId) {
-        return expenseRepository.findByPropertyId(propertyId);
+    public ResponseEntity<List<ExpenseView>> getExpensesByProperty(
+            @PathVariable Long propertyId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        return page(cursor, limit, (after, pageLimit) -> after == null
+                ? expenseRepository.findViewPageByProperty(propertyId, pageLimit)
+                : expenseRepository.findViewPageByPropertyAfter(propertyId, after.date(), after.id(), pageLimit));
     }
 
     // Get expenses in date range
     @GetMapping("/range")
-    public List<Expense> getExpensesInRange(
+    public ResponseEntity<List<ExpenseView>> getExpensesInRange(
             @RequestParam String start,
-            @RequestParam String end) {
+            @RequestParam String end,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
         LocalDate startDate = LocalDate.parse(start);
         LocalDate endDate = LocalDate.parse(end);
-        return expenseRepository.findByDateBetween(startDate, endDate);
+        return page(cursor, limit, (after, pageLimit) -> after == null
+                ? expenseRepository.findViewPageByDate(startDate, endDate, pageLimit)
+                : expenseRepository.findViewPageByDateAfter(startDate, endDate, after.date(), after.id(), pageLimit));
+    }
+
+    // Get expenses matching any combination of property, date range and category
+    @GetMapping("/search")
+    public ResponseEntity<List<ExpenseView>> searchExpenses(
+            @RequestParam(required = false) Long propertyId,
+            @RequestParam(required = false) String start,
+            @RequestParam(required = false) String end,
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        ExpenseFilter filter = new ExpenseFilter(
+                propertyId,
+                start == null ? null : LocalDate.parse(start),
+                end == null ? null : LocalDate.parse(end),
+                category);
+        return page(cursor, limit, (after, pageLimit) -> expenseRepository.search(filter,
+                after == null ? null : after.date(),
+                after == null ? null : after.id(),
+                pageLimit.max()));
+    }
+
+    // Full-text search over category and description, ranked, served from the in-memory index
+    @GetMapping("/search/text")
+    public List<ExpenseHit> searchExpensesByText(
+            @RequestParam String q,
+            @RequestParam(required = false) Long propertyId,
+            @RequestParam(required = false) String start,
+            @RequestParam(required = false) String end,
+            @RequestParam(required = false) Integer limit) {
+        int size = limit == null ? defaultPageSize : Math.max(1, Math.min(limit, maxPageSize));
+        return searchIndex.search(q, propertyId,
+                start == null ? null : LocalDate.parse(start),
+                end == null ? null : LocalDate.parse(end),
+                size);
+    }
+
+    // Size, estimated memory and last build time of the full-text index
+    @GetMapping("/search/text/index")
+    public ExpenseSearchIndex.Stats searchIndexStats() {
+        return searchIndex.stats();
+    }
+
+    // Rebuild the full-text index from the database, dropping tombstones
+    @PostMapping("/search/text/index/rebuild")
+    public ExpenseSearchIndex.Stats rebuildSearchIndex() {
+        return searchIndex.rebuild();
+    }
+
+    /**
+     * Runs one keyset page query and returns its rows as the body.
+     * One extra row is fetched to tell whether another page follows; if so, its token
+     * goes in the X-Next-Cursor header. The ETag covers the ids and versions on the page.
+     */
+    private ResponseEntity<List<ExpenseView>> page(String cursor, Integer limit,
+                                                   BiFunction<ExpenseCursor, Limit, List<ExpenseView>> query) {
+        ExpenseCursor after;
+        try {
+            after = ExpenseCursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        int pageSize = limit == null ? defaultPageSize : Math.max(1, Math.min(limit, maxPageSize));
+        List<ExpenseView> rows = query.apply(after, Limit.of(pageSize + 1));
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        String next = null;
+        if (rows.size() > pageSize) {
+            rows = rows.subList(0, pageSize);
+            next = ExpenseCursor.after(rows.get(pageSize - 1));
+            response.header(NEXT_CURSOR_HEADER, next);
+        }
+
+        // A matching If-None-Match turns this into a 304 before the rows are serialized
+        EntityTag tag = EntityTag.builder();
+        for (ExpenseView row : rows) {
+            tag.add(row.id(), row.version());
+        }
+        return response.eTag(tag.add(next).build()).body(rows);
+    }
+
+    // Stream all expenses, or a property/date-range slice, as NDJSON or CSV
+    @GetMapping("/export")
+    public void exportExpenses(
+            @RequestParam(required = false) Long propertyId,
+            @RequestParam(required = false) String start,
+            @RequestParam(required = false) String end,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            HttpServletResponse response) throws IOException {
+        ExpenseExportService.Format format = exportFormat(accept);
+        if (format == null) {
+            response.sendError(HttpStatus.NOT_ACCEPTABLE.value());
+            return;
+        }
+
+        LocalDate startDate = start == null ? null : LocalDate.parse(start);
+        LocalDate endDate = end == null ? null : LocalDate.parse(end);
+
+        response.setContentType(format == ExpenseExportService.Format.CSV
+                ? TEXT_CSV.toString() : APPLICATION_NDJSON.toString());
+        response.setCharacterEncoding("UTF-8");
+        exportService.export(propertyId, startDate, endDate, format, response.getOutputStream());
+    }
+
+    // Download expenses as an XLSX workbook with one sheet per property
+    @GetMapping("/export/xlsx")
+    public void exportWorkbook(
+            @RequestParam(required = false) String start,
+            @RequestParam(required = false) String end,
+            HttpServletResponse response) throws IOException {
+        LocalDate startDate = start == null ? null : LocalDate.parse(start);
+        LocalDate endDate = end == null ? null : LocalDate.parse(end);
+
+        response.setContentType(XLSX_VALUE);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"expenses.xlsx\"");
+        ledgerWorkbookService.write(startDate, endDate, response.getOutputStream());
+    }
+
+    // Download the receipts of the matching expenses as one ZIP, with a manifest.csv of the rows
+    @GetMapping("/receipts/archive")
+    public void downloadReceiptArchive(
+            @RequestParam(required = false) Long propertyId,
+            @RequestParam(required = false) String start,
+            @RequestParam(required = false) String end,
+            HttpServletResponse response) throws IOException {
+        LocalDate startDate = start == null ? null : LocalDate.parse(start);
+        LocalDate endDate = end == null ? null : LocalDate.parse(end);
+
+        response.setContentType(APPLICATION_ZIP_VALUE);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"receipts.zip\"");
+        receiptArchiveService.write(propertyId, startDate, endDate, response.getOutputStream());
+    }
+
+    /**
+     * Picks the export format from the Accept header; NDJSON unless CSV is asked for.
+     * Returns null if the client accepts neither.
+     */
+    private ExpenseExportService.Format exportFormat(String accept) {
+        if (accept == null || accept.isBlank()) {
+            return ExpenseExportService.Format.NDJSON;
+        }
+        for (MediaType type : MediaType.parseMediaTypes(accept)) {
+            if (!type.isWildcardType() && type.isCompatibleWith(TEXT_CSV)) {
+                return ExpenseExportService.Format.CSV;
+            }
+            if (type.isCompatibleWith(APPLICATION_NDJSON) || type.isCompatibleWith(MediaType.APPLICATION_JSON)) {
+                return ExpenseExportService.Format.NDJSON;
+            }
+        }
+        return null;
     }
 
     // Create a new expense
     @PostMapping
     public ResponseEntity<Expense> createExpense(@RequestBody Expense expense) {
         // Ensure the property exists
-        Optional<Property> propertyOpt = propertyRepository.findById(expense.getProperty().getId());
+        Optional<Property> propertyOpt = propertyService.findById(expense.getProperty().getId());
         if (propertyOpt.isEmpty()) {
             return ResponseEntity.badRequest().build();
         }
@@ -77,26 +317,40 @@ public class ExpenseController {
         // Reattach property reference
         expense.setProperty(propertyOpt.get());
 
-        // Save expense
-        Expense saved = expenseRepository.save(expense);
+        // Save expense and update the monthly rollup
+        Expense saved = expenseService.create(expense);
         return ResponseEntity.ok(saved);
     }
 
+    // Bulk-create expenses from a JSON array or an NDJSON stream
+    @PostMapping(value = "/bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, "application/x-ndjson"})
+    public ResponseEntity<ImportResult> bulkCreateExpenses(InputStream body) throws IOException {
+        return ResponseEntity.ok(importService.importJson(body));
+    }
+
+    // Import expenses from an XLSX statement; rows that fail are reported, not fatal
+    @PostMapping("/import/xlsx")
+    public ResponseEntity<ImportResult> importStatement(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam(required = false) Long propertyId) throws IOException {
+        return ResponseEntity.ok(statementImportService.importXlsx(file, propertyId));
+    }
+
     // Delete an expense
     @DeleteMapping("/{id}")
-    public ResponseEntity<Void> deleteExpense(@PathVariable Long id) {
-        if (expenseRepository.existsById(id)) {
-            expenseRepository.deleteById(id);
+    public ResponseEntity<Void> deleteExpense(@PathVariable Long id) throws IOException {
+        if (expenseService.delete(id).isPresent()) {
             return ResponseEntity.noContent().build();
         }
         return ResponseEntity.notFound().build();
     }
 
-    // Upload a receipt to an expense
-    @PostMapping("/{id}/upload")
+    // Upload a receipt to an expense as the "file" part of a multipart form. The body is read as it
+    // arrives and the file streamed once into the receipt store; MultipartConfig keeps it unparsed
+    @PostMapping(value = "/{id}/upload", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     public ResponseEntity<String> uploadReceipt(
             @PathVariable Long id,
-            @RequestParam("file") MultipartFile file) {
+            HttpServletRequest request) throws MissingServletRequestPartException {
 
         // Check expense exists
         Optional<Expense> expenseOpt = expenseRepository.findById(id);
@@ -107,61 +361,191 @@ public class ExpenseController {
         Expense expense = expenseOpt.get();
 
         try {
-            // Store file
-            String relativePath = fileStorageService.storeFile(expense, file);
-            // Save the receipt path
-            expense.setReceiptPath(relativePath);
-            expenseRepository.save(expense);
-
-            return ResponseEntity.ok("File uploaded successfully at " + Path.of(baseDir,relativePath).toString());
+            MultipartBodyReader body = new MultipartBodyReader(request.getInputStream(), request.getContentType());
+            for (MultipartBodyReader.Part part = body.next(); part != null; part = body.next()) {
+                if ("file".equals(part.name()) && part.filename() != null) {
+                    // Stored once per distinct content; the expense points at the shared blob
+                    receiptService.attach(expense, part.filename(), part.contentType(), part.content());
+                    return ResponseEntity.ok("File uploaded successfully at "
+                            + fileStorageService.resolve(expense.getReceiptPath()));
+                }
+            }
+        } catch (MultipartBodyReader.MalformedBodyException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
         } catch (IOException e) {
-            e.printStackTrace();
+            log.error("Failed to store receipt for expense {}", id, e);
             return ResponseEntity.status(500).body("Failed to store file: " + e.getMessage());
         }
+        throw new MissingServletRequestPartException("file");
     }
 
-    @GetMapping("/{id}/receipt")
-    public ResponseEntity<Resource> downloadReceipt(@PathVariable Long id) {
+    // Upload a receipt as the raw request body, streamed once into the receipt store.
+    // The file name comes from ?filename= or a Content-Disposition header
+    @PutMapping("/{id}/receipt")
+    public ResponseEntity<String> putReceipt(
+            @PathVariable Long id,
+            @RequestParam(required = false) String filename,
+            @RequestHeader(value = HttpHeaders.CONTENT_TYPE, required = false) String contentType,
+            @RequestHeader(value = HttpHeaders.CONTENT_DISPOSITION, required = false) String disposition,
+            HttpServletRequest request) throws IOException {
         Optional<Expense> expenseOpt = expenseRepository.findById(id);
         if (expenseOpt.isEmpty()) {
             return ResponseEntity.notFound().build();
         }
 
+        // Refuse up front when the declared length is already too large; chunked bodies are cut off while staging
+        long maxSize = fileStorageService.getMaxUploadSize();
+        if (request.getContentLengthLong() > maxSize) {
+            throw new MaxUploadSizeExceededException(maxSize);
+        }
+        if (filename == null && disposition != null) {
+            filename = ContentDisposition.parse(disposition).getFilename();
+        }
+
+        Expense expense = receiptService.attach(expenseOpt.get(), filename, contentType, request.getInputStream());
+        return ResponseEntity.ok()
+                .eTag(expense.getReceiptHash())
+                .body("File uploaded successfully at " + fileStorageService.resolve(expense.getReceiptPath()));
+    }
+
+    // Download a receipt; supports Range requests and conditional GET
+    @GetMapping("/{id}/receipt")
+    public void downloadReceipt(@PathVariable Long id,
+                                ServletWebRequest webRequest,
+                                HttpServletResponse response) throws IOException {
+        Optional<Expense> expenseOpt = expenseRepository.findById(id);
+        if (expenseOpt.isEmpty()) {
+            response.sendError(HttpStatus.NOT_FOUND.value());
+            return;
+        }
+
         Expense expense = expenseOpt.get();
         String receiptPath = expense.getReceiptPath();
         if (receiptPath == null || receiptPath.isBlank()) {
-            return ResponseEntity.notFound().build();
+            response.sendError(HttpStatus.NOT_FOUND.value());
+            return;
         }
 
-        Path filePath = Path.of(baseDir, receiptPath);
-        if (!Files.exists(filePath)) {
-            return ResponseEntity.notFound().build();
+        Path filePath = fileStorageService.resolve(receiptPath);
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(filePath, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            response.sendError(HttpStatus.NOT_FOUND.value());
+            return;
         }
 
-        try {
-            Resource resource = new UrlResource(filePath.toUri());
-            String contentType = Files.probeContentType(filePath);
-            if (contentType == null) {
-                contentType = "application/octet-stream";
-            }
+        // Gzipped blobs go out as they are to clients that accept gzip, decompressed to the rest
+        boolean gzipped = FileStorageService.Codec.of(receiptPath) == FileStorageService.Codec.GZIP;
+        boolean passThrough = gzipped && acceptsGzip(webRequest.getHeader(HttpHeaders.ACCEPT_ENCODING));
+        if (gzipped) {
+            response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        }
 
-            return ResponseEntity.ok()
-                    .contentType(MediaType.parseMediaType(contentType))
-                    .header(HttpHeaders.CONTENT_DISPOSITION,
-                            "inline; filename=\"" + resource.getFilename() + "\"")
-                    .body(resource);
+        // Stored blobs are named by their SHA-256, which makes a strong ETag (one per encoding);
+        // older receipts use size and mtime. A match on If-None-Match / If-Modified-Since ends here with a 304
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        String etag = expense.getReceiptHash() != null
+                ? "\"" + expense.getReceiptHash() + (passThrough ? "-gzip" : "") + "\""
+                : "\"" + Long.toHexString(attributes.size()) + "-" + Long.toHexString(lastModified) + "\"";
+        if (webRequest.checkNotModified(etag, lastModified)) {
+            return;
+        }
 
-        } catch (MalformedURLException e) {
-            return ResponseEntity.badRequest().build();
-        } catch (IOException e) {
-            return ResponseEntity.internalServerError().build();
+        // Content type is recorded at upload; only receipts stored before that are probed
+        String contentType = expense.getReceiptContentType();
+        String fileName = expense.getReceiptFileName() != null
+                ? expense.getReceiptFileName()
+                : filePath.getFileName().toString();
+        if (contentType == null) {
+            contentType = fileStorageService.detectContentType(fileName, null);
         }
+
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                "inline; filename=\"" + fileName + "\"");
+        if (passThrough) {
+            // Byte ranges then refer to the gzip stream, as HTTP specifies for a content coding
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        } else if (gzipped) {
+            // Decompressed on the fly; no byte ranges, since offsets cannot be sought in a gzip stream
+            response.setContentType(contentType);
+            receiptBlobRepository.findById(expense.getReceiptHash())
+                    .ifPresent(blob -> response.setContentLengthLong(blob.getSize()));
+            if (!HttpMethod.HEAD.matches(webRequest.getRequest().getMethod())) {
+                long start = System.nanoTime();
+                try (InputStream in = fileStorageService.openReceipt(receiptPath)) {
+                    long sent = in.transferTo(response.getOutputStream());
+                    fileStorageService.recordDownload(sent, System.nanoTime() - start);
+                }
+            }
+            return;
+        }
+        long start = System.nanoTime();
+        long sent = FileResponseWriter.write(webRequest.getRequest(), response, filePath, attributes.size(),
+                contentType, etag, lastModified);
+        fileStorageService.recordDownload(sent, System.nanoTime() - start);
     }
 
-    private boolean isDirectoryEmpty(Path directory) throws IOException {
-        try (var dirStream = Files.newDirectoryStream(directory)) {
-            return !dirStream.iterator().hasNext();
+    /**
+     * True if an Accept-Encoding header allows gzip (explicitly or through *) with a non-zero q.
+     */
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String part : acceptEncoding.split(",")) {
+            String[] tokens = part.split(";");
+            String coding = tokens[0].trim();
+            if (coding.equalsIgnoreCase("gzip") || coding.equals("*")) {
+                for (int i = 1; i < tokens.length; i++) {
+                    if (tokens[i].trim().matches("q=0(\\.0{0,3})?")) {
+                        return false;
+                    }
+                }
+                return true;
+            }
         }
+        return false;
+    }
+
+    // Small JPEG preview of an image receipt. 202 while it is still being made
+    @GetMapping("/{id}/receipt/thumbnail")
+    public void downloadThumbnail(@PathVariable Long id,
+                                  ServletWebRequest webRequest,
+                                  HttpServletResponse response) throws IOException {
+        Optional<Expense> expenseOpt = expenseRepository.findById(id);
+        if (expenseOpt.isEmpty()) {
+            response.sendError(HttpStatus.NOT_FOUND.value());
+            return;
+        }
+
+        Expense expense = expenseOpt.get();
+        ThumbnailService.Status status = thumbnailService.request(expense);
+        if (status == ThumbnailService.Status.UNAVAILABLE) {
+            response.sendError(HttpStatus.NOT_FOUND.value());
+            return;
+        }
+        if (status == ThumbnailService.Status.PENDING) {
+            response.setStatus(HttpStatus.ACCEPTED.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            return;
+        }
+
+        Path thumbnail = thumbnailService.thumbnailFile(expense.getReceiptPath());
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(thumbnail, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            response.sendError(HttpStatus.NOT_FOUND.value());
+            return;
+        }
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        String etag = "\"" + Long.toHexString(attributes.size()) + "-" + Long.toHexString(lastModified) + "\"";
+        if (webRequest.checkNotModified(etag, lastModified)) {
+            return;
+        }
+        FileResponseWriter.write(webRequest.getRequest(), response, thumbnail, attributes.size(),
+                MediaType.IMAGE_JPEG_VALUE, etag, lastModified);
     }
 
     @DeleteMapping("/{id}/receipt")
@@ -173,32 +557,23 @@ public class ExpenseController {
 
         Expense expense = expenseOpt.get();
         String receiptPath = expense.getReceiptPath();
-        if (receiptPath == null || receiptPath.isBlank()) {
-            return ResponseEntity.notFound().build();
-        }
-
-        Path filePath = Path.of(baseDir, receiptPath);
-        Path expenseDir = filePath.getParent();
-
         try {
-            if (Files.exists(filePath)) {
-                Files.delete(filePath);
-            }
-
-            // If the expense directory is now empty, delete it
-            if (Files.isDirectory(expenseDir) && isDirectoryEmpty(expenseDir)) {
-                Files.delete(expenseDir);
+            // Drops this expense's reference; the file goes once no other expense uses it
+            if (!receiptService.detach(expense)) {
+                return ResponseEntity.notFound().build();
             }
-
-            // Clear the receiptPath
-            expense.setReceiptPath(null);
-            expenseRepository.save(expense);
-
-            return ResponseEntity.ok("Receipt and folder deleted successfully for file: " + Path.of(baseDir,receiptPath).toString());
+            return ResponseEntity.ok("Receipt deleted successfully for file: "
+                    + fileStorageService.resolve(receiptPath));
 
         } catch (IOException e) {
             return ResponseEntity.internalServerError()
                     .body("Error deleting receipt: " + e.getMessage());
         }
     }
+
+    // Move receipts from the old per-expense folders into the content-addressed store
+    @PostMapping("/receipts/migrate")
+    public ReceiptMigrationService.Result migrateReceipts() throws IOException {
+        return receiptMigrationService.migrate();
+    }
 } // END: public class ExpenseController {
@@ -0,0 +1,42 @@
+package property_pilot.controller;
+
+import property_pilot.model.ExpenseView;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Base64;
+
+/**
+ * Opaque continuation token for keyset-paginated expense listings.
+ * Encodes the (date, id) of the last row on a page as URL-safe Base64.
+ */
+record ExpenseCursor(LocalDate date, Long id) {
+
+    /**
+     * Decodes a token. A null or blank token means "start at the first row" and yields null.
+     * Throws IllegalArgumentException if the token is malformed.
+     */
+    static ExpenseCursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        int sep = raw.indexOf('|');
+        if (sep < 0) {
+            throw new IllegalArgumentException("Malformed cursor");
+        }
+        try {
+            return new ExpenseCursor(LocalDate.parse(raw.substring(0, sep)), Long.valueOf(raw.substring(sep + 1)));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Malformed cursor", e);
+        }
+    }
+
+    /**
+     * Returns the token that resumes after the given row.
+     */
+    static String after(ExpenseView last) {
+        String raw = last.date() + "|" + last.id();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
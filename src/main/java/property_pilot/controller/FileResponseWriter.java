@@ -0,0 +1,195 @@
+package property_pilot.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.util.MimeTypeUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes a file to the servlet response with HTTP Range support (single and multi-range).
+ * Whole files and single ranges are handed to Tomcat's sendfile when the connector offers it,
+ * so the kernel copies straight from the page cache to the socket. Otherwise bytes are moved
+ * with FileChannel.transferTo.
+ */
+final class FileResponseWriter {
+
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private FileResponseWriter() {
+    }
+
+    /**
+     * Sends the file, or the byte ranges asked for in the Range header, as the response body.
+     * Validators (ETag, Last-Modified) must already be set; etag is used to evaluate If-Range.
+     * Returns the number of body bytes sent (0 for HEAD and unsatisfiable ranges).
+     */
+    static long write(HttpServletRequest request, HttpServletResponse response,
+                      Path file, long length, String contentType, String etag, long lastModified)
+            throws IOException {
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        List<long[]> ranges;
+        try {
+            ranges = requestedRanges(request, length, etag, lastModified);
+        } catch (IllegalArgumentException e) {
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+            response.sendError(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+            return 0;
+        }
+        boolean head = "HEAD".equals(request.getMethod());
+
+        if (ranges.isEmpty()) {
+            response.setContentType(contentType);
+            response.setContentLengthLong(length);
+            if (head) {
+                return 0;
+            }
+            send(request, response, file, 0, length);
+            return length;
+        }
+
+        response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+        if (ranges.size() == 1) {
+            long[] range = ranges.get(0);
+            response.setContentType(contentType);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, contentRange(range, length));
+            response.setContentLengthLong(range[1] - range[0] + 1);
+            if (head) {
+                return 0;
+            }
+            send(request, response, file, range[0], range[1] - range[0] + 1);
+            return range[1] - range[0] + 1;
+        }
+
+        // multipart/byteranges: one part per range, each with its own Content-Range
+        String boundary = new String(MimeTypeUtils.generateMultipartBoundary(), StandardCharsets.US_ASCII);
+        List<byte[]> partHeaders = new ArrayList<>(ranges.size());
+        long total = 0;
+        for (long[] range : ranges) {
+            byte[] partHeader = ("\r\n--" + boundary + "\r\n"
+                    + HttpHeaders.CONTENT_TYPE + ": " + contentType + "\r\n"
+                    + HttpHeaders.CONTENT_RANGE + ": " + contentRange(range, length) + "\r\n\r\n")
+                    .getBytes(StandardCharsets.US_ASCII);
+            partHeaders.add(partHeader);
+            total += partHeader.length + (range[1] - range[0] + 1);
+        }
+        byte[] trailer = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+        total += trailer.length;
+
+        response.setContentType("multipart/byteranges; boundary=" + boundary);
+        response.setContentLengthLong(total);
+        if (head) {
+            return 0;
+        }
+        OutputStream out = response.getOutputStream();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            WritableByteChannel target = Channels.newChannel(out);
+            for (int i = 0; i < ranges.size(); i++) {
+                out.write(partHeaders.get(i));
+                long[] range = ranges.get(i);
+                transfer(channel, range[0], range[1] - range[0] + 1, target);
+            }
+        }
+        out.write(trailer);
+        out.flush();
+        return total;
+    }
+
+    /**
+     * Returns the inclusive [start, end] ranges to serve, or an empty list for the whole file.
+     * Throws IllegalArgumentException if the Range header is malformed or unsatisfiable.
+     */
+    private static List<long[]> requestedRanges(HttpServletRequest request, long length,
+                                                String etag, long lastModified) {
+        String header = request.getHeader(HttpHeaders.RANGE);
+        if (header == null || length == 0) {
+            return List.of();
+        }
+
+        // If-Range: only honour the Range if the client's copy is still current
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange != null && !isCurrent(request, ifRange, etag, lastModified)) {
+            return List.of();
+        }
+
+        List<HttpRange> parsed = HttpRange.parseRanges(header);
+        List<long[]> ranges = new ArrayList<>(parsed.size());
+        long requested = 0;
+        for (HttpRange range : parsed) {
+            long start = range.getRangeStart(length);
+            long end = range.getRangeEnd(length);
+            if (start >= length || end < start) {
+                throw new IllegalArgumentException("Range outside file: " + range);
+            }
+            ranges.add(new long[]{start, end});
+            requested += end - start + 1;
+        }
+        // Same guard Spring applies: overlapping ranges must not add up to more than the file
+        if (ranges.size() > 1 && requested > length) {
+            throw new IllegalArgumentException("Ranges exceed file length");
+        }
+        return ranges;
+    }
+
+    /**
+     * Whether an If-Range validator still matches the file. Quoted or weak values are entity
+     * tags and only compared to etag; anything else must be the exact Last-Modified date.
+     */
+    private static boolean isCurrent(HttpServletRequest request, String ifRange, String etag, long lastModified) {
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ifRange.equals(etag);
+        }
+        try {
+            long since = request.getDateHeader(HttpHeaders.IF_RANGE);
+            return since >= 0 && lastModified / 1000 == since / 1000;
+        } catch (IllegalArgumentException e) {
+            // Not a date either; the whole file is the safe answer
+            return false;
+        }
+    }
+
+    private static void send(HttpServletRequest request, HttpServletResponse response,
+                             Path file, long start, long count) throws IOException {
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, start + count);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            transfer(channel, start, count, Channels.newChannel(response.getOutputStream()));
+        }
+    }
+
+    private static void transfer(FileChannel channel, long position, long count,
+                                 WritableByteChannel target) throws IOException {
+        while (count > 0) {
+            long written = channel.transferTo(position, count, target);
+            if (written <= 0) {
+                throw new IOException("File shrank while it was being sent");
+            }
+            position += written;
+            count -= written;
+        }
+    }
+
+    private static String contentRange(long[] range, long length) {
+        return "bytes " + range[0] + "-" + range[1] + "/" + length;
+    }
+}
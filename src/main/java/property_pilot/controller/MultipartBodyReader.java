@@ -0,0 +1,214 @@
+package property_pilot.controller;
+
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads a multipart/form-data body part by part as it arrives, so a file part can be copied to
+ * its destination without the container buffering it to a temp file first. A part's content
+ * ends at the next boundary; whatever is left of it is skipped when moving to the next part.
+ * Not thread-safe.
+ */
+final class MultipartBodyReader {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    // Caps the headers of one part, which are held in memory
+    private static final int MAX_HEADER_SIZE = 8 * 1024;
+
+    private final InputStream in;
+    private final byte[] delimiter;
+    private final byte[] buffer;
+    private int pos;
+    private int limit;
+    private boolean eof;
+    private PartContent current;
+    private boolean finished;
+
+    /**
+     * One part: its form field name, the file name if it is a file, its declared type (may be
+     * null) and its content, readable until the next part is asked for.
+     */
+    record Part(String name, String filename, String contentType, InputStream content) {
+    }
+
+    /**
+     * The body does not follow the multipart format.
+     */
+    static final class MalformedBodyException extends IOException {
+
+        MalformedBodyException(String message) {
+            super(message);
+        }
+    }
+
+    MultipartBodyReader(InputStream in, String contentType) throws MalformedBodyException {
+        String boundary;
+        try {
+            boundary = MediaType.parseMediaType(contentType).getParameter("boundary");
+        } catch (RuntimeException e) {
+            throw new MalformedBodyException("Not a multipart content type: " + contentType);
+        }
+        if (boundary == null || boundary.isEmpty()) {
+            throw new MalformedBodyException("Multipart content type without a boundary");
+        }
+        if (boundary.length() > 1 && boundary.startsWith("\"") && boundary.endsWith("\"")) {
+            boundary = boundary.substring(1, boundary.length() - 1);
+        }
+        this.in = in;
+        this.delimiter = ("\r\n--" + boundary).getBytes(StandardCharsets.US_ASCII);
+        this.buffer = new byte[BUFFER_SIZE + delimiter.length];
+        // The first boundary has no line break before it; start with one so every delimiter looks alike
+        buffer[limit++] = '\r';
+        buffer[limit++] = '\n';
+        // Anything before the first boundary is preamble, read and dropped like an unread part
+        this.current = new PartContent();
+    }
+
+    /**
+     * Moves to the next part, skipping what is left of the current one. Returns null after the last.
+     */
+    Part next() throws IOException {
+        if (finished) {
+            return null;
+        }
+        current.transferTo(OutputStream.nullOutputStream());
+        pos += delimiter.length;
+
+        fill(2);
+        if (limit - pos >= 2 && buffer[pos] == '-' && buffer[pos + 1] == '-') {
+            finished = true;
+            return null;
+        }
+        // Rest of the boundary line: optional transport padding, then CRLF
+        if (!readLine().isBlank()) {
+            throw new MalformedBodyException("Malformed multipart boundary line");
+        }
+
+        HttpHeaders headers = new HttpHeaders();
+        int headerBytes = 0;
+        for (String line = readLine(); !line.isEmpty(); line = readLine()) {
+            headerBytes += line.length() + 2;
+            int colon = line.indexOf(':');
+            if (headerBytes > MAX_HEADER_SIZE || colon < 1) {
+                throw new MalformedBodyException("Malformed multipart part headers");
+            }
+            headers.add(line.substring(0, colon).trim(), line.substring(colon + 1).trim());
+        }
+        String disposition = headers.getFirst(HttpHeaders.CONTENT_DISPOSITION);
+        if (disposition == null) {
+            throw new MalformedBodyException("Multipart part without Content-Disposition");
+        }
+        ContentDisposition parsed;
+        try {
+            parsed = ContentDisposition.parse(disposition);
+        } catch (IllegalArgumentException e) {
+            throw new MalformedBodyException("Malformed Content-Disposition: " + disposition);
+        }
+        current = new PartContent();
+        return new Part(parsed.getName(), parsed.getFilename(), headers.getFirst(HttpHeaders.CONTENT_TYPE), current);
+    }
+
+    // Reads up to the next CRLF, which is consumed; header lines are UTF-8 as browsers send them
+    private String readLine() throws IOException {
+        int scanned = 0;
+        while (true) {
+            for (int i = pos + scanned; i + 1 < limit; i++) {
+                if (buffer[i] == '\r' && buffer[i + 1] == '\n') {
+                    String line = new String(buffer, pos, i - pos, StandardCharsets.UTF_8);
+                    pos = i + 2;
+                    return line;
+                }
+            }
+            scanned = Math.max(0, limit - pos - 1);
+            if (limit - pos >= MAX_HEADER_SIZE) {
+                throw new MalformedBodyException("Multipart header line too long");
+            }
+            if (eof) {
+                throw new MalformedBodyException("Multipart body ended inside part headers");
+            }
+            fill(limit - pos + 1);
+        }
+    }
+
+    // Makes at least min bytes available from pos, unless the body ends first
+    private void fill(int min) throws IOException {
+        if (limit - pos >= min) {
+            return;
+        }
+        System.arraycopy(buffer, pos, buffer, 0, limit - pos);
+        limit -= pos;
+        pos = 0;
+        while (limit < min && !eof) {
+            int read = in.read(buffer, limit, buffer.length - limit);
+            if (read < 0) {
+                eof = true;
+            } else {
+                limit += read;
+            }
+        }
+    }
+
+    // Position of the first whole delimiter in [pos, limit), or -1
+    private int findDelimiter() {
+        int last = limit - delimiter.length;
+        for (int i = pos; i <= last; i++) {
+            if (buffer[i] != delimiter[0]) {
+                continue;
+            }
+            int j = 1;
+            while (j < delimiter.length && buffer[i + j] == delimiter[j]) {
+                j++;
+            }
+            if (j == delimiter.length) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // The content of the current part; ends where the next delimiter starts
+    private final class PartContent extends InputStream {
+
+        private boolean done;
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (done || current != this) {
+                return -1;
+            }
+            if (len == 0) {
+                return 0;
+            }
+            fill(delimiter.length);
+            int end = findDelimiter();
+            if (end < 0) {
+                if (eof) {
+                    throw new MalformedBodyException("Multipart body ended before its closing boundary");
+                }
+                // A delimiter may start in the last delimiter.length - 1 bytes; keep those back
+                end = limit - delimiter.length + 1;
+            }
+            if (end == pos) {
+                done = true;
+                return -1;
+            }
+            int count = Math.min(len, end - pos);
+            System.arraycopy(buffer, pos, b, off, count);
+            pos += count;
+            return count;
+        }
+    }
+}
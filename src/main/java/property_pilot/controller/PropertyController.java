@@ -1,11 +1,13 @@
 package property_pilot.controller;
 
 import property_pilot.model.Property;
-import property_pilot.repository.PropertyRepository;
+import property_pilot.service.PropertyDeletionService;
+import property_pilot.service.PropertyService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.net.URI;
 import java.util.List;
 import java.util.Optional;
 
@@ -17,45 +19,66 @@ import java.util.Optional;
 public class PropertyController {
 
     @Autowired
-    private PropertyRepository propertyRepository;
+    private PropertyService propertyService;
 
-    // Get all properties
+    @Autowired
+    private PropertyDeletionService propertyDeletionService;
+
+    // Get all properties; the ETag covers every id and version in the list
     @GetMapping
-    public List<Property> getAllProperties() {
-        return propertyRepository.findAll();
+    public ResponseEntity<List<Property>> getAllProperties() {
+        List<Property> properties = propertyService.findAll();
+        EntityTag tag = EntityTag.builder();
+        for (Property property : properties) {
+            tag.add(property.getId(), property.getVersion());
+        }
+        return ResponseEntity.ok().eTag(tag.build()).body(properties);
     }
 
     // Get one property by ID
     @GetMapping("/{id}")
     public ResponseEntity<Property> getPropertyById(@PathVariable Long id) {
-        Optional<Property> prop = propertyRepository.findById(id);
-        return prop.map(ResponseEntity::ok).orElse(ResponseEntity.notFound().build());
+        Optional<Property> prop = propertyService.findById(id);
+        if (prop.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+
+        Property property = prop.get();
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .eTag(EntityTag.builder().add(property.getId(), property.getVersion()).build());
+        if (property.getLastModified() != null) {
+            response.lastModified(property.getLastModified());
+        }
+        return response.body(property);
     }
 
     // Create new property
     @PostMapping
     public Property createProperty(@RequestBody Property property) {
-        return propertyRepository.save(property);
+        return propertyService.create(property);
     }
 
     // Update property
     @PutMapping("/{id}")
     public ResponseEntity<Property> updateProperty(@PathVariable Long id, @RequestBody Property updatedProperty) {
-        return propertyRepository.findById(id).map(prop -> {
-            prop.setName(updatedProperty.getName());
-            prop.setAddress(updatedProperty.getAddress());
-            prop.setNotes(updatedProperty.getNotes());
-            return ResponseEntity.ok(propertyRepository.save(prop));
-        }).orElse(ResponseEntity.notFound().build());
+        return propertyService.update(id, updatedProperty)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
     }
 
-    // Delete property
+    // Delete property and its expenses; 202 pointing at the background cleanup of their receipts
     @DeleteMapping("/{id}")
-    public ResponseEntity<Void> deleteProperty(@PathVariable Long id) {
-        if (propertyRepository.existsById(id)) {
-            propertyRepository.deleteById(id);
-            return ResponseEntity.noContent().build();
-        }
-        return ResponseEntity.notFound().build();
+    public ResponseEntity<PropertyDeletionService.Progress> deleteProperty(@PathVariable Long id) {
+        return propertyService.delete(id)
+                .map(job -> ResponseEntity.accepted()
+                        .location(URI.create("/api/properties/deletions/" + job.id()))
+                        .body(job))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    // Progress of a receipt cleanup started by a property delete
+    @GetMapping("/deletions/{jobId}")
+    public ResponseEntity<PropertyDeletionService.Progress> getDeletionProgress(@PathVariable long jobId) {
+        return ResponseEntity.of(propertyDeletionService.progress(jobId));
     }
 }
@@ -0,0 +1,56 @@
+package property_pilot.controller;
+
+import property_pilot.model.CategorySummary;
+import property_pilot.model.MonthlySummary;
+import property_pilot.service.MonthlyTotalsService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.YearMonth;
+import java.util.List;
+
+/**
+ * REST endpoints for expense totals. Reads only the monthly rollup, never the ledger.
+ */
+@RestController
+@RequestMapping("/api/summary")
+public class SummaryController {
+
+    @Autowired
+    private MonthlyTotalsService monthlyTotalsService;
+
+    // Totals per property, month and category; months are "yyyy-MM" and inclusive
+    @GetMapping("/monthly")
+    public List<MonthlySummary> getMonthlyTotals(
+            @RequestParam(required = false) Long propertyId,
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) String start,
+            @RequestParam(required = false) String end) {
+        return monthlyTotalsService.monthly(propertyId, category, startMonth(start), endMonth(end));
+    }
+
+    // Totals per category over a month range
+    @GetMapping("/categories")
+    public List<CategorySummary> getCategoryTotals(
+            @RequestParam(required = false) Long propertyId,
+            @RequestParam(required = false) String start,
+            @RequestParam(required = false) String end) {
+        return monthlyTotalsService.byCategory(propertyId, startMonth(start), endMonth(end));
+    }
+
+    // Recompute the rollup from the ledger
+    @PostMapping("/rebuild")
+    public ResponseEntity<Void> rebuild() {
+        monthlyTotalsService.rebuild();
+        return ResponseEntity.noContent().build();
+    }
+
+    private static YearMonth startMonth(String start) {
+        return start == null ? YearMonth.of(1, 1) : YearMonth.parse(start);
+    }
+
+    private static YearMonth endMonth(String end) {
+        return end == null ? YearMonth.of(9999, 12) : YearMonth.parse(end);
+    }
+}
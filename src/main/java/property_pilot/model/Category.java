@@ -0,0 +1,31 @@
+package property_pilot.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * One entry of the expense category dictionary. Expenses and the monthly rollup store the
+ * integer id; the name is stored once, here, already case- and alias-folded.
+ */
+@Entity
+@Table(name = "categories")
+@Getter
+@Setter
+@NoArgsConstructor
+public class Category {
+
+    // Small dense code, stored on every expense in place of the name
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+
+    // Canonical name: trimmed, lower-case, aliases resolved
+    @Column(nullable = false, unique = true)
+    private String name;
+
+    public Category(String name) {
+        this.name = name;
+    }
+}
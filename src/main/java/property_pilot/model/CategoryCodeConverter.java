@@ -0,0 +1,31 @@
+package property_pilot.model;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import property_pilot.service.CategoryDictionary;
+
+/**
+ * Stores a category name as its dictionary code. Names are looked up, never registered, so a
+ * name must have gone through {@link CategoryDictionary#register} before it is written; an
+ * unknown name becomes null, which matches nothing in a query and fails the not-null check on insert.
+ * Created by Hibernate through Spring, before the dictionary exists, hence the provider.
+ */
+@Converter
+public class CategoryCodeConverter implements AttributeConverter<String, Integer> {
+
+    @Autowired
+    private ObjectProvider<CategoryDictionary> dictionary;
+
+    @Override
+    public Integer convertToDatabaseColumn(String name) {
+        return name == null ? null : dictionary.getObject().find(name);
+    }
+
+    @Override
+    public String convertToEntityAttribute(Integer code) {
+        return code == null ? null : dictionary.getObject().name(code);
+    }
+}
@@ -0,0 +1,9 @@
+package property_pilot.model;
+
+import java.math.BigDecimal;
+
+/**
+ * Expense total for one category across a range of months.
+ */
+public record CategorySummary(String category, BigDecimal total, long count) {
+}
@@ -1,25 +1,35 @@
 package property_pilot.model;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.UpdateTimestamp;
 
 import java.math.BigDecimal;
+import java.time.Instant;
 import java.time.LocalDate;
 
 /**
  * Represents an expense (rent, mortgage, HOA, etc.) for a property.
  */
 @Entity
-@Table(name = "expenses")
+@Table(name = "expenses", indexes = {
+        // Property + date filters and per-property keyset pages, ordered by (date, id)
+        @Index(name = "idx_expenses_property_date", columnList = "property_id, date, id"),
+        // Date-range filters and ledger-wide keyset pages
+        @Index(name = "idx_expenses_date", columnList = "date, id")
+})
 @Getter
 @Setter
 @NoArgsConstructor
 public class Expense {
 
+    // Pooled sequence rather than IDENTITY so Hibernate can batch inserts
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "expense_seq")
+    @SequenceGenerator(name = "expense_seq", sequenceName = "expense_seq", allocationSize = 50)
     private Long id;
 
     // Many expenses belong to one property
@@ -31,8 +41,9 @@ public class Expense {
     @Column(nullable = false)
     private LocalDate date;
 
-    // Expense category: rent, mortgage, hoa, maintenance
-    @Column(nullable = false)
+    // Expense category: rent, mortgage, hoa, maintenance. Stored as its code in the categories dictionary
+    @Column(name = "category_id", nullable = false)
+    @Convert(converter = CategoryCodeConverter.class)
     private String category;
 
     // Amount spent
@@ -44,4 +55,25 @@ public class Expense {
 
     // Path to receipt file, if any
     private String receiptPath;
+
+    // MIME type of the receipt, recorded at upload
+    private String receiptContentType;
+
+    // File name the receipt was uploaded with, used for downloads
+    private String receiptFileName;
+
+    // SHA-256 of the receipt content; null for receipts still in the per-expense folder layout
+    @Column(length = 64)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private String receiptHash;
+
+    // Incremented on every update; feeds optimistic locking and ETags
+    @Version
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Long version;
+
+    // Set on insert and on every update
+    @UpdateTimestamp
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Instant lastModified;
 }
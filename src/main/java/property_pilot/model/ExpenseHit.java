@@ -0,0 +1,11 @@
+package property_pilot.model;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * One full-text search result: the indexed fields of an expense and its relevance score.
+ */
+public record ExpenseHit(Long id, Long propertyId, LocalDate date, String category, BigDecimal amount,
+                         String description, double score) {
+}
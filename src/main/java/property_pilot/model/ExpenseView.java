@@ -0,0 +1,19 @@
+package property_pilot.model;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Read-only projection of an expense for list endpoints.
+ * Carries the owning property's id instead of the full Property entity.
+ */
+public record ExpenseView(
+        Long id,
+        Long propertyId,
+        LocalDate date,
+        String category,
+        BigDecimal amount,
+        String description,
+        String receiptPath,
+        Long version) {
+}
@@ -0,0 +1,10 @@
+package property_pilot.model;
+
+import java.math.BigDecimal;
+
+/**
+ * Expense total for one group of an analytics query. Property, category and period are set
+ * only when the query groups by them; period is a month ("2024-03") or a year ("2024").
+ */
+public record LedgerTotal(Long propertyId, String category, String period, BigDecimal total, long count) {
+}
@@ -0,0 +1,9 @@
+package property_pilot.model;
+
+import java.math.BigDecimal;
+
+/**
+ * Expense total for one property, month ("2024-03") and category.
+ */
+public record MonthlySummary(Long propertyId, String month, String category, BigDecimal total, long count) {
+}
@@ -0,0 +1,56 @@
+package property_pilot.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+
+/**
+ * Running total of expenses for one property, month and category.
+ * Maintained alongside every expense write so summaries never scan the ledger.
+ */
+@Entity
+@Table(name = "expense_monthly_totals")
+@Getter
+@Setter
+@NoArgsConstructor
+public class MonthlyTotal {
+
+    @EmbeddedId
+    private Key key;
+
+    // Sum of expense amounts in this bucket
+    @Column(nullable = false, precision = 38, scale = 2)
+    private BigDecimal total;
+
+    // Number of expenses in this bucket
+    @Column(name = "expense_count", nullable = false)
+    private long count;
+
+    /**
+     * Bucket key: property, calendar month ("2024-03") and category code.
+     */
+    @Embeddable
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @EqualsAndHashCode
+    public static class Key implements Serializable {
+
+        @Column(name = "property_id", nullable = false)
+        private Long propertyId;
+
+        @Column(name = "expense_month", nullable = false, length = 7)
+        private String month;
+
+        // Code in the categories dictionary
+        @Column(name = "category_id", nullable = false)
+        private Integer categoryId;
+    }
+}
@@ -1,9 +1,13 @@
 package property_pilot.model;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.Instant;
 
 /**
  * Represents a property (house, condo, rental unit, etc).
@@ -15,8 +19,10 @@ import lombok.Setter;
 @NoArgsConstructor
 public class Property {
 
+    // Pooled sequence rather than IDENTITY so Hibernate can batch inserts
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "property_seq")
+    @SequenceGenerator(name = "property_seq", sequenceName = "property_seq", allocationSize = 50)
     private Long id;
 
     // Property name (e.g., "Main Street Duplex")
@@ -29,5 +35,15 @@ public class Property {
     // Optional notes
     private String notes;
 
+    // Incremented on every update; feeds optimistic locking and ETags
+    @Version
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Long version;
+
+    // Set on insert and on every update
+    @UpdateTimestamp
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Instant lastModified;
+
     // Future: you could add owner info, metadata, etc.
 }
@@ -0,0 +1,31 @@
+package property_pilot.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * One stored receipt file, keyed by the SHA-256 of its content, and the number of
+ * expenses that currently point at it. The file is deleted when the count reaches zero.
+ */
+@Entity
+@Table(name = "receipt_blobs")
+@Getter
+@Setter
+@NoArgsConstructor
+public class ReceiptBlob {
+
+    // Lower-case hex SHA-256 of the file content
+    @Id
+    @Column(name = "sha256", length = 64)
+    private String hash;
+
+    // File size in bytes
+    @Column(name = "byte_size", nullable = false)
+    private long size;
+
+    // Number of expenses whose receipt is this blob
+    @Column(name = "ref_count", nullable = false)
+    private long refCount;
+}
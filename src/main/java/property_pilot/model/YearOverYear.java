@@ -0,0 +1,10 @@
+package property_pilot.model;
+
+import java.math.BigDecimal;
+
+/**
+ * One property's spending in a year next to the year before. Change is a fraction
+ * (0.1 is 10% more), null when the previous year had no expenses.
+ */
+public record YearOverYear(Long propertyId, int year, BigDecimal total, BigDecimal previousTotal, Double change) {
+}
@@ -0,0 +1,12 @@
+package property_pilot.repository;
+
+import property_pilot.model.Category;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Repository interface for the expense category dictionary.
+ */
+@Repository
+public interface CategoryRepository extends JpaRepository<Category, Integer> {
+}
@@ -0,0 +1,9 @@
+package property_pilot.repository;
+
+import java.time.LocalDate;
+
+/**
+ * Optional criteria for expense searches. Null fields do not filter.
+ */
+public record ExpenseFilter(Long propertyId, LocalDate startDate, LocalDate endDate, String category) {
+}
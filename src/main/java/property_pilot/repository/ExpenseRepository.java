@@ -1,16 +1,29 @@
 package property_pilot.repository;
 
 import property_pilot.model.Expense;
+import property_pilot.model.ExpenseView;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
 import java.util.List;
+import java.util.stream.Stream;
+
+import jakarta.persistence.QueryHint;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
 
 /**
  * Repository interface for Expense entity.
  */
 @Repository
-public interface ExpenseRepository extends JpaRepository<Expense, Long> {
+public interface ExpenseRepository extends JpaRepository<Expense, Long>, ExpenseSearchRepository {
 
     /**
      * Find all expenses for a given property.
@@ -22,4 +35,103 @@ public interface ExpenseRepository extends JpaRepository<Expense, Long> {
      */
     List<Expense> findByDateBetween(java.time.LocalDate startDate, java.time.LocalDate endDate);
 
+    /**
+     * JPQL select list for {@link ExpenseView}; reads the property_id column without joining properties.
+     */
+    String VIEW_SELECT = "select new property_pilot.model.ExpenseView("
+            + "e.id, e.property.id, e.date, e.category, e.amount, e.description, e.receiptPath, e.version)"
+            + " from Expense e";
+
+    /**
+     * Keyset condition resuming after (:afterDate, :afterId). The leading date bound lets the
+     * database seek on an index over date instead of filtering from the first row.
+     */
+    String AFTER_CURSOR = "e.date >= :afterDate and (e.date > :afterDate or e.id > :afterId)";
+
+    String VIEW_ORDER = " order by e.date, e.id";
+
+    /**
+     * First keyset page over all expenses, ordered by (date, id).
+     */
+    @Query(VIEW_SELECT + VIEW_ORDER)
+    List<ExpenseView> findViewPage(Limit limit);
+
+    /**
+     * Keyset page over all expenses after the given (date, id).
+     */
+    @Query(VIEW_SELECT + " where " + AFTER_CURSOR + VIEW_ORDER)
+    List<ExpenseView> findViewPageAfter(@Param("afterDate") LocalDate afterDate,
+                                        @Param("afterId") Long afterId,
+                                        Limit limit);
+
+    /**
+     * First keyset page over one property's expenses.
+     */
+    @Query(VIEW_SELECT + " where e.property.id = :propertyId" + VIEW_ORDER)
+    List<ExpenseView> findViewPageByProperty(@Param("propertyId") Long propertyId, Limit limit);
+
+    /**
+     * Keyset page over one property's expenses after the given (date, id).
+     */
+    @Query(VIEW_SELECT + " where e.property.id = :propertyId and " + AFTER_CURSOR + VIEW_ORDER)
+    List<ExpenseView> findViewPageByPropertyAfter(@Param("propertyId") Long propertyId,
+                                                  @Param("afterDate") LocalDate afterDate,
+                                                  @Param("afterId") Long afterId,
+                                                  Limit limit);
+
+    /**
+     * First keyset page over expenses in a date range.
+     */
+    @Query(VIEW_SELECT + " where e.date between :startDate and :endDate" + VIEW_ORDER)
+    List<ExpenseView> findViewPageByDate(@Param("startDate") LocalDate startDate,
+                                         @Param("endDate") LocalDate endDate,
+                                         Limit limit);
+
+    /**
+     * Keyset page over expenses in a date range after the given (date, id).
+     */
+    @Query(VIEW_SELECT + " where e.date between :startDate and :endDate and " + AFTER_CURSOR + VIEW_ORDER)
+    List<ExpenseView> findViewPageByDateAfter(@Param("startDate") LocalDate startDate,
+                                              @Param("endDate") LocalDate endDate,
+                                              @Param("afterDate") LocalDate afterDate,
+                                              @Param("afterId") Long afterId,
+                                              Limit limit);
+
+    /**
+     * Streams expenses matching the optional property and date filters, ordered by (date, id).
+     * Rows are pulled from the JDBC cursor in fetch-size chunks; callers must consume the
+     * stream inside a transaction and close it.
+     */
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HINT_READ_ONLY, value = "true")
+    })
+    @Query("select e from Expense e join fetch e.property p"
+            + " where (:propertyId is null or p.id = :propertyId)"
+            + " and (:startDate is null or e.date >= :startDate)"
+            + " and (:endDate is null or e.date <= :endDate)"
+            + " order by e.date, e.id")
+    Stream<Expense> streamFiltered(@Param("propertyId") Long propertyId,
+                                   @Param("startDate") LocalDate startDate,
+                                   @Param("endDate") LocalDate endDate);
+
+    /**
+     * Ids of expenses whose receipt is still in the per-expense folder layout, in id order.
+     */
+    @Query("select e.id from Expense e where e.receiptPath is not null and e.receiptHash is null"
+            + " and e.id > :afterId order by e.id")
+    List<Long> findLegacyReceiptIds(@Param("afterId") long afterId, Limit limit);
+
+    /**
+     * Distinct receipt blobs referenced by one property's expenses.
+     */
+    @Query("select distinct e.receiptHash from Expense e where e.property.id = :propertyId and e.receiptHash is not null")
+    List<String> findReceiptHashesByPropertyId(@Param("propertyId") Long propertyId);
+
+    /**
+     * Deletes all of one property's expenses in a single statement. Returns the number deleted.
+     */
+    @Modifying
+    @Query("delete from Expense e where e.property.id = :propertyId")
+    int deleteByPropertyId(@Param("propertyId") Long propertyId);
 }
@@ -0,0 +1,19 @@
+package property_pilot.repository;
+
+import property_pilot.model.ExpenseView;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Expense queries whose WHERE clause is assembled from the filters actually given,
+ * so the database sees plain sargable predicates and can use the composite indexes.
+ */
+public interface ExpenseSearchRepository {
+
+    /**
+     * Keyset page of expenses matching the filter, ordered by (date, id).
+     * Pass null afterDate/afterId for the first page.
+     */
+    List<ExpenseView> search(ExpenseFilter filter, LocalDate afterDate, Long afterId, int limit);
+}
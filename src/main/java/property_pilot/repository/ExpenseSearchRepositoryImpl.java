@@ -0,0 +1,62 @@
+package property_pilot.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+
+import property_pilot.model.Expense;
+import property_pilot.model.ExpenseView;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Criteria implementation of {@link ExpenseSearchRepository}.
+ */
+class ExpenseSearchRepositoryImpl implements ExpenseSearchRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<ExpenseView> search(ExpenseFilter filter, LocalDate afterDate, Long afterId, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<ExpenseView> query = cb.createQuery(ExpenseView.class);
+        Root<Expense> e = query.from(Expense.class);
+        Path<LocalDate> date = e.get("date");
+        Path<Long> id = e.get("id");
+        Path<Long> propertyId = e.get("property").get("id");
+
+        List<Predicate> where = new ArrayList<>();
+        if (filter.propertyId() != null) {
+            where.add(cb.equal(propertyId, filter.propertyId()));
+        }
+        if (filter.startDate() != null) {
+            where.add(cb.greaterThanOrEqualTo(date, filter.startDate()));
+        }
+        if (filter.endDate() != null) {
+            where.add(cb.lessThanOrEqualTo(date, filter.endDate()));
+        }
+        if (filter.category() != null) {
+            where.add(cb.equal(e.get("category"), filter.category()));
+        }
+        if (afterDate != null) {
+            // Same shape as ExpenseRepository.AFTER_CURSOR: a range bound on date, then the tie-break
+            where.add(cb.greaterThanOrEqualTo(date, afterDate));
+            where.add(cb.or(cb.greaterThan(date, afterDate), cb.greaterThan(id, afterId)));
+        }
+
+        query.select(cb.construct(ExpenseView.class,
+                        id, propertyId, date, e.get("category"), e.get("amount"),
+                        e.get("description"), e.get("receiptPath"), e.get("version")))
+                .where(where.toArray(new Predicate[0]))
+                .orderBy(cb.asc(date), cb.asc(id));
+
+        return entityManager.createQuery(query).setMaxResults(limit).getResultList();
+    }
+}
@@ -0,0 +1,93 @@
+package property_pilot.repository;
+
+import property_pilot.model.CategorySummary;
+import property_pilot.model.MonthlySummary;
+import property_pilot.model.MonthlyTotal;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Repository interface for the monthly expense rollup.
+ */
+@Repository
+public interface MonthlyTotalRepository extends JpaRepository<MonthlyTotal, MonthlyTotal.Key> {
+
+    /**
+     * Adds an amount and count to one bucket, creating it if needed, in a single statement.
+     */
+    @Modifying
+    @Query(value = "MERGE INTO expense_monthly_totals t"
+            + " USING (VALUES (CAST(:propertyId AS BIGINT), CAST(:month AS VARCHAR(7)),"
+            + " CAST(:categoryId AS INTEGER), CAST(:amount AS NUMERIC(38, 2)), CAST(:count AS BIGINT)))"
+            + " AS d(property_id, expense_month, category_id, amount, cnt)"
+            + " ON t.property_id = d.property_id AND t.expense_month = d.expense_month AND t.category_id = d.category_id"
+            + " WHEN MATCHED THEN UPDATE SET total = t.total + d.amount, expense_count = t.expense_count + d.cnt"
+            + " WHEN NOT MATCHED THEN INSERT (property_id, expense_month, category_id, total, expense_count)"
+            + " VALUES (d.property_id, d.expense_month, d.category_id, d.amount, d.cnt)",
+            nativeQuery = true)
+    void addToBucket(@Param("propertyId") Long propertyId,
+                     @Param("month") String month,
+                     @Param("categoryId") Integer categoryId,
+                     @Param("amount") BigDecimal amount,
+                     @Param("count") long count);
+
+    /**
+     * Drops a bucket once its last expense has been removed.
+     */
+    @Modifying
+    @Query("delete from MonthlyTotal t where t.key = :key and t.count <= 0")
+    void deleteIfEmpty(@Param("key") MonthlyTotal.Key key);
+
+    /**
+     * Drops every bucket of one property.
+     */
+    @Modifying
+    @Query("delete from MonthlyTotal t where t.key.propertyId = :propertyId")
+    void deleteByPropertyId(@Param("propertyId") Long propertyId);
+
+    /**
+     * Rebuilds every bucket from the expenses table.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO expense_monthly_totals (property_id, expense_month, category_id, total, expense_count)"
+            + " SELECT property_id, TO_CHAR(date, 'YYYY-MM'), category_id, SUM(amount), COUNT(*)"
+            + " FROM expenses GROUP BY property_id, TO_CHAR(date, 'YYYY-MM'), category_id",
+            nativeQuery = true)
+    void insertFromExpenses();
+
+    /**
+     * Buckets in a month range, optionally narrowed to one property and/or category code.
+     * Category names are joined in from the dictionary.
+     */
+    @Query("select new property_pilot.model.MonthlySummary("
+            + "t.key.propertyId, t.key.month, c.name, t.total, t.count)"
+            + " from MonthlyTotal t join Category c on c.id = t.key.categoryId"
+            + " where (:propertyId is null or t.key.propertyId = :propertyId)"
+            + " and (:categoryId is null or t.key.categoryId = :categoryId)"
+            + " and t.key.month between :startMonth and :endMonth"
+            + " order by t.key.propertyId, t.key.month, c.name")
+    List<MonthlySummary> findBuckets(@Param("propertyId") Long propertyId,
+                                   @Param("categoryId") Integer categoryId,
+                                   @Param("startMonth") String startMonth,
+                                   @Param("endMonth") String endMonth);
+
+    /**
+     * Category totals across a month range, optionally for one property.
+     * Grouped on the integer code; the name is joined in once per group.
+     */
+    @Query("select new property_pilot.model.CategorySummary("
+            + "c.name, sum(t.total), sum(t.count))"
+            + " from MonthlyTotal t join Category c on c.id = t.key.categoryId"
+            + " where (:propertyId is null or t.key.propertyId = :propertyId)"
+            + " and t.key.month between :startMonth and :endMonth"
+            + " group by t.key.categoryId, c.name order by c.name")
+    List<CategorySummary> sumByCategory(@Param("propertyId") Long propertyId,
+                                      @Param("startMonth") String startMonth,
+                                      @Param("endMonth") String endMonth);
+}
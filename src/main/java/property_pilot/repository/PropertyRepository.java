@@ -2,11 +2,22 @@ package property_pilot.repository;
 
 import property_pilot.model.Property;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.Set;
+
 /**
  * Repository interface for Property entity.
  */
 @Repository
 public interface PropertyRepository extends JpaRepository<Property, Long> {
+
+    /**
+     * Returns which of the given ids belong to existing properties, in one query.
+     */
+    @Query("select p.id from Property p where p.id in :ids")
+    Set<Long> findExistingIds(@Param("ids") Collection<Long> ids);
 }
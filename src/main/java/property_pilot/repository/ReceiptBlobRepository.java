@@ -0,0 +1,62 @@
+package property_pilot.repository;
+
+import property_pilot.model.ReceiptBlob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Repository interface for receipt blob reference counts.
+ */
+@Repository
+public interface ReceiptBlobRepository extends JpaRepository<ReceiptBlob, String> {
+
+    /**
+     * Counts one more reference to a blob, creating its row if needed, in a single statement.
+     * The row stays locked until the transaction ends.
+     */
+    @Modifying
+    @Query(value = "MERGE INTO receipt_blobs b"
+            + " USING (VALUES (CAST(:hash AS VARCHAR(64)), CAST(:size AS BIGINT))) AS d(sha256, byte_size)"
+            + " ON b.sha256 = d.sha256"
+            + " WHEN MATCHED THEN UPDATE SET ref_count = b.ref_count + 1"
+            + " WHEN NOT MATCHED THEN INSERT (sha256, byte_size, ref_count) VALUES (d.sha256, d.byte_size, 1)",
+            nativeQuery = true)
+    void addReference(@Param("hash") String hash, @Param("size") long size);
+
+    /**
+     * Counts one reference less. Returns the number of rows changed (0 if the blob is unknown).
+     */
+    @Modifying
+    @Query("update ReceiptBlob b set b.refCount = b.refCount - 1 where b.hash = :hash")
+    int removeReference(@Param("hash") String hash);
+
+    /**
+     * Drops a blob's row once nothing references it. Returns 1 if it was dropped.
+     */
+    @Modifying
+    @Query("delete from ReceiptBlob b where b.hash = :hash and b.refCount <= 0")
+    int deleteIfUnreferenced(@Param("hash") String hash);
+
+    /**
+     * Releases every reference held by one property's expenses in a single statement: each blob
+     * loses as many references as the property has expenses pointing at it. Rows that reach zero
+     * are left for {@link #deleteIfUnreferenced}. Returns the number of blobs changed.
+     */
+    @Modifying
+    @Query(value = "UPDATE receipt_blobs b SET ref_count = b.ref_count"
+            + " - (SELECT COUNT(*) FROM expenses e WHERE e.property_id = :propertyId AND e.receipt_hash = b.sha256)"
+            + " WHERE b.sha256 IN (SELECT receipt_hash FROM expenses WHERE property_id = :propertyId)",
+            nativeQuery = true)
+    int releasePropertyReferences(@Param("propertyId") Long propertyId);
+
+    /**
+     * Blobs nothing references any more whose row and file have not been deleted yet.
+     */
+    @Query("select b.hash from ReceiptBlob b where b.refCount <= 0")
+    List<String> findUnreferenced();
+}
@@ -0,0 +1,414 @@
+package property_pilot.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Incremental snapshots of the database and the receipts tree.
+ *
+ * <p>Layout under property_pilot.backup.dir:
+ * <pre>
+ * objects/{aa}/{bb}/{sha256}          receipt file contents, stored once across all snapshots
+ * snapshots/{id}/database.zip         H2 SCRIPT dump of the whole database
+ * snapshots/{id}/manifest.tsv         sha256, size, mtime and path of every receipt file
+ * </pre>
+ * A file whose size and mtime match the previous snapshot's manifest keeps its recorded hash and
+ * is not read at all; a changed file is copied into objects/ while it is hashed, and only if that
+ * content is not stored yet. A nightly run therefore reads and writes only what changed that day,
+ * plus one directory walk. Files are hashed and copied on a pool of property_pilot.backup.threads.
+ * Snapshots are written under a temporary name and renamed when complete.
+ */
+@Service
+public class BackupService {
+
+    private static final String OBJECTS_DIR = "objects";
+    private static final String SNAPSHOTS_DIR = "snapshots";
+    private static final String DATABASE_FILE = "database.zip";
+    private static final String MANIFEST_FILE = "manifest.tsv";
+    private static final String INCOMPLETE_SUFFIX = ".incomplete";
+
+    private static final DateTimeFormatter SNAPSHOT_ID =
+            DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss.SSS'Z'").withZone(ZoneOffset.UTC);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private ExpenseSearchIndex searchIndex;
+
+    @Autowired
+    private CategoryMigrationService categoryMigrationService;
+
+    @Autowired
+    private LedgerSnapshot ledgerSnapshot;
+
+    @Value("${property_pilot.receipts.base-dir}")
+    private String receiptsDir;
+
+    @Value("${property_pilot.backup.dir:${property_pilot.receipts.base-dir}/../backups}")
+    private String backupDir;
+
+    @Value("${property_pilot.backup.threads:4}")
+    private int threads;
+
+    /**
+     * One receipt file as recorded in a manifest; path is relative to the receipts directory.
+     */
+    public record Entry(String sha256, long size, long mtime, String path) {
+    }
+
+    /**
+     * Outcome of a backup. Changed files were re-read; copiedBytes counts only content that was new
+     * to the object store.
+     */
+    public record BackupResult(String snapshot, long files, long changedFiles, long copiedBytes,
+                               long unchangedFiles, long databaseBytes, long millis) {
+    }
+
+    public record RestoreResult(String snapshot, long files, long bytes, List<String> corrupt, boolean restored) {
+    }
+
+    /**
+     * Takes a snapshot on the property_pilot.backup.cron schedule; off unless that is set.
+     */
+    @Scheduled(cron = "${property_pilot.backup.cron:-}")
+    public void scheduledBackup() throws IOException {
+        backup();
+    }
+
+    /**
+     * Takes a new snapshot, copying only receipt content that changed since the last one.
+     */
+    public synchronized BackupResult backup() throws IOException {
+        long started = System.nanoTime();
+        Path snapshots = Path.of(backupDir, SNAPSHOTS_DIR);
+        Files.createDirectories(snapshots);
+        String id = SNAPSHOT_ID.format(Instant.now());
+        Path work = snapshots.resolve(id + INCOMPLETE_SUFFIX);
+        Files.createDirectories(work);
+
+        // Database first: the receipts walk then sees at least every file the dump refers to
+        Path dump = work.resolve(DATABASE_FILE);
+        jdbcTemplate.execute("SCRIPT TO " + sqlString(dump) + " COMPRESSION ZIP");
+
+        Path latest = latestSnapshot();
+        Map<String, Entry> previous = latest == null ? Map.of() : readManifest(latest);
+        List<Candidate> candidates = walkReceipts();
+        AtomicLong changedFiles = new AtomicLong();
+        AtomicLong copiedBytes = new AtomicLong();
+        List<Entry> entries = inParallel(() -> candidates.parallelStream().map(candidate -> {
+            Entry before = previous.get(candidate.path());
+            if (before != null && before.size() == candidate.size() && before.mtime() == candidate.mtime()
+                    && Files.exists(objectFile(before.sha256()))) {
+                return before;
+            }
+            try {
+                Entry entry = store(candidate, copiedBytes);
+                if (entry.sha256() != null) {
+                    changedFiles.incrementAndGet();
+                }
+                return entry;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }).filter(entry -> entry.sha256() != null).toList());
+
+        writeManifest(work.resolve(MANIFEST_FILE), entries);
+        Files.move(work, snapshots.resolve(id), StandardCopyOption.ATOMIC_MOVE);
+
+        return new BackupResult(id, entries.size(), changedFiles.get(), copiedBytes.get(),
+                entries.size() - changedFiles.get(), Files.size(snapshots.resolve(id).resolve(DATABASE_FILE)),
+                (System.nanoTime() - started) / 1_000_000);
+    }
+
+    /**
+     * Completed snapshots, oldest first.
+     */
+    public List<String> listSnapshots() throws IOException {
+        Path snapshots = Path.of(backupDir, SNAPSHOTS_DIR);
+        if (!Files.isDirectory(snapshots)) {
+            return List.of();
+        }
+        try (Stream<Path> dirs = Files.list(snapshots)) {
+            return dirs.map(dir -> dir.getFileName().toString())
+                    .filter(name -> !name.endsWith(INCOMPLETE_SUFFIX))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    /**
+     * Checks every object a snapshot refers to against its recorded hash, without restoring anything.
+     */
+    public RestoreResult verify(String snapshot) throws IOException {
+        Map<String, Entry> manifest = readManifest(snapshotDir(snapshot));
+        List<String> corrupt = inParallel(() -> manifest.values().parallelStream()
+                .filter(entry -> !matches(entry, objectFile(entry.sha256())))
+                .map(Entry::path)
+                .sorted()
+                .toList());
+        long bytes = manifest.values().stream().mapToLong(Entry::size).sum();
+        return new RestoreResult(snapshot, manifest.size(), bytes, corrupt, false);
+    }
+
+    /**
+     * Puts the receipts tree and the database back to a snapshot. Every object the snapshot refers
+     * to is checked against its hash first; if any fails, nothing is touched and the bad paths are
+     * reported. Receipt files created after the snapshot are left in place. Run while the
+     * application is otherwise idle: the database is dropped and reloaded.
+     */
+    public synchronized RestoreResult restore(String snapshot) throws IOException {
+        RestoreResult verified = verify(snapshot);
+        if (!verified.corrupt().isEmpty()) {
+            return verified;
+        }
+        Path dir = snapshotDir(snapshot);
+        Map<String, Entry> manifest = readManifest(dir);
+        // Hashed again while copying; only an object changed since the check above can fail here
+        List<String> corrupt = inParallel(() -> manifest.values().parallelStream()
+                .filter(entry -> {
+                    try {
+                        return !restoreFile(entry);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                })
+                .map(Entry::path)
+                .sorted()
+                .toList());
+        long bytes = manifest.values().stream().mapToLong(Entry::size).sum();
+        if (!corrupt.isEmpty()) {
+            return new RestoreResult(snapshot, manifest.size(), bytes, corrupt, false);
+        }
+
+        // DROP ALL OBJECTS commits on its own: until the reload finishes, other connections see
+        // an empty database. Hence running restores only while the application is idle
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (var statement = connection.createStatement()) {
+                statement.execute("DROP ALL OBJECTS");
+                statement.execute("RUNSCRIPT FROM " + sqlString(dir.resolve(DATABASE_FILE)) + " COMPRESSION ZIP");
+            }
+            return null;
+        });
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+        // Category codes are only meaningful with the restored dictionary; older snapshots need migrating to it
+        categoryMigrationService.migrate();
+        searchIndex.rebuild();
+        ledgerSnapshot.rebuild();
+        return new RestoreResult(snapshot, manifest.size(), bytes, List.of(), true);
+    }
+
+    // A receipt file found by the walk, with the attributes the walk already read
+    private record Candidate(Path file, String path, long size, long mtime) {
+    }
+
+    private List<Candidate> walkReceipts() throws IOException {
+        Path root = Path.of(receiptsDir);
+        List<Candidate> candidates = new ArrayList<>();
+        if (!Files.isDirectory(root)) {
+            return candidates;
+        }
+        Files.walkFileTree(root, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                // Uploads in flight are not receipts yet
+                return dir.getFileName().toString().startsWith(".") && !dir.equals(root)
+                        ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (attrs.isRegularFile()) {
+                    candidates.add(new Candidate(file, root.relativize(file).toString().replace('\\', '/'),
+                            attrs.size(), attrs.lastModifiedTime().toMillis()));
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return candidates;
+    }
+
+    /**
+     * Copies a file into objects/ while hashing it, keeping the copy only if the content is new.
+     * Returns an entry with a null hash if the file disappeared during the walk.
+     */
+    private Entry store(Candidate candidate, AtomicLong copiedBytes) throws IOException {
+        Path objects = Path.of(backupDir, OBJECTS_DIR);
+        Files.createDirectories(objects);
+        Path temp = Files.createTempFile(objects, "copy-", ".tmp");
+        try {
+            MessageDigest digest = sha256();
+            long size;
+            try (InputStream in = new DigestInputStream(Files.newInputStream(candidate.file()), digest)) {
+                size = Files.copy(in, temp, StandardCopyOption.REPLACE_EXISTING);
+            } catch (NoSuchFileException e) {
+                return new Entry(null, 0, 0, candidate.path());
+            }
+            String hash = HexFormat.of().formatHex(digest.digest());
+            Path object = objectFile(hash);
+            if (!Files.exists(object)) {
+                Files.createDirectories(object.getParent());
+                Files.move(temp, object, StandardCopyOption.ATOMIC_MOVE);
+                copiedBytes.addAndGet(size);
+            }
+            return new Entry(hash, size, candidate.mtime(), candidate.path());
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Copies one object back to its receipts path, hashing it on the way.
+     * Returns false, leaving the target untouched, if the object is missing or does not match.
+     */
+    private boolean restoreFile(Entry entry) throws IOException {
+        Path object = objectFile(entry.sha256());
+        if (!Files.exists(object)) {
+            return false;
+        }
+        Path target = Path.of(receiptsDir).resolve(entry.path());
+        Files.createDirectories(target.getParent());
+        Path temp = Files.createTempFile(target.getParent(), ".restore-", ".tmp");
+        try {
+            MessageDigest digest = sha256();
+            try (InputStream in = Files.newInputStream(object);
+                 OutputStream out = new DigestOutputStream(Files.newOutputStream(temp), digest)) {
+                in.transferTo(out);
+            }
+            if (!HexFormat.of().formatHex(digest.digest()).equals(entry.sha256())) {
+                return false;
+            }
+            Files.setLastModifiedTime(temp, FileTime.fromMillis(entry.mtime()));
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            return true;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static boolean matches(Entry entry, Path object) {
+        MessageDigest digest = sha256();
+        try (InputStream in = new DigestInputStream(Files.newInputStream(object), digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        } catch (IOException e) {
+            return false;
+        }
+        return HexFormat.of().formatHex(digest.digest()).equals(entry.sha256());
+    }
+
+    private Path latestSnapshot() throws IOException {
+        List<String> snapshots = listSnapshots();
+        return snapshots.isEmpty() ? null : snapshotDir(snapshots.get(snapshots.size() - 1));
+    }
+
+    private Path snapshotDir(String snapshot) {
+        Path dir = Path.of(backupDir, SNAPSHOTS_DIR).resolve(snapshot).normalize();
+        if (!dir.getParent().equals(Path.of(backupDir, SNAPSHOTS_DIR).normalize()) || !Files.isDirectory(dir)) {
+            throw new IllegalArgumentException("No such snapshot: " + snapshot);
+        }
+        return dir;
+    }
+
+    private Path objectFile(String sha256) {
+        return Path.of(backupDir, OBJECTS_DIR, sha256.substring(0, 2), sha256.substring(2, 4), sha256);
+    }
+
+    /**
+     * Reads a manifest into a map keyed by path. Lines are sha256, size, mtime, path, tab-separated.
+     */
+    private static Map<String, Entry> readManifest(Path snapshot) throws IOException {
+        Map<String, Entry> entries = new HashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(snapshot.resolve(MANIFEST_FILE), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split("\t", 4);
+                entries.put(fields[3], new Entry(fields[0], Long.parseLong(fields[1]), Long.parseLong(fields[2]), fields[3]));
+            }
+        }
+        return entries;
+    }
+
+    private static void writeManifest(Path file, List<Entry> entries) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (Entry entry : entries.stream().sorted(Comparator.comparing(Entry::path)).toList()) {
+                writer.write(entry.sha256() + "\t" + entry.size() + "\t" + entry.mtime() + "\t" + entry.path());
+                writer.newLine();
+            }
+        }
+    }
+
+    /**
+     * Runs a parallel stream pipeline on this service's own pool rather than the common pool,
+     * so file I/O never starves other parallel work.
+     */
+    private <T> T inParallel(Callable<T> task) throws IOException {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            return pool.submit(task).get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof UncheckedIOException io) {
+                throw io.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted", e);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static String sqlString(Path file) {
+        return "'" + file.toAbsolutePath().toString().replace("'", "''") + "'";
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
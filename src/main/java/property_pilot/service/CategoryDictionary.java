@@ -0,0 +1,171 @@
+package property_pilot.service;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import property_pilot.model.Category;
+import property_pilot.repository.CategoryRepository;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory copy of the category dictionary, mapping canonical names to the integer codes
+ * stored on expenses and back. Names are folded before lookup: trimmed, inner whitespace
+ * collapsed, lower-cased, then resolved through property_pilot.categories.aliases
+ * ("homeowners association=hoa,repairs=repair").
+ * <p>
+ * Writers call {@link #register} before saving, which adds unseen names to the table in a
+ * transaction of their own, so a code is never handed out that a rollback could take back.
+ * Loaded on first use with plain JDBC, as that can happen inside a Hibernate conversion.
+ */
+@Service
+public class CategoryDictionary {
+
+    private static final Logger log = LoggerFactory.getLogger(CategoryDictionary.class);
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${property_pilot.categories.aliases:}")
+    private String aliasSpec;
+
+    private final Map<String, String> aliases = new HashMap<>();
+
+    private TransactionTemplate ownTransaction;
+
+    // Both directions of the dictionary; replaced as a whole on reload
+    private record Entries(Map<String, Integer> codes, Map<Integer, String> names) {
+    }
+
+    private volatile Entries entries;
+
+    @PostConstruct
+    void init() {
+        for (String pair : aliasSpec.split(",")) {
+            if (pair.isBlank()) {
+                continue;
+            }
+            String[] parts = pair.split("=", 2);
+            if (parts.length != 2 || parts[0].isBlank() || parts[1].isBlank()) {
+                throw new IllegalArgumentException("Category alias must be alias=name: " + pair);
+            }
+            aliases.put(normalize(parts[0]), normalize(parts[1]));
+        }
+        ownTransaction = new TransactionTemplate(transactionManager);
+        ownTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Rereads the table, e.g. after a restore replaced it.
+     */
+    public synchronized void reload() {
+        Entries fresh = new Entries(new ConcurrentHashMap<>(), new ConcurrentHashMap<>());
+        jdbcTemplate.query("SELECT id, name FROM categories", (RowCallbackHandler) rs -> {
+            fresh.codes().put(rs.getString(2), rs.getInt(1));
+            fresh.names().put(rs.getInt(1), rs.getString(2));
+        });
+        entries = fresh;
+    }
+
+    private Entries entries() {
+        Entries current = entries;
+        if (current == null) {
+            synchronized (this) {
+                if (entries == null) {
+                    reload();
+                }
+                current = entries;
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Folds a category as entered into its canonical name. Null stays null.
+     */
+    public String fold(String category) {
+        if (category == null) {
+            return null;
+        }
+        String name = normalize(category);
+        return aliases.getOrDefault(name, name);
+    }
+
+    private static String normalize(String category) {
+        return WHITESPACE.matcher(category.strip()).replaceAll(" ").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Returns the canonical name of a category as entered, adding it to the dictionary if it is new.
+     */
+    public String register(String category) {
+        String name = fold(category);
+        if (name == null || entries().codes().containsKey(name)) {
+            return name;
+        }
+        synchronized (this) {
+            Entries current = entries();
+            if (!current.codes().containsKey(name)) {
+                Category saved = ownTransaction.execute(status -> categoryRepository.save(new Category(name)));
+                current.names().put(saved.getId(), name);
+                current.codes().put(name, saved.getId());
+                log.info("New expense category '{}' with code {}", name, saved.getId());
+            }
+        }
+        return name;
+    }
+
+    /**
+     * Code of a category as entered, adding it to the dictionary if it is new.
+     */
+    public Integer code(String category) {
+        String name = register(category);
+        return name == null ? null : entries().codes().get(name);
+    }
+
+    /**
+     * Code of a category as entered, or null if the dictionary does not have it.
+     */
+    public Integer find(String category) {
+        if (category == null) {
+            return null;
+        }
+        Map<String, Integer> codes = entries().codes();
+        // Names read back from the ledger are already canonical; skip folding them
+        Integer code = codes.get(category);
+        return code != null ? code : codes.get(fold(category));
+    }
+
+    /**
+     * Canonical name for a code. Codes written behind the dictionary's back trigger one reread.
+     */
+    public String name(int code) {
+        String name = entries().names().get(code);
+        if (name == null) {
+            reload();
+            name = entries().names().get(code);
+        }
+        return name;
+    }
+}
@@ -0,0 +1,115 @@
+package property_pilot.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Moves a ledger written before the category dictionary onto it: every distinct category
+ * text is folded into the dictionary, expenses get the code in category_id in one pass, the
+ * text column is dropped, and the monthly rollup is recreated keyed by code.
+ * A no-op once done. Runs before the other startup work, and after a restore, since an older
+ * snapshot brings the old schema back.
+ */
+@Service
+public class CategoryMigrationService {
+
+    private static final Logger log = LoggerFactory.getLogger(CategoryMigrationService.class);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private CategoryDictionary categoryDictionary;
+
+    @Autowired
+    private MonthlyTotalsService monthlyTotalsService;
+
+    /**
+     * Outcome of a migration run: distinct texts found, the canonical categories they folded
+     * into, and expenses updated.
+     */
+    public record Result(int texts, int categories, long expenses) {
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void migrateOnStartup() {
+        Result result = migrate();
+        if (result.texts() > 0) {
+            log.info("Category migration: {}", result);
+        }
+    }
+
+    /**
+     * Migrates the expenses table and the rollup if either still has a category text column,
+     * then reloads the dictionary.
+     */
+    public synchronized Result migrate() {
+        boolean legacyExpenses = hasColumn("EXPENSES", "CATEGORY");
+        boolean legacyRollup = hasColumn("EXPENSE_MONTHLY_TOTALS", "CATEGORY");
+        // Same definition Hibernate generates for Category
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS categories (id INTEGER GENERATED BY DEFAULT AS IDENTITY,"
+                + " name VARCHAR(255) NOT NULL UNIQUE, PRIMARY KEY (id))");
+        categoryDictionary.reload();
+        if (!legacyExpenses && !legacyRollup) {
+            return new Result(0, 0, 0);
+        }
+
+        List<String> texts = legacyExpenses
+                ? jdbcTemplate.queryForList("SELECT DISTINCT category FROM expenses", String.class)
+                : List.of();
+        // Registered first, each in its own transaction, so the codes exist whatever happens below
+        List<Object[]> mapping = new ArrayList<>(texts.size());
+        for (String text : texts) {
+            mapping.add(new Object[]{text, categoryDictionary.code(text)});
+        }
+        int categories = (int) mapping.stream().map(row -> row[1]).distinct().count();
+
+        Long expenses = transactionTemplate.execute(status -> {
+            long updated = 0;
+            if (legacyExpenses) {
+                jdbcTemplate.execute("ALTER TABLE expenses ADD COLUMN IF NOT EXISTS category_id INTEGER");
+                jdbcTemplate.execute("CREATE LOCAL TEMPORARY TABLE category_codes"
+                        + " (text VARCHAR(255) PRIMARY KEY, code INTEGER NOT NULL)");
+                jdbcTemplate.batchUpdate("INSERT INTO category_codes (text, code) VALUES (?, ?)", mapping);
+                updated = jdbcTemplate.update("UPDATE expenses e SET category_id ="
+                        + " (SELECT m.code FROM category_codes m WHERE m.text = e.category)");
+                jdbcTemplate.execute("DROP TABLE category_codes");
+                jdbcTemplate.execute("ALTER TABLE expenses ALTER COLUMN category_id SET NOT NULL");
+                jdbcTemplate.execute("ALTER TABLE expenses DROP COLUMN category");
+            }
+            if (legacyRollup) {
+                // Buckets keyed by text may merge once folded; recreate and refill rather than convert
+                jdbcTemplate.execute("DROP TABLE expense_monthly_totals");
+                jdbcTemplate.execute("CREATE TABLE expense_monthly_totals (property_id BIGINT NOT NULL,"
+                        + " expense_month VARCHAR(7) NOT NULL, category_id INTEGER NOT NULL,"
+                        + " total NUMERIC(38, 2) NOT NULL, expense_count BIGINT NOT NULL,"
+                        + " PRIMARY KEY (property_id, expense_month, category_id))");
+            }
+            return updated;
+        });
+        monthlyTotalsService.rebuild();
+        return new Result(texts.size(), categories, expenses);
+    }
+
+    private boolean hasColumn(String table, String column) {
+        Integer count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM INFORMATION_SCHEMA.COLUMNS"
+                + " WHERE TABLE_SCHEMA = CURRENT_SCHEMA AND TABLE_NAME = ? AND COLUMN_NAME = ?",
+                Integer.class, table, column);
+        return count != null && count > 0;
+    }
+}
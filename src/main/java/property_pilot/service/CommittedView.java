@@ -0,0 +1,100 @@
+package property_pilot.service;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * An in-memory copy of database state, kept current by changes that are applied once the
+ * writing transaction commits. A rebuild loads a fresh copy while reads keep being served from
+ * the old one; changes committed meanwhile are recorded and replayed onto the fresh copy
+ * before it replaces the old one, so none is lost whatever the load saw of them.
+ * <p>
+ * Changes must be safe to apply twice, as one the load already picked up is replayed anyway.
+ */
+final class CommittedView<T> {
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Guarded by lock
+    private T current;
+
+    // Guarded by lock; non-null while a rebuild is loading
+    private List<Consumer<T>> pendingChanges;
+
+    CommittedView(T initial) {
+        this.current = initial;
+    }
+
+    /**
+     * Applies the change once the caller's transaction commits, or right away outside one.
+     */
+    void afterCommit(Consumer<T> change) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            apply(change);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                apply(change);
+            }
+        });
+    }
+
+    /**
+     * Loads a fresh copy and swaps it in. Rebuilds run one at a time; if the load fails the
+     * current copy stays.
+     */
+    synchronized void rebuild(Supplier<T> loader) {
+        withWriteLock(() -> pendingChanges = new ArrayList<>());
+        T fresh;
+        try {
+            fresh = loader.get();
+        } catch (RuntimeException e) {
+            withWriteLock(() -> pendingChanges = null);
+            throw e;
+        }
+        withWriteLock(() -> {
+            pendingChanges.forEach(change -> change.accept(fresh));
+            pendingChanges = null;
+            current = fresh;
+        });
+    }
+
+    /**
+     * Runs the query against the current copy, holding off changes until it returns.
+     */
+    <R> R read(Function<T, R> query) {
+        lock.readLock().lock();
+        try {
+            return query.apply(current);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void apply(Consumer<T> change) {
+        withWriteLock(() -> {
+            change.accept(current);
+            if (pendingChanges != null) {
+                pendingChanges.add(change);
+            }
+        });
+    }
+
+    private void withWriteLock(Runnable action) {
+        lock.writeLock().lock();
+        try {
+            action.run();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
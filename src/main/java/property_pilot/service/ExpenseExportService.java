@@ -0,0 +1,113 @@
+package property_pilot.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import property_pilot.model.Expense;
+import property_pilot.repository.ExpenseRepository;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Streams expenses from the database straight to an output stream as NDJSON or CSV.
+ * Each row is detached once written so the persistence context never grows with the export.
+ */
+@Service
+public class ExpenseExportService {
+
+    public enum Format { NDJSON, CSV }
+
+    public static final String CSV_HEADER = "id,date,propertyId,category,amount,description,receiptPath";
+
+    @Autowired
+    private ExpenseRepository expenseRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Writes every expense matching the filters (each may be null) to the output stream.
+     * Returns the number of rows written.
+     */
+    @Transactional(readOnly = true)
+    public long export(Long propertyId, LocalDate startDate, LocalDate endDate,
+                       Format format, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        ObjectWriter jsonWriter = objectMapper.writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+        if (format == Format.CSV) {
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+        }
+
+        long count = 0;
+        try (Stream<Expense> rows = expenseRepository.streamFiltered(propertyId, startDate, endDate)) {
+            Iterator<Expense> it = rows.iterator();
+            while (it.hasNext()) {
+                Expense expense = it.next();
+                if (format == Format.CSV) {
+                    writeCsvRow(writer, expense);
+                } else {
+                    jsonWriter.writeValue(writer, expense);
+                    writer.write('\n');
+                }
+                entityManager.detach(expense);
+                count++;
+            }
+        }
+
+        writer.flush();
+        return count;
+    }
+
+    /**
+     * Writes one expense as a CSV line matching {@link #CSV_HEADER}.
+     */
+    public static void writeCsvRow(Writer writer, Expense expense) throws IOException {
+        writer.write(String.valueOf(expense.getId()));
+        writer.write(',');
+        writer.write(expense.getDate().toString());
+        writer.write(',');
+        writer.write(String.valueOf(expense.getProperty().getId()));
+        writer.write(',');
+        writer.write(csvField(expense.getCategory()));
+        writer.write(',');
+        writer.write(expense.getAmount().toPlainString());
+        writer.write(',');
+        writer.write(csvField(expense.getDescription()));
+        writer.write(',');
+        writer.write(csvField(expense.getReceiptPath()));
+        writer.write('\n');
+    }
+
+    /**
+     * Quotes a CSV field when it contains a delimiter, quote or line break.
+     */
+    private static String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0
+                && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
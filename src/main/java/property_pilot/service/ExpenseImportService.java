@@ -0,0 +1,224 @@
+package property_pilot.service;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import property_pilot.model.Expense;
+import property_pilot.model.Property;
+import property_pilot.repository.ExpenseRepository;
+import property_pilot.repository.PropertyRepository;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Writes large numbers of expenses in chunked transactions.
+ * Property ids are checked once per chunk with a single IN query, rows are inserted with
+ * JDBC batching, and the persistence context is cleared after every chunk.
+ * Invalid rows are reported and skipped; they never abort the rest of the import.
+ */
+@Service
+public class ExpenseImportService {
+
+    // Cap on the per-row errors kept in the result; the rejected count is always exact
+    static final int MAX_REPORTED_ERRORS = 1000;
+
+    @Autowired
+    private ExpenseRepository expenseRepository;
+
+    @Autowired
+    private PropertyRepository propertyRepository;
+
+    @Autowired
+    private MonthlyTotalsService monthlyTotalsService;
+
+    @Autowired
+    private ExpenseSearchIndex searchIndex;
+
+    @Autowired
+    private CategoryDictionary categoryDictionary;
+
+    @Autowired
+    private LedgerSnapshot ledgerSnapshot;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${property_pilot.expenses.import-chunk-size:500}")
+    private int chunkSize;
+
+    /**
+     * Imports expenses from a JSON array or an NDJSON stream, in the same shape that
+     * POST /api/expenses accepts. The input is parsed one element at a time.
+     */
+    public ImportResult importJson(InputStream in) throws IOException {
+        Session session = openSession();
+        long row = 0;
+        try (MappingIterator<Expense> it = objectMapper.readerFor(Expense.class).readValues(in)) {
+            while (true) {
+                row++;
+                try {
+                    if (!it.hasNextValue()) {
+                        break;
+                    }
+                    session.add(row, it.nextValue());
+                } catch (JsonMappingException e) {
+                    // Well-formed but unmappable element; the iterator skips past it
+                    session.reject(row, "Invalid expense: " + e.getOriginalMessage());
+                } catch (JsonParseException e) {
+                    // The parser cannot resynchronise after malformed input, so stop here
+                    session.reject(row, "Malformed JSON: " + e.getOriginalMessage());
+                    break;
+                }
+            }
+        }
+        return session.finish();
+    }
+
+    /**
+     * Starts a push-style import. Rows are buffered and written a chunk at a time.
+     */
+    public Session openSession() {
+        return new Session();
+    }
+
+    /**
+     * One running import. Not thread-safe.
+     */
+    public class Session {
+
+        private final List<Expense> pending = new ArrayList<>();
+        private final List<Long> pendingRows = new ArrayList<>();
+        private final Set<Long> knownPropertyIds = new HashSet<>();
+        private final List<ImportResult.RowError> errors = new ArrayList<>();
+        private long inserted;
+        private long rejected;
+
+        private Session() {
+        }
+
+        /**
+         * Queues an expense for insertion. The row number is used only for error reporting.
+         */
+        public void add(long row, Expense expense) {
+            String problem = validate(expense);
+            if (problem != null) {
+                reject(row, problem);
+                return;
+            }
+            expense.setId(null);
+            pending.add(expense);
+            pendingRows.add(row);
+            if (pending.size() >= chunkSize) {
+                flush();
+            }
+        }
+
+        /**
+         * Records a row that could not be turned into an expense.
+         */
+        public void reject(long row, String message) {
+            rejected++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(new ImportResult.RowError(row, message));
+            }
+        }
+
+        /**
+         * Writes any buffered rows and returns the totals.
+         */
+        public ImportResult finish() {
+            flush();
+            return new ImportResult(inserted, rejected, List.copyOf(errors));
+        }
+
+        private void flush() {
+            if (pending.isEmpty()) {
+                return;
+            }
+
+            // Resolve all property ids not seen in earlier chunks with one query
+            Set<Long> unseen = new HashSet<>();
+            for (Expense expense : pending) {
+                Long propertyId = expense.getProperty().getId();
+                if (!knownPropertyIds.contains(propertyId)) {
+                    unseen.add(propertyId);
+                }
+            }
+            if (!unseen.isEmpty()) {
+                knownPropertyIds.addAll(propertyRepository.findExistingIds(unseen));
+            }
+
+            List<Expense> chunk = new ArrayList<>(pending.size());
+            for (int i = 0; i < pending.size(); i++) {
+                Expense expense = pending.get(i);
+                if (knownPropertyIds.contains(expense.getProperty().getId())) {
+                    chunk.add(expense);
+                } else {
+                    reject(pendingRows.get(i), "Unknown property id " + expense.getProperty().getId());
+                }
+            }
+            pending.clear();
+            pendingRows.clear();
+
+            // New categories are added to the dictionary before, not inside, the chunk's transaction
+            for (Expense expense : chunk) {
+                expense.setCategory(categoryDictionary.register(expense.getCategory()));
+            }
+
+            transactionTemplate.executeWithoutResult(status -> {
+                for (Expense expense : chunk) {
+                    // Reference only; no select is issued for the property
+                    expense.setProperty(entityManager.getReference(Property.class, expense.getProperty().getId()));
+                }
+                expenseRepository.saveAll(chunk);
+                monthlyTotalsService.addAll(chunk);
+                searchIndex.addAll(chunk);
+                ledgerSnapshot.addAll(chunk);
+                entityManager.flush();
+                entityManager.clear();
+            });
+            inserted += chunk.size();
+        }
+    }
+
+    /**
+     * Returns why an expense cannot be inserted, or null if it is complete.
+     */
+    private static String validate(Expense expense) {
+        if (expense == null) {
+            return "Empty row";
+        }
+        if (expense.getProperty() == null || expense.getProperty().getId() == null) {
+            return "Missing property id";
+        }
+        if (expense.getDate() == null) {
+            return "Missing date";
+        }
+        if (expense.getCategory() == null || expense.getCategory().isBlank()) {
+            return "Missing category";
+        }
+        if (expense.getAmount() == null) {
+            return "Missing amount";
+        }
+        return null;
+    }
+}
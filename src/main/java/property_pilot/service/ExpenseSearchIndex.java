@@ -0,0 +1,405 @@
+package property_pilot.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+
+import property_pilot.model.Expense;
+import property_pilot.model.ExpenseHit;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory inverted index over expense categories and descriptions. Queries are answered
+ * without touching the database: each word of the query matches itself and the indexed words
+ * it is a prefix of, property and date filters are checked against columns held next to the
+ * postings, and hits are ranked BM25-style with whole-word and all-words matches first.
+ * <p>
+ * Built from the expenses table when the application is ready and kept current by
+ * {@link ExpenseService} and the importers, which call in from their transactions; changes are
+ * applied once the transaction commits. Deletes leave a tombstone until the next rebuild.
+ * Writers that bypass JPA (restore, the synthetic data generator) call {@link #rebuild()}.
+ */
+@Service
+public class ExpenseSearchIndex implements MeterBinder {
+
+    private static final Logger log = LoggerFactory.getLogger(ExpenseSearchIndex.class);
+
+    private static final int FETCH_SIZE = 10_000;
+
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    // Ignored in queries unless the query has nothing else
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "an", "and", "at", "for", "from", "in", "of", "on", "or", "the", "to", "with");
+
+    // A word in the category counts as much as this many occurrences in the description
+    private static final int CATEGORY_WEIGHT = 2;
+
+    // BM25 term-frequency saturation
+    private static final double K1 = 1.2;
+
+    // Share of the score a prefix match earns compared to the whole word
+    private static final double PREFIX_FACTOR = 0.7;
+
+    // Caps the words one short prefix such as "r" can expand to, taken in alphabetical order
+    private static final int MAX_EXPANSIONS = 64;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private CategoryDictionary categoryDictionary;
+
+    private final CommittedView<Segment> view = new CommittedView<>(new Segment(0));
+
+    private volatile long rebuildMillis;
+    private volatile Instant builtAt;
+
+    /**
+     * Size of the index. Memory is an estimate from object counts and string lengths, not a heap walk.
+     */
+    public record Stats(int documents, int deleted, int terms, long postings, long estimatedBytes,
+                        long rebuildMillis, Instant builtAt) {
+    }
+
+    // The indexed fields of one expense, copied so the entity is not held on to
+    private record Document(long id, long propertyId, int day, String category, BigDecimal amount,
+                            String description) {
+
+        static Document of(Expense expense) {
+            return new Document(expense.getId(), expense.getProperty().getId(),
+                    (int) expense.getDate().toEpochDay(), expense.getCategory(), expense.getAmount(),
+                    expense.getDescription());
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("expenses.search.index.documents", this, index -> index.stats().documents())
+                .description("Live expenses in the full-text index")
+                .register(registry);
+        Gauge.builder("expenses.search.index.terms", this, index -> index.stats().terms())
+                .description("Distinct words in the full-text index")
+                .register(registry);
+        Gauge.builder("expenses.search.index.memory", this, index -> index.stats().estimatedBytes())
+                .baseUnit("bytes")
+                .description("Estimated heap held by the full-text index")
+                .register(registry);
+        TimeGauge.builder("expenses.search.index.rebuild.time", this, TimeUnit.MILLISECONDS,
+                        index -> index.rebuildMillis)
+                .description("Duration of the last full-text index rebuild")
+                .register(registry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        rebuild();
+    }
+
+    /**
+     * Reads every expense into a new index and swaps it in. Searches keep being served from
+     * the old one until then.
+     */
+    public synchronized Stats rebuild() {
+        long start = System.nanoTime();
+        view.rebuild(this::load);
+        rebuildMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        builtAt = Instant.now();
+        Stats stats = stats();
+        log.info("Search index rebuilt: {}", stats);
+        return stats;
+    }
+
+    private Segment load() {
+        Integer rows = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM expenses", Integer.class);
+        Segment fresh = new Segment(rows == null ? 0 : rows);
+        // Streams the table instead of materializing it
+        JdbcTemplate streaming = new JdbcTemplate(jdbcTemplate.getDataSource());
+        streaming.setFetchSize(FETCH_SIZE);
+        streaming.query("SELECT id, property_id, date, category_id, amount, description FROM expenses ORDER BY id",
+                (RowCallbackHandler) rs -> {
+                    fresh.add(new Document(rs.getLong(1), rs.getLong(2),
+                            (int) rs.getObject(3, LocalDate.class).toEpochDay(), categoryDictionary.name(rs.getInt(4)),
+                            rs.getBigDecimal(5), rs.getString(6)));
+                });
+        return fresh;
+    }
+
+    /**
+     * Indexes a newly saved expense once the caller's transaction commits.
+     */
+    public void add(Expense expense) {
+        Document document = Document.of(expense);
+        view.afterCommit(s -> s.add(document));
+    }
+
+    /**
+     * Indexes newly saved expenses once the caller's transaction commits.
+     */
+    public void addAll(Collection<Expense> expenses) {
+        List<Document> documents = expenses.stream().map(Document::of).toList();
+        view.afterCommit(s -> documents.forEach(s::add));
+    }
+
+    /**
+     * Drops an expense from results once the caller's transaction commits.
+     */
+    public void remove(Long id) {
+        view.afterCommit(s -> s.remove(id));
+    }
+
+    /**
+     * Drops all of a property's expenses from results once the caller's transaction commits.
+     */
+    public void removeProperty(Long propertyId) {
+        view.afterCommit(s -> s.removeProperty(propertyId));
+    }
+
+    /**
+     * Returns up to {@code limit} expenses matching any word of the query, best first.
+     * Property and dates are optional filters; the date range is inclusive.
+     */
+    public List<ExpenseHit> search(String query, Long propertyId, LocalDate start, LocalDate end, int limit) {
+        List<String> words = queryWords(query);
+        if (words.isEmpty() || limit < 1) {
+            return List.of();
+        }
+        int firstDay = start == null ? Integer.MIN_VALUE : (int) start.toEpochDay();
+        int lastDay = end == null ? Integer.MAX_VALUE : (int) end.toEpochDay();
+
+        return view.read(s -> {
+            // Per document: summed score and number of query words matched
+            Map<Integer, double[]> totals = new HashMap<>();
+            for (String word : words) {
+                // A document matching several expansions of one word counts the best of them once
+                Map<Integer, Double> best = new HashMap<>();
+                int expansions = 0;
+                for (Map.Entry<String, Postings> entry : s.terms.tailMap(word, true).entrySet()) {
+                    String term = entry.getKey();
+                    if (!term.startsWith(word) || expansions++ == MAX_EXPANSIONS) {
+                        break;
+                    }
+                    Postings postings = entry.getValue();
+                    double factor = term.length() == word.length() ? 1 : PREFIX_FACTOR;
+                    double idf = Math.log(1 + (s.size - postings.size + 0.5) / (postings.size + 0.5));
+                    for (int i = 0; i < postings.size; i++) {
+                        int doc = postings.docs[i];
+                        if (s.deleted.get(doc) || !s.matches(doc, propertyId, firstDay, lastDay)) {
+                            continue;
+                        }
+                        double weight = postings.weights[i];
+                        best.merge(doc, factor * idf * weight * (K1 + 1) / (weight + K1), Math::max);
+                    }
+                }
+                best.forEach((doc, score) -> {
+                    double[] total = totals.computeIfAbsent(doc, d -> new double[2]);
+                    total[0] += score;
+                    total[1]++;
+                });
+            }
+
+            // Keeps the best hits with the weakest on top; ties go to the newer expense
+            Comparator<ExpenseHit> order = Comparator.comparingDouble(ExpenseHit::score)
+                    .thenComparing(ExpenseHit::date)
+                    .thenComparing(ExpenseHit::id);
+            PriorityQueue<ExpenseHit> top = new PriorityQueue<>(limit + 1, order);
+            totals.forEach((doc, total) -> {
+                // Matching more of the query outweighs matching part of it well
+                double coverage = total[1] / words.size();
+                top.add(s.hit(doc, total[0] * coverage * coverage));
+                if (top.size() > limit) {
+                    top.poll();
+                }
+            });
+            List<ExpenseHit> hits = new ArrayList<>(top);
+            hits.sort(order.reversed());
+            return hits;
+        });
+    }
+
+    public Stats stats() {
+        return view.read(s -> new Stats(s.size - s.deletedCount, s.deletedCount, s.terms.size(), s.postings,
+                s.estimatedBytes(), rebuildMillis, builtAt));
+    }
+
+    /**
+     * Distinct words of a query, stop words dropped unless that leaves nothing.
+     */
+    static List<String> queryWords(String query) {
+        Set<String> words = new LinkedHashSet<>(tokenize(query));
+        List<String> meaningful = words.stream().filter(word -> !STOP_WORDS.contains(word)).toList();
+        return meaningful.isEmpty() ? List.copyOf(words) : meaningful;
+    }
+
+    static List<String> tokenize(String text) {
+        if (text == null) {
+            return List.of();
+        }
+        List<String> words = new ArrayList<>();
+        for (String word : NON_WORD.split(text.toLowerCase(Locale.ROOT))) {
+            if (!word.isEmpty()) {
+                words.add(word);
+            }
+        }
+        return words;
+    }
+
+    // Documents containing one word, in ascending order, with the word's weight in each
+    private static final class Postings {
+
+        private int[] docs = new int[2];
+        private byte[] weights = new byte[2];
+        private int size;
+
+        void add(int doc, int weight) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                weights = Arrays.copyOf(weights, size * 2);
+            }
+            docs[size] = doc;
+            weights[size] = (byte) Math.min(weight, Byte.MAX_VALUE);
+            size++;
+        }
+    }
+
+    /**
+     * The index proper: document columns addressed by document number, a tombstone per
+     * deleted document and the sorted word dictionary. Not thread-safe; guarded by the view's lock.
+     */
+    private static final class Segment {
+
+        private long[] ids;
+        private long[] propertyIds;
+        private int[] days;
+        private String[] categories;
+        private BigDecimal[] amounts;
+        private String[] descriptions;
+        private int size;
+
+        private final BitSet deleted = new BitSet();
+        private int deletedCount;
+        private final Map<Long, Integer> docById = new HashMap<>();
+        private final TreeMap<String, Postings> terms = new TreeMap<>();
+        // Categories repeat on every row; one shared string each
+        private final Map<String, String> categoryNames = new HashMap<>();
+        private long postings;
+        private long descriptionChars;
+        private int descriptionCount;
+
+        Segment(int capacity) {
+            allocate(Math.max(capacity, 16));
+        }
+
+        private void allocate(int capacity) {
+            ids = ids == null ? new long[capacity] : Arrays.copyOf(ids, capacity);
+            propertyIds = propertyIds == null ? new long[capacity] : Arrays.copyOf(propertyIds, capacity);
+            days = days == null ? new int[capacity] : Arrays.copyOf(days, capacity);
+            categories = categories == null ? new String[capacity] : Arrays.copyOf(categories, capacity);
+            amounts = amounts == null ? new BigDecimal[capacity] : Arrays.copyOf(amounts, capacity);
+            descriptions = descriptions == null ? new String[capacity] : Arrays.copyOf(descriptions, capacity);
+        }
+
+        void add(Document document) {
+            remove(document.id());
+            if (size == ids.length) {
+                allocate(size + (size >> 1));
+            }
+            int doc = size++;
+            ids[doc] = document.id();
+            propertyIds[doc] = document.propertyId();
+            days[doc] = document.day();
+            categories[doc] = categoryNames.computeIfAbsent(document.category(), name -> name);
+            amounts[doc] = document.amount();
+            descriptions[doc] = document.description();
+            docById.put(document.id(), doc);
+            if (document.description() != null) {
+                descriptionChars += document.description().length();
+                descriptionCount++;
+            }
+
+            Map<String, Integer> weights = new HashMap<>();
+            for (String word : tokenize(document.category())) {
+                weights.merge(word, CATEGORY_WEIGHT, Integer::sum);
+            }
+            for (String word : tokenize(document.description())) {
+                weights.merge(word, 1, Integer::sum);
+            }
+            weights.forEach((word, weight) -> {
+                terms.computeIfAbsent(word, w -> new Postings()).add(doc, weight);
+                postings++;
+            });
+        }
+
+        void remove(long id) {
+            Integer doc = docById.remove(id);
+            if (doc != null) {
+                deleted.set(doc);
+                deletedCount++;
+            }
+        }
+
+        void removeProperty(long propertyId) {
+            for (int doc = 0; doc < size; doc++) {
+                if (propertyIds[doc] == propertyId && !deleted.get(doc)) {
+                    docById.remove(ids[doc]);
+                    deleted.set(doc);
+                    deletedCount++;
+                }
+            }
+        }
+
+        boolean matches(int doc, Long propertyId, int firstDay, int lastDay) {
+            return (propertyId == null || propertyIds[doc] == propertyId)
+                    && days[doc] >= firstDay && days[doc] <= lastDay;
+        }
+
+        ExpenseHit hit(int doc, double score) {
+            return new ExpenseHit(ids[doc], propertyIds[doc], LocalDate.ofEpochDay(days[doc]), categories[doc],
+                    amounts[doc], descriptions[doc], score);
+        }
+
+        /**
+         * Rough heap footprint, assuming compressed references: the column arrays at capacity,
+         * a BigDecimal per amount, each description string, the id map, and per word a
+         * dictionary entry, its string and its postings arrays.
+         */
+        long estimatedBytes() {
+            long bytes = (long) ids.length * (8 + 8 + 4 + 4 + 4 + 4);
+            bytes += (long) size * 40;
+            bytes += descriptionCount * 40L + descriptionChars;
+            bytes += docById.size() * 72L;
+            bytes += deleted.size() / 8;
+            for (Map.Entry<String, Postings> entry : terms.entrySet()) {
+                bytes += 40 + 40 + entry.getKey().length() + 24 + 32 + entry.getValue().docs.length * 5L;
+            }
+            return bytes;
+        }
+    }
+}
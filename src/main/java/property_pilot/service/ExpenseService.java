@@ -0,0 +1,77 @@
+package property_pilot.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import property_pilot.model.Expense;
+import property_pilot.repository.ExpenseRepository;
+
+import java.io.IOException;
+import java.util.Optional;
+
+/**
+ * Single-expense writes. Each runs in one transaction together with the
+ * derived data that has to follow the ledger.
+ */
+@Service
+public class ExpenseService {
+
+    @Autowired
+    private ExpenseRepository expenseRepository;
+
+    @Autowired
+    private MonthlyTotalsService monthlyTotalsService;
+
+    @Autowired
+    private ReceiptService receiptService;
+
+    @Autowired
+    private ExpenseSearchIndex searchIndex;
+
+    @Autowired
+    private CategoryDictionary categoryDictionary;
+
+    @Autowired
+    private LedgerSnapshot ledgerSnapshot;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * Saves a new expense whose property has already been attached.
+     * The category is folded to its canonical name first. A new one is added to the dictionary
+     * before, not inside, the expense's transaction, so a create never holds two connections.
+     */
+    public Expense create(Expense expense) {
+        expense.setCategory(categoryDictionary.register(expense.getCategory()));
+        return transactionTemplate.execute(status -> {
+            Expense saved = expenseRepository.save(expense);
+            monthlyTotalsService.add(saved);
+            searchIndex.add(saved);
+            ledgerSnapshot.add(saved);
+            return saved;
+        });
+    }
+
+    /**
+     * Deletes an expense and releases its receipt blob.
+     * Returns the removed expense, or empty if it did not exist.
+     */
+    @Transactional
+    public Optional<Expense> delete(Long id) throws IOException {
+        Optional<Expense> expense = expenseRepository.findById(id);
+        if (expense.isPresent()) {
+            Expense e = expense.get();
+            expenseRepository.delete(e);
+            monthlyTotalsService.subtract(e);
+            searchIndex.remove(e.getId());
+            ledgerSnapshot.remove(e.getId());
+            if (e.getReceiptHash() != null) {
+                receiptService.release(e.getReceiptHash());
+            }
+        }
+        return expense;
+    }
+}
@@ -1,75 +1,427 @@
 package property_pilot.service;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
-import org.springframework.web.multipart.MultipartFile;
-
-import property_pilot.model.Expense;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MaxUploadSizeExceededException;
 
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
-import java.text.Normalizer;
-import java.util.regex.Pattern;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 /**
- * Handles saving receipt files to disk.
+ * Content-addressed receipt storage. Every distinct file is kept once, at
+ * blobs/{aa}/{bb}/{sha256} under the base directory, however many expenses use it.
+ * Uploads are staged next to the store, hashed and measured while they are copied, and renamed
+ * into place, so each upload is written to disk exactly once.
+ * With property_pilot.receipts.compression=gzip, compressible uploads are gzipped in that same
+ * pass and stored as {sha256}.gz; the suffix records the codec, and the hash is always of the
+ * original bytes. Reference counting lives in {@link ReceiptService}.
+ * Each storage operation is timed as receipts.storage{operation} and byte flows are counted as
+ * receipts.storage.bytes{direction}; staging splits time waiting on the upload body (receive)
+ * from hashing and writing it (write), to tell a slow client from a slow disk.
  */
 @Service
 public class FileStorageService {
 
+    static final String BLOB_DIR = "blobs";
+
+    /**
+     * How a blob is encoded on disk, marked by its file name suffix.
+     */
+    public enum Codec {
+        NONE(""),
+        GZIP(".gz");
+
+        private final String suffix;
+
+        Codec(String suffix) {
+            this.suffix = suffix;
+        }
+
+        public String suffix() {
+            return suffix;
+        }
+
+        /**
+         * The codec a stored path was written with.
+         */
+        public static Codec of(String path) {
+            return path.endsWith(GZIP.suffix) ? GZIP : NONE;
+        }
+    }
+
+    // Formats that are compressed already; gzip would spend CPU to save nothing. Images are never
+    // compressed, which also lets thumbnails be decoded straight from the stored file
+    private static final List<String> INCOMPRESSIBLE_PREFIXES = List.of(
+            "image/", "video/", "audio/",
+            "application/zip", "application/gzip", "application/x-7z-compressed", "application/x-rar",
+            "application/vnd.openxmlformats-officedocument.");
+
+    private static final int GZIP_BUFFER_SIZE = 64 * 1024;
+
+    // Same file system as the blobs, so a staged upload is moved with a rename
+    private static final String STAGING_DIR = ".staging";
+
     @Value("${property_pilot.receipts.base-dir}")
     private String baseDir;
 
+    @Value("${property_pilot.receipts.max-upload-size:50MB}")
+    private DataSize maxUploadSize;
+
+    @Value("${property_pilot.receipts.compression:none}")
+    private Codec compression;
+
+    @Value("${property_pilot.receipts.compression-level:6}")
+    private int compressionLevel;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Timer receiveTimer;
+    private Timer writeTimer;
+    private Timer commitTimer;
+    private Timer downloadTimer;
+    private Timer deleteTimer;
+    private Counter bytesReceived;
+    private Counter bytesWritten;
+    private Counter bytesServed;
+    private Counter deduplicated;
+
+    @PostConstruct
+    void registerMeters() {
+        receiveTimer = operationTimer("receive");
+        writeTimer = operationTimer("write");
+        commitTimer = operationTimer("commit");
+        downloadTimer = operationTimer("download");
+        deleteTimer = operationTimer("delete");
+        bytesReceived = bytesCounter("received");
+        bytesWritten = bytesCounter("written");
+        bytesServed = bytesCounter("served");
+        deduplicated = Counter.builder("receipts.storage.deduplicated")
+                .description("Uploads whose content was already stored")
+                .register(meterRegistry);
+    }
+
+    /**
+     * An upload written to the staging directory: temp file, hex SHA-256 and size in bytes
+     * of the original content, and the codec the temp file is written with.
+     */
+    public record StagedFile(Path file, String sha256, long size, Codec codec) {
+    }
+
+    /**
+     * Largest receipt accepted, in bytes.
+     */
+    public long getMaxUploadSize() {
+        return maxUploadSize.toBytes();
+    }
+
+    /**
+     * Copies the stream to a staging file, computing its SHA-256 and size in the same pass,
+     * and compressing it when compression is on and the content type is worth it.
+     * Throws MaxUploadSizeExceededException as soon as the stream passes the upload limit.
+     */
+    public StagedFile stage(InputStream in, String contentType) throws IOException {
+        Path stagingDir = Path.of(baseDir, STAGING_DIR);
+        Files.createDirectories(stagingDir);
+        Path temp = Files.createTempFile(stagingDir, "upload-", ".tmp");
+        Codec codec = compression != Codec.NONE && isCompressible(contentType) ? compression : Codec.NONE;
+        MessageDigest digest = sha256();
+        SizeLimitedInputStream limited = new SizeLimitedInputStream(in, getMaxUploadSize());
+        long start = System.nanoTime();
+        try (InputStream hashing = new DigestInputStream(limited, digest);
+             OutputStream out = encode(Files.newOutputStream(temp), codec)) {
+            long size = hashing.transferTo(out);
+            bytesReceived.increment(size);
+            return new StagedFile(temp, HexFormat.of().formatHex(digest.digest()), size, codec);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        } finally {
+            receiveTimer.record(limited.readNanos, TimeUnit.NANOSECONDS);
+            writeTimer.record(System.nanoTime() - start - limited.readNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Moves a staged file to its blob path, or drops it if the same content is already stored
+     * (under either codec). Returns the blob's path relative to the base directory.
+     * Callers must hold the blob's reference row, so a concurrent release cannot delete the
+     * blob between this check and their commit.
+     */
+    public String commit(StagedFile staged) throws IOException {
+        long start = System.nanoTime();
+        try {
+            String existing = findBlob(staged.sha256());
+            if (existing != null) {
+                Files.deleteIfExists(staged.file());
+                deduplicated.increment();
+                return existing;
+            }
+            String relativePath = blobPath(staged.sha256()) + staged.codec().suffix();
+            Path target = resolve(relativePath);
+            Files.createDirectories(target.getParent());
+            long storedSize = Files.size(staged.file());
+            try {
+                Files.move(staged.file(), target, StandardCopyOption.ATOMIC_MOVE);
+                bytesWritten.increment(storedSize);
+            } catch (FileAlreadyExistsException e) {
+                // An identical upload got there first
+                Files.deleteIfExists(staged.file());
+                deduplicated.increment();
+            }
+            return relativePath;
+        } finally {
+            commitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Path of the stored blob for a hash, relative to the base directory, or null if none.
+     */
+    public String findBlob(String sha256) {
+        for (Codec codec : Codec.values()) {
+            String relativePath = blobPath(sha256) + codec.suffix();
+            if (Files.exists(resolve(relativePath))) {
+                return relativePath;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Opens a stored receipt for reading its original bytes, decompressing if needed.
+     */
+    public InputStream openReceipt(String relativePath) throws IOException {
+        InputStream in = Files.newInputStream(resolve(relativePath));
+        return Codec.of(relativePath) == Codec.GZIP ? new GZIPInputStream(in, GZIP_BUFFER_SIZE) : in;
+    }
+
+    /**
+     * Removes a staged file that was not committed. Safe to call after commit.
+     */
+    public void discard(StagedFile staged) throws IOException {
+        Files.deleteIfExists(staged.file());
+    }
+
+    /**
+     * Makes an existing file available as a blob without copying it: the blob is a hard link
+     * to the file (or a copy where links are not supported). The original is left in place.
+     * Returns false if the blob was already stored.
+     */
+    public boolean adopt(Path file, String sha256) throws IOException {
+        if (findBlob(sha256) != null) {
+            return false;
+        }
+        Path target = resolve(blobPath(sha256));
+        Files.createDirectories(target.getParent());
+        try {
+            Files.createLink(target, file);
+        } catch (UnsupportedOperationException e) {
+            Files.copy(file, target);
+        } catch (FileAlreadyExistsException e) {
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Deletes a blob, its thumbnail and any of its fan-out directories left empty.
+     */
+    public void deleteBlob(String sha256) throws IOException {
+        long start = System.nanoTime();
+        try {
+            Path blob = resolve(blobPath(sha256));
+            for (Codec codec : Codec.values()) {
+                Files.deleteIfExists(resolve(blobPath(sha256) + codec.suffix()));
+            }
+            Files.deleteIfExists(resolve(blobPath(sha256) + ThumbnailService.THUMBNAIL_SUFFIX));
+            Files.deleteIfExists(resolve(blobPath(sha256) + ThumbnailService.FAILED_SUFFIX));
+            deleteEmptyParents(blob, Path.of(baseDir, BLOB_DIR));
+        } finally {
+            deleteTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
     /**
-     * Stores a file under /{propertyId}_{propertySlug}/{expenseId}_{expenseSlug}/
-     * Returns the relative path to store in the DB.
+     * Records a receipt download: bytes sent and the time spent reading and sending them.
      */
-    public String storeFile(Expense expense, MultipartFile file) throws IOException {
-        // Generate slugs
-        String propertySlug = toSlug(expense.getProperty().getName());
-        String expenseSlug = toSlug(expense.getCategory() + "_" + expense.getDate().toString());
+    public void recordDownload(long bytes, long nanos) {
+        bytesServed.increment(bytes);
+        downloadTimer.record(nanos, TimeUnit.NANOSECONDS);
+    }
 
-        // Build directory path
-        Path dirPath = Path.of(
-                baseDir,
-                expense.getProperty().getId() + "_" + propertySlug,
-                expense.getId() + "_" + expenseSlug
-        );
+    /**
+     * Deletes the directories above a removed file while they are empty, stopping at root.
+     */
+    public void deleteEmptyParents(Path file, Path root) throws IOException {
+        for (Path dir = file.getParent(); dir != null && dir.startsWith(root) && !dir.equals(root);
+             dir = dir.getParent()) {
+            try {
+                Files.deleteIfExists(dir);
+            } catch (DirectoryNotEmptyException e) {
+                return;
+            }
+        }
+    }
 
-        // Create directories if needed
-        Files.createDirectories(dirPath);
+    /**
+     * SHA-256 of a file on disk, as lower-case hex.
+     */
+    public String hash(Path file) throws IOException {
+        MessageDigest digest = sha256();
+        try (InputStream in = new DigestInputStream(Files.newInputStream(file), digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
 
-        // Clean filename to prevent path traversal and nested folders
-        String filenameOnly = Path.of(file.getOriginalFilename()).getFileName().toString();
-        String fileName = StringUtils.cleanPath(filenameOnly);
+    /**
+     * Path of a blob relative to the base directory, as stored on the expense.
+     */
+    public static String blobPath(String sha256) {
+        return BLOB_DIR + "/" + sha256.substring(0, 2) + "/" + sha256.substring(2, 4) + "/" + sha256;
+    }
 
-        // Destination path
-        Path targetPath = dirPath.resolve(fileName);
+    /**
+     * Resolves a stored relative path against the base directory.
+     */
+    public Path resolve(String relativePath) {
+        return Path.of(baseDir, relativePath);
+    }
 
-        // Save the file
-        try (InputStream inputStream = file.getInputStream()) {
-            Files.copy(inputStream, targetPath, StandardCopyOption.REPLACE_EXISTING);
+    /**
+     * Strips any directories from an uploaded file name to prevent path traversal.
+     */
+    public static String cleanFileName(String originalFilename) {
+        if (originalFilename == null || originalFilename.isBlank()) {
+            return "receipt";
         }
+        Path name = Path.of(StringUtils.cleanPath(originalFilename)).getFileName();
+        return name == null ? "receipt" : name.toString();
+    }
 
-        // Return relative path (e.g., "1_Main_Street_Duplex/2_July_Mortgage/receipt.pdf")
-        return expense.getProperty().getId() + "_" + propertySlug + "/"
-                + expense.getId() + "_" + expenseSlug + "/"
-                + fileName;
+    /**
+     * Determines a receipt's MIME type from its file name: the platform's table first, then
+     * Spring's, then the type the client declared, then application/octet-stream.
+     */
+    public String detectContentType(String fileName, String declaredType) throws IOException {
+        String contentType = Files.probeContentType(Path.of(fileName));
+        if (contentType == null) {
+            contentType = MediaTypeFactory.getMediaType(fileName)
+                    .map(MediaType::toString)
+                    .orElse(null);
+        }
+        if (contentType == null && declaredType != null && !declaredType.isBlank()) {
+            contentType = declaredType;
+        }
+        return contentType == null ? MediaType.APPLICATION_OCTET_STREAM_VALUE : contentType;
     }
 
     /**
-     * Converts text to a filesystem-safe slug.
+     * Fails the read that takes the stream past the limit, so oversized uploads stop early.
+     * Also tallies the time spent blocked on the source.
      */
-    private String toSlug(String input) {
-        String normalized = Normalizer.normalize(input, Normalizer.Form.NFD);
-        String slug = Pattern.compile("\\p{InCombiningDiacriticalMarks}+").matcher(normalized).replaceAll("");
-        // Allow underscores and hyphens
-        slug = slug.replaceAll("[^a-zA-Z0-9\\s_-]", ""); // note the _ and - inside the brackets
-        slug = slug.trim().replaceAll("\\s+", "_");
-        return slug;
+    private static class SizeLimitedInputStream extends FilterInputStream {
+
+        private final long limit;
+        private long count;
+        private long readNanos;
+
+        SizeLimitedInputStream(InputStream in, long limit) {
+            super(in);
+            this.limit = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            long start = System.nanoTime();
+            int b = super.read();
+            readNanos += System.nanoTime() - start;
+            if (b >= 0) {
+                advance(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            long start = System.nanoTime();
+            int n = super.read(b, off, len);
+            readNanos += System.nanoTime() - start;
+            if (n > 0) {
+                advance(n);
+            }
+            return n;
+        }
+
+        private void advance(long n) {
+            count += n;
+            if (count > limit) {
+                throw new MaxUploadSizeExceededException(limit);
+            }
+        }
+    }
+
+    /**
+     * False for formats that are compressed already (and so stored as-is), true otherwise.
+     */
+    public static boolean isCompressible(String contentType) {
+        return contentType != null && INCOMPRESSIBLE_PREFIXES.stream().noneMatch(contentType::startsWith);
+    }
+
+    private Timer operationTimer(String operation) {
+        return Timer.builder("receipts.storage")
+                .tag("operation", operation)
+                .register(meterRegistry);
+    }
+
+    private Counter bytesCounter(String direction) {
+        return Counter.builder("receipts.storage.bytes")
+                .baseUnit("bytes")
+                .tag("direction", direction)
+                .register(meterRegistry);
+    }
+
+    private OutputStream encode(OutputStream out, Codec codec) throws IOException {
+        if (codec != Codec.GZIP) {
+            return out;
+        }
+        return new GZIPOutputStream(out, GZIP_BUFFER_SIZE) {
+            {
+                def.setLevel(compressionLevel);
+            }
+        };
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
     }
 }
@@ -0,0 +1,16 @@
+package property_pilot.service;
+
+import java.util.List;
+
+/**
+ * Outcome of a bulk expense import: how many rows were written, how many were
+ * rejected, and the first rejected rows with the reason for each.
+ */
+public record ImportResult(long inserted, long rejected, List<RowError> errors) {
+
+    /**
+     * A rejected input row. Row numbers are 1-based positions in the source.
+     */
+    public record RowError(long row, String message) {
+    }
+}
@@ -0,0 +1,521 @@
+package property_pilot.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+
+import property_pilot.model.Expense;
+import property_pilot.model.LedgerTotal;
+import property_pilot.model.YearOverYear;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Read-optimized, columnar copy of the expenses table for analytics: one primitive array per
+ * column (epoch-day dates, amounts in cents, dense property numbers, category codes), so a
+ * filtered group-by is a fork-join scan over arrays with no per-row objects.
+ * <p>
+ * Loaded when the application is ready and kept current through a {@link CommittedView}, like
+ * {@link ExpenseSearchIndex}: writers call in from their transactions and the change is applied
+ * after commit; a rebuild replays changes committed while it was loading. Deleted rows keep their slot, marked so no
+ * filter matches them, until the next rebuild.
+ */
+@Service
+public class LedgerSnapshot implements MeterBinder {
+
+    private static final Logger log = LoggerFactory.getLogger(LedgerSnapshot.class);
+
+    private static final int FETCH_SIZE = 10_000;
+
+    // Fewest rows a fork-join task scans itself; below this, splitting costs more than it saves
+    private static final int MIN_LEAF_ROWS = 1 << 16;
+
+    // Each scan task keeps two longs per group
+    private static final int MAX_GROUPS = 1 << 16;
+
+    // Property number of a deleted row
+    private static final int DELETED = -1;
+
+    // Filter value meaning "any"
+    private static final int ANY = -1;
+
+    // Bytes per row across the column arrays
+    private static final int ROW_BYTES = 8 + 4 + 8 + 4 + 4;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private CategoryDictionary categoryDictionary;
+
+    private final CommittedView<Columns> view = new CommittedView<>(new Columns(0));
+
+    private volatile long loadMillis;
+    private volatile Instant builtAt;
+
+    /**
+     * How a query groups its totals over time.
+     */
+    public enum Period { NONE, MONTH, YEAR }
+
+    /**
+     * Size of the snapshot. Memory counts the column arrays at capacity.
+     */
+    public record Stats(int rows, int deleted, int properties, long estimatedBytes, long loadMillis,
+                        Instant builtAt) {
+    }
+
+    // One expense as the snapshot stores it
+    private record Row(long id, long propertyId, int day, int category, long cents) {
+    }
+
+    // A query resolved against the columns: filter values as stored, and the group layout.
+    // periodOfDay maps day - firstDay to the period's offset, or is null when not grouping by period
+    private record Plan(int property, int category, int firstDay, int lastDay, boolean byProperty,
+                        boolean byCategory, int categoryGroups, int[] periodOfDay, int periods, int groups) {
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("analytics.snapshot.rows", this, snapshot -> snapshot.stats().rows())
+                .description("Live expenses in the analytics snapshot")
+                .register(registry);
+        Gauge.builder("analytics.snapshot.memory", this, snapshot -> snapshot.stats().estimatedBytes())
+                .baseUnit("bytes")
+                .description("Heap held by the analytics snapshot's column arrays")
+                .register(registry);
+        TimeGauge.builder("analytics.snapshot.load.time", this, TimeUnit.MILLISECONDS,
+                        snapshot -> snapshot.loadMillis)
+                .description("Duration of the last analytics snapshot load")
+                .register(registry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        rebuild();
+    }
+
+    /**
+     * Reads every expense into new columns and swaps them in. Queries keep being served from
+     * the old ones until then.
+     */
+    public synchronized Stats rebuild() {
+        long start = System.nanoTime();
+        view.rebuild(this::load);
+        loadMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        builtAt = Instant.now();
+        Stats stats = stats();
+        log.info("Analytics snapshot loaded: {}", stats);
+        return stats;
+    }
+
+    private Columns load() {
+        Integer rows = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM expenses", Integer.class);
+        Columns fresh = new Columns(rows == null ? 0 : rows);
+        JdbcTemplate streaming = new JdbcTemplate(jdbcTemplate.getDataSource());
+        streaming.setFetchSize(FETCH_SIZE);
+        streaming.query("SELECT id, property_id, date, category_id, amount FROM expenses ORDER BY id",
+                (RowCallbackHandler) rs -> fresh.add(new Row(rs.getLong(1), rs.getLong(2),
+                        (int) rs.getObject(3, LocalDate.class).toEpochDay(), rs.getInt(4),
+                        cents(rs.getBigDecimal(5)))));
+        return fresh;
+    }
+
+    private Row rowOf(Expense expense) {
+        Integer category = categoryDictionary.find(expense.getCategory());
+        return new Row(expense.getId(), expense.getProperty().getId(), (int) expense.getDate().toEpochDay(),
+                category == null ? 0 : category, cents(expense.getAmount()));
+    }
+
+    private static long cents(BigDecimal amount) {
+        return amount.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+
+    /**
+     * Adds a newly saved expense once the caller's transaction commits.
+     */
+    public void add(Expense expense) {
+        Row row = rowOf(expense);
+        view.afterCommit(c -> c.add(row));
+    }
+
+    /**
+     * Adds newly saved expenses once the caller's transaction commits.
+     */
+    public void addAll(Collection<Expense> expenses) {
+        List<Row> rows = expenses.stream().map(this::rowOf).toList();
+        view.afterCommit(c -> rows.forEach(c::add));
+    }
+
+    /**
+     * Drops an expense once the caller's transaction commits.
+     */
+    public void remove(Long id) {
+        view.afterCommit(c -> c.remove(id));
+    }
+
+    /**
+     * Drops all of a property's expenses once the caller's transaction commits.
+     */
+    public void removeProperty(Long propertyId) {
+        view.afterCommit(c -> c.removeProperty(propertyId));
+    }
+
+    /**
+     * Sums amounts and counts expenses matching the filters, grouped by any of property,
+     * category and month or year. Property, category and dates are optional; the date range is
+     * inclusive. Groups without expenses are left out.
+     *
+     * @throws IllegalArgumentException if the grouping would produce too many groups
+     */
+    public List<LedgerTotal> totals(Long propertyId, String category, LocalDate start, LocalDate end,
+                                    boolean byProperty, boolean byCategory, Period period) {
+        return view.read(c -> {
+            int property = ANY;
+            if (propertyId != null) {
+                Integer number = c.propertyNumbers.get(propertyId);
+                if (number == null) {
+                    return List.of();
+                }
+                property = number;
+            }
+            int categoryCode = ANY;
+            if (category != null) {
+                Integer code = categoryDictionary.find(category);
+                if (code == null) {
+                    return List.of();
+                }
+                categoryCode = code;
+            }
+            int firstDay = start == null ? c.minDay : (int) Math.max(c.minDay, start.toEpochDay());
+            int lastDay = end == null ? c.maxDay : (int) Math.min(c.maxDay, end.toEpochDay());
+            if (c.size == 0 || firstDay > lastDay) {
+                return List.of();
+            }
+
+            int firstPeriod = periodOf(period, firstDay);
+            int periods = periodOf(period, lastDay) - firstPeriod + 1;
+            int categoryGroups = byCategory ? c.maxCategory + 1 : 1;
+            long groups = (long) (byProperty ? c.propertyCount : 1) * categoryGroups * periods;
+            if (groups > MAX_GROUPS) {
+                throw new IllegalArgumentException(
+                        "Query would produce up to " + groups + " groups; narrow the dates or group by less");
+            }
+            int[] periodOfDay = null;
+            if (period != Period.NONE) {
+                // One calendar conversion per day in range instead of one per row
+                periodOfDay = new int[lastDay - firstDay + 1];
+                for (int day = firstDay; day <= lastDay; day++) {
+                    periodOfDay[day - firstDay] = periodOf(period, day) - firstPeriod;
+                }
+            }
+            Plan plan = new Plan(property, categoryCode, firstDay, lastDay, byProperty, byCategory,
+                    categoryGroups, periodOfDay, periods, (int) groups);
+
+            int leafRows = Math.max(MIN_LEAF_ROWS, c.size / (ForkJoinPool.getCommonPoolParallelism() * 4));
+            long[] sums = ForkJoinPool.commonPool().invoke(new Scan(c, plan, 0, c.size, leafRows));
+
+            String categoryName = category == null ? null : categoryDictionary.name(categoryCode);
+            List<LedgerTotal> totals = new ArrayList<>();
+            for (int g = 0; g < plan.groups(); g++) {
+                long count = sums[2 * g + 1];
+                if (count == 0) {
+                    continue;
+                }
+                int periodIndex = firstPeriod + g % periods;
+                int rest = g / periods;
+                totals.add(new LedgerTotal(
+                        byProperty ? Long.valueOf(c.propertyIds[rest / categoryGroups]) : propertyId,
+                        byCategory ? categoryDictionary.name(rest % categoryGroups) : categoryName,
+                        label(period, periodIndex),
+                        BigDecimal.valueOf(sums[2 * g], 2),
+                        count));
+            }
+            totals.sort(Comparator.comparing(LedgerTotal::propertyId, Comparator.nullsFirst(Comparator.naturalOrder()))
+                    .thenComparing(LedgerTotal::category, Comparator.nullsFirst(Comparator.naturalOrder()))
+                    .thenComparing(LedgerTotal::period, Comparator.nullsFirst(Comparator.naturalOrder())));
+            return totals;
+        });
+    }
+
+    /**
+     * Yearly totals per property, each next to the property's total for the year before.
+     */
+    public List<YearOverYear> yearOverYear(Long propertyId, String category) {
+        List<YearOverYear> years = new ArrayList<>();
+        Map<String, BigDecimal> byPropertyYear = new HashMap<>();
+        List<LedgerTotal> totals = totals(propertyId, category, null, null, true, false, Period.YEAR);
+        for (LedgerTotal total : totals) {
+            byPropertyYear.put(total.propertyId() + "/" + total.period(), total.total());
+        }
+        for (LedgerTotal total : totals) {
+            int year = Integer.parseInt(total.period());
+            BigDecimal previous = byPropertyYear.get(total.propertyId() + "/" + (year - 1));
+            Double change = previous == null || previous.signum() == 0 ? null
+                    : total.total().subtract(previous).doubleValue() / previous.doubleValue();
+            years.add(new YearOverYear(total.propertyId(), year, total.total(), previous, change));
+        }
+        return years;
+    }
+
+    public Stats stats() {
+        return view.read(c -> new Stats(c.size - c.deleted, c.deleted, c.propertyCount, c.estimatedBytes(),
+                loadMillis, builtAt));
+    }
+
+    /**
+     * Month (year * 12 + month - 1) of an epoch day, by integer arithmetic; the civil-from-days
+     * algorithm, shifted so years start in March.
+     */
+    static int monthOf(int epochDay) {
+        int z = epochDay + 719_468;
+        int era = (z >= 0 ? z : z - 146_096) / 146_097;
+        int dayOfEra = z - era * 146_097;
+        int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36_524 - dayOfEra / 146_096) / 365;
+        int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        int shiftedMonth = (5 * dayOfYear + 2) / 153;
+        int month = shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9;
+        int year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        return year * 12 + month - 1;
+    }
+
+    private static int periodOf(Period period, int epochDay) {
+        return switch (period) {
+            case NONE -> 0;
+            case MONTH -> monthOf(epochDay);
+            case YEAR -> monthOf(epochDay) / 12;
+        };
+    }
+
+    private static String label(Period period, int index) {
+        return switch (period) {
+            case NONE -> null;
+            case MONTH -> YearMonth.of(index / 12, index % 12 + 1).toString();
+            case YEAR -> String.valueOf(index);
+        };
+    }
+
+    /**
+     * Scans a range of rows into per-group sums and counts, splitting it across the
+     * fork-join pool while it is larger than one leaf.
+     */
+    private static final class Scan extends RecursiveTask<long[]> {
+
+        private final Columns columns;
+        private final Plan plan;
+        private final int from;
+        private final int to;
+        private final int leafRows;
+
+        Scan(Columns columns, Plan plan, int from, int to, int leafRows) {
+            this.columns = columns;
+            this.plan = plan;
+            this.from = from;
+            this.to = to;
+            this.leafRows = leafRows;
+        }
+
+        @Override
+        protected long[] compute() {
+            if (to - from <= leafRows) {
+                return scan();
+            }
+            int middle = (from + to) >>> 1;
+            Scan left = new Scan(columns, plan, from, middle, leafRows);
+            left.fork();
+            long[] right = new Scan(columns, plan, middle, to, leafRows).compute();
+            long[] sums = left.join();
+            for (int i = 0; i < sums.length; i++) {
+                sums[i] += right[i];
+            }
+            return sums;
+        }
+
+        private long[] scan() {
+            long[] sums = new long[plan.groups() * 2];
+            // Locals, so the loop reads no fields
+            int[] properties = columns.properties;
+            int[] categories = columns.categories;
+            int[] days = columns.days;
+            long[] cents = columns.cents;
+            int property = plan.property();
+            int category = plan.category();
+            int firstDay = plan.firstDay();
+            int lastDay = plan.lastDay();
+            boolean byProperty = plan.byProperty();
+            boolean byCategory = plan.byCategory();
+            int categoryGroups = plan.categoryGroups();
+            int[] periodOfDay = plan.periodOfDay();
+            int periods = plan.periods();
+
+            for (int row = from; row < to; row++) {
+                int p = properties[row];
+                if (p == DELETED || (property != ANY && p != property)) {
+                    continue;
+                }
+                int c = categories[row];
+                if (category != ANY && c != category) {
+                    continue;
+                }
+                int day = days[row];
+                if (day < firstDay || day > lastDay) {
+                    continue;
+                }
+                int group = byProperty ? p : 0;
+                if (byCategory) {
+                    group = group * categoryGroups + c;
+                }
+                if (periodOfDay != null) {
+                    group = group * periods + periodOfDay[day - firstDay];
+                }
+                sums[2 * group] += cents[row];
+                sums[2 * group + 1]++;
+            }
+            return sums;
+        }
+    }
+
+    /**
+     * The column arrays, addressed by row number, plus the property numbering.
+     * Not thread-safe; guarded by the view's lock.
+     */
+    private static final class Columns {
+
+        // Never decreasing, so a lookup is a binary search. A row committed out of id order keeps
+        // its id in outOfOrder and repeats the previous entry here; the search takes the first match
+        private long[] ids;
+        private final Map<Long, Integer> outOfOrder = new HashMap<>();
+        private int[] days;
+        private long[] cents;
+        private int[] properties;
+        private int[] categories;
+        private int size;
+        private int deleted;
+
+        private final Map<Long, Integer> propertyNumbers = new HashMap<>();
+        private long[] propertyIds = new long[16];
+        private int propertyCount;
+
+        private int minDay = Integer.MAX_VALUE;
+        private int maxDay = Integer.MIN_VALUE;
+        private int maxCategory;
+
+        Columns(int capacity) {
+            allocate(Math.max(capacity, 16));
+        }
+
+        private void allocate(int capacity) {
+            ids = ids == null ? new long[capacity] : Arrays.copyOf(ids, capacity);
+            days = days == null ? new int[capacity] : Arrays.copyOf(days, capacity);
+            cents = cents == null ? new long[capacity] : Arrays.copyOf(cents, capacity);
+            properties = properties == null ? new int[capacity] : Arrays.copyOf(properties, capacity);
+            categories = categories == null ? new int[capacity] : Arrays.copyOf(categories, capacity);
+        }
+
+        // Writes over the row if the expense is already here, so replays do not duplicate it
+        void add(Row row) {
+            int slot = find(row.id());
+            if (slot < 0) {
+                if (size == ids.length) {
+                    allocate(size + (size >> 1));
+                }
+                slot = size++;
+                if (slot > 0 && row.id() < ids[slot - 1]) {
+                    ids[slot] = ids[slot - 1];
+                    outOfOrder.put(row.id(), slot);
+                } else {
+                    ids[slot] = row.id();
+                }
+            } else if (properties[slot] == DELETED) {
+                deleted--;
+            }
+            days[slot] = row.day();
+            cents[slot] = row.cents();
+            properties[slot] = propertyNumber(row.propertyId());
+            categories[slot] = row.category();
+            minDay = Math.min(minDay, row.day());
+            maxDay = Math.max(maxDay, row.day());
+            maxCategory = Math.max(maxCategory, row.category());
+        }
+
+        void remove(long id) {
+            int slot = find(id);
+            if (slot >= 0 && properties[slot] != DELETED) {
+                properties[slot] = DELETED;
+                deleted++;
+            }
+        }
+
+        void removeProperty(long propertyId) {
+            int number = propertyNumbers.getOrDefault(propertyId, DELETED);
+            if (number == DELETED) {
+                return;
+            }
+            for (int slot = 0; slot < size; slot++) {
+                if (properties[slot] == number) {
+                    properties[slot] = DELETED;
+                    deleted++;
+                }
+            }
+        }
+
+        private int find(long id) {
+            if (!outOfOrder.isEmpty()) {
+                Integer slot = outOfOrder.get(id);
+                if (slot != null) {
+                    return slot;
+                }
+            }
+            // First slot whose id is not below the one sought
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (ids[mid] < id) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low < size && ids[low] == id ? low : -1;
+        }
+
+        private int propertyNumber(long propertyId) {
+            return propertyNumbers.computeIfAbsent(propertyId, id -> {
+                if (propertyCount == propertyIds.length) {
+                    propertyIds = Arrays.copyOf(propertyIds, propertyCount * 2);
+                }
+                propertyIds[propertyCount] = id;
+                return propertyCount++;
+            });
+        }
+
+        long estimatedBytes() {
+            return (long) ids.length * ROW_BYTES + propertyIds.length * 8L + propertyCount * 72L
+                    + outOfOrder.size() * 72L;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package property_pilot.service;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.DataFormat;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.util.WorkbookUtil;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import property_pilot.model.Expense;
+import property_pilot.model.Property;
+import property_pilot.repository.ExpenseRepository;
+import property_pilot.repository.PropertyRepository;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Writes the expense ledger as an XLSX workbook with one sheet per property.
+ * Uses SXSSF so only a fixed window of rows is kept in heap; older rows are flushed to
+ * a compressed temp file as the repository stream is consumed.
+ */
+@Service
+public class LedgerWorkbookService {
+
+    private static final String[] HEADERS = {"Date", "Category", "Amount", "Description", "Receipt"};
+
+    // Fixed widths in characters; auto-sizing would measure every streamed cell
+    private static final int[] COLUMN_WIDTHS = {12, 16, 14, 40, 40};
+
+    @Autowired
+    private ExpenseRepository expenseRepository;
+
+    @Autowired
+    private PropertyRepository propertyRepository;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${property_pilot.reports.xlsx-row-window:100}")
+    private int rowWindow;
+
+    /**
+     * Writes every property's expenses between the optional start and end dates to the stream.
+     */
+    @Transactional(readOnly = true)
+    public void write(LocalDate startDate, LocalDate endDate, OutputStream out) throws IOException {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(rowWindow);
+        workbook.setCompressTempFiles(true);
+        try {
+            Styles styles = new Styles(workbook);
+            List<Property> properties = propertyRepository.findAll(Sort.by("id"));
+            for (Property property : properties) {
+                writeSheet(workbook, styles, property, startDate, endDate);
+            }
+            workbook.write(out);
+        } finally {
+            workbook.dispose();
+            workbook.close();
+        }
+    }
+
+    private void writeSheet(SXSSFWorkbook workbook, Styles styles, Property property,
+                            LocalDate startDate, LocalDate endDate) {
+        // Prefix the id so names stay unique after Excel's 31-character truncation
+        SXSSFSheet sheet = workbook.createSheet(WorkbookUtil.createSafeSheetName(
+                property.getId() + " " + property.getName()));
+        for (int i = 0; i < COLUMN_WIDTHS.length; i++) {
+            sheet.setColumnWidth(i, COLUMN_WIDTHS[i] * 256);
+        }
+
+        Row header = sheet.createRow(0);
+        for (int i = 0; i < HEADERS.length; i++) {
+            header.createCell(i).setCellValue(HEADERS[i]);
+            header.getCell(i).setCellStyle(styles.header);
+        }
+        sheet.createFreezePane(0, 1);
+
+        int rowNum = 1;
+        try (Stream<Expense> rows = expenseRepository.streamFiltered(property.getId(), startDate, endDate)) {
+            Iterator<Expense> it = rows.iterator();
+            while (it.hasNext()) {
+                Expense expense = it.next();
+                Row row = sheet.createRow(rowNum++);
+                row.createCell(0).setCellValue(expense.getDate());
+                row.getCell(0).setCellStyle(styles.date);
+                row.createCell(1).setCellValue(expense.getCategory());
+                row.createCell(2).setCellValue(expense.getAmount().doubleValue());
+                row.getCell(2).setCellStyle(styles.amount);
+                if (expense.getDescription() != null) {
+                    row.createCell(3).setCellValue(expense.getDescription());
+                }
+                if (expense.getReceiptPath() != null) {
+                    row.createCell(4).setCellValue(expense.getReceiptPath());
+                }
+                entityManager.detach(expense);
+            }
+        }
+
+        if (rowNum > 1) {
+            Row total = sheet.createRow(rowNum);
+            total.createCell(1).setCellValue("Total");
+            total.getCell(1).setCellStyle(styles.header);
+            total.createCell(2).setCellFormula("SUM(C2:C" + rowNum + ")");
+            total.getCell(2).setCellStyle(styles.amount);
+        }
+    }
+
+    /**
+     * Cell styles shared by every sheet; a workbook has a hard cap on distinct styles.
+     */
+    private static class Styles {
+        final CellStyle header;
+        final CellStyle date;
+        final CellStyle amount;
+
+        Styles(SXSSFWorkbook workbook) {
+            DataFormat format = workbook.createDataFormat();
+            Font bold = workbook.createFont();
+            bold.setBold(true);
+
+            header = workbook.createCellStyle();
+            header.setFont(bold);
+            date = workbook.createCellStyle();
+            date.setDataFormat(format.getFormat("yyyy-mm-dd"));
+            amount = workbook.createCellStyle();
+            amount.setDataFormat(format.getFormat("#,##0.00"));
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package property_pilot.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import property_pilot.model.CategorySummary;
+import property_pilot.model.Expense;
+import property_pilot.model.MonthlySummary;
+import property_pilot.model.MonthlyTotal;
+import property_pilot.repository.ExpenseRepository;
+import property_pilot.repository.MonthlyTotalRepository;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the per-property, per-month, per-category rollup in step with the ledger and
+ * answers summary queries from it. Writes join the caller's transaction so a rollup
+ * change commits or rolls back together with the expense change that caused it.
+ */
+@Service
+public class MonthlyTotalsService {
+
+    @Autowired
+    private MonthlyTotalRepository monthlyTotalRepository;
+
+    @Autowired
+    private ExpenseRepository expenseRepository;
+
+    @Autowired
+    private CategoryDictionary categoryDictionary;
+
+    /**
+     * Adds one expense to its bucket.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void add(Expense expense) {
+        MonthlyTotal.Key key = keyOf(expense);
+        monthlyTotalRepository.addToBucket(key.getPropertyId(), key.getMonth(), key.getCategoryId(),
+                expense.getAmount(), 1);
+    }
+
+    /**
+     * Adds many expenses, issuing one statement per distinct bucket rather than per row.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void addAll(Collection<Expense> expenses) {
+        Map<MonthlyTotal.Key, BigDecimal> sums = new HashMap<>();
+        Map<MonthlyTotal.Key, Long> counts = new HashMap<>();
+        for (Expense expense : expenses) {
+            MonthlyTotal.Key key = keyOf(expense);
+            sums.merge(key, expense.getAmount(), BigDecimal::add);
+            counts.merge(key, 1L, Long::sum);
+        }
+        sums.forEach((key, sum) -> monthlyTotalRepository.addToBucket(
+                key.getPropertyId(), key.getMonth(), key.getCategoryId(), sum, counts.get(key)));
+    }
+
+    /**
+     * Takes one expense out of its bucket, dropping the bucket if it is now empty.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void subtract(Expense expense) {
+        MonthlyTotal.Key key = keyOf(expense);
+        monthlyTotalRepository.addToBucket(key.getPropertyId(), key.getMonth(), key.getCategoryId(),
+                expense.getAmount().negate(), -1);
+        monthlyTotalRepository.deleteIfEmpty(key);
+    }
+
+    /**
+     * Recomputes the whole rollup from the expenses table.
+     */
+    @Transactional
+    public void rebuild() {
+        monthlyTotalRepository.deleteAllInBatch();
+        monthlyTotalRepository.insertFromExpenses();
+    }
+
+    /**
+     * Backfills the rollup on startup when it is empty but the ledger is not,
+     * e.g. the first start after the table was introduced.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void rebuildIfMissing() {
+        if (monthlyTotalRepository.count() == 0 && expenseRepository.count() > 0) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Monthly buckets between two months inclusive; property and category may be null.
+     */
+    @Transactional(readOnly = true)
+    public List<MonthlySummary> monthly(Long propertyId, String category, YearMonth start, YearMonth end) {
+        Integer categoryId = null;
+        if (category != null) {
+            categoryId = categoryDictionary.find(category);
+            if (categoryId == null) {
+                return List.of();
+            }
+        }
+        return monthlyTotalRepository.findBuckets(propertyId, categoryId, start.toString(), end.toString());
+    }
+
+    /**
+     * Per-category totals between two months inclusive; property may be null.
+     */
+    @Transactional(readOnly = true)
+    public List<CategorySummary> byCategory(Long propertyId, YearMonth start, YearMonth end) {
+        return monthlyTotalRepository.sumByCategory(propertyId, start.toString(), end.toString());
+    }
+
+    private MonthlyTotal.Key keyOf(Expense expense) {
+        return new MonthlyTotal.Key(
+                expense.getProperty().getId(),
+                YearMonth.from(expense.getDate()).toString(),
+                categoryDictionary.find(expense.getCategory()));
+    }
+}
@@ -0,0 +1,251 @@
+package property_pilot.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import property_pilot.repository.ExpenseRepository;
+import property_pilot.repository.MonthlyTotalRepository;
+import property_pilot.repository.PropertyRepository;
+import property_pilot.repository.ReceiptBlobRepository;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Deletes a property together with everything hanging off it. The ledger side is a handful of
+ * set-based statements in one transaction: release the property's receipt blob references,
+ * drop its rollup buckets and expenses, then the property. The files are left to a background
+ * job that reports its progress: blobs whose last reference went are purged one by one, and
+ * receipts still in the old layout go with the property's {propertyId}_{slug} folder.
+ * <p>
+ * Blobs released but not yet purged keep a row with no references, so a cleanup interrupted
+ * by a shutdown is picked up again on the next start.
+ */
+@Service
+public class PropertyDeletionService {
+
+    private static final Logger log = LoggerFactory.getLogger(PropertyDeletionService.class);
+
+    // Finished jobs kept for progress queries
+    private static final int JOB_HISTORY = 100;
+
+    @Autowired
+    private PropertyRepository propertyRepository;
+
+    @Autowired
+    private ExpenseRepository expenseRepository;
+
+    @Autowired
+    private MonthlyTotalRepository monthlyTotalRepository;
+
+    @Autowired
+    private ReceiptBlobRepository receiptBlobRepository;
+
+    @Autowired
+    private ReceiptService receiptService;
+
+    @Autowired
+    private FileStorageService storage;
+
+    @Autowired
+    private ExpenseSearchIndex searchIndex;
+
+    @Autowired
+    private LedgerSnapshot ledgerSnapshot;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final AtomicLong jobIds = new AtomicLong();
+
+    // Guarded by itself; oldest job dropped first
+    private final Map<Long, Job> jobs = new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Job> eldest) {
+            return size() > JOB_HISTORY;
+        }
+    };
+
+    private ThreadPoolExecutor executor;
+    private ExecutorService monitoredExecutor;
+
+    public enum State { QUEUED, RUNNING, DONE, FAILED }
+
+    /**
+     * Where a property's cleanup stands. Blobs counts the receipts the property referenced;
+     * blobsPurged those whose file went because no other expense shares it, and legacyFiles the
+     * files removed with the old-layout folder. The property id is null for a cleanup resumed
+     * on startup.
+     */
+    public record Progress(long id, Long propertyId, State state, long expenses, int blobs, int blobsDone,
+                           int blobsPurged, long legacyFiles, Instant started, Instant finished, String error) {
+    }
+
+    // One cleanup; written by the worker, read by progress queries
+    private static final class Job {
+
+        private final long id;
+        private final Long propertyId;
+        private final long expenses;
+        private final List<String> hashes;
+        private final Instant started = Instant.now();
+        private volatile State state = State.QUEUED;
+        private volatile int blobsDone;
+        private volatile int blobsPurged;
+        private volatile long legacyFiles;
+        private volatile Instant finished;
+        private volatile String error;
+
+        Job(long id, Long propertyId, long expenses, List<String> hashes) {
+            this.id = id;
+            this.propertyId = propertyId;
+            this.expenses = expenses;
+            this.hashes = hashes;
+        }
+
+        Progress progress() {
+            return new Progress(id, propertyId, state, expenses, hashes.size(), blobsDone, blobsPurged,
+                    legacyFiles, started, finished, error);
+        }
+    }
+
+    @PostConstruct
+    void start() {
+        executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                r -> {
+                    Thread t = new Thread(r, "property-cleanup");
+                    t.setDaemon(true);
+                    t.setPriority(Thread.MIN_PRIORITY);
+                    return t;
+                });
+        // executor.queued, executor.active, executor.completed, ... tagged name=propertyCleanup
+        monitoredExecutor = ExecutorServiceMetrics.monitor(meterRegistry, executor, "propertyCleanup");
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeOnStartup() {
+        List<String> unreferenced = receiptBlobRepository.findUnreferenced();
+        if (!unreferenced.isEmpty()) {
+            log.info("Resuming receipt cleanup: {} unreferenced blobs", unreferenced.size());
+            queue(new Job(jobIds.incrementAndGet(), null, 0, unreferenced));
+        }
+    }
+
+    /**
+     * Deletes the property and its expenses, and queues the cleanup of their receipt files.
+     * Returns the queued job, or empty if the property did not exist.
+     */
+    public Optional<Progress> delete(Long propertyId) {
+        Job job = transactionTemplate.execute(status -> {
+            if (!propertyRepository.existsById(propertyId)) {
+                return null;
+            }
+            List<String> hashes = expenseRepository.findReceiptHashesByPropertyId(propertyId);
+            receiptBlobRepository.releasePropertyReferences(propertyId);
+            monthlyTotalRepository.deleteByPropertyId(propertyId);
+            int expenses = expenseRepository.deleteByPropertyId(propertyId);
+            propertyRepository.deleteById(propertyId);
+            searchIndex.removeProperty(propertyId);
+            ledgerSnapshot.removeProperty(propertyId);
+            return new Job(jobIds.incrementAndGet(), propertyId, expenses, hashes);
+        });
+        if (job == null) {
+            return Optional.empty();
+        }
+        // Queued only once the delete has committed
+        queue(job);
+        return Optional.of(job.progress());
+    }
+
+    /**
+     * Progress of a cleanup job, or empty if it is unknown or has aged out.
+     */
+    public Optional<Progress> progress(long jobId) {
+        synchronized (jobs) {
+            return Optional.ofNullable(jobs.get(jobId)).map(Job::progress);
+        }
+    }
+
+    private void queue(Job job) {
+        synchronized (jobs) {
+            jobs.put(job.id, job);
+        }
+        monitoredExecutor.execute(() -> run(job));
+    }
+
+    private void run(Job job) {
+        job.state = State.RUNNING;
+        try {
+            for (String hash : job.hashes) {
+                // Purged under the blob's row lock, so a concurrent upload of the same content is safe
+                if (receiptService.purge(hash)) {
+                    job.blobsPurged++;
+                }
+                job.blobsDone++;
+            }
+            if (job.propertyId != null) {
+                deleteLegacyFolders(job);
+            }
+            job.state = State.DONE;
+        } catch (IOException | RuntimeException e) {
+            log.warn("Receipt cleanup {} failed", job.id, e);
+            job.error = e.getMessage();
+            job.state = State.FAILED;
+        } finally {
+            job.finished = Instant.now();
+        }
+    }
+
+    // Receipts never moved to the blob store live under {propertyId}_{slug}/{expenseId}_{slug}/
+    private void deleteLegacyFolders(Job job) throws IOException {
+        Path root = storage.resolve("");
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+        try (DirectoryStream<Path> folders = Files.newDirectoryStream(root, job.propertyId + "_*")) {
+            for (Path folder : folders) {
+                try (Stream<Path> tree = Files.walk(folder)) {
+                    // Deepest first, so each folder is empty by the time it is reached
+                    for (Path path : tree.sorted(Comparator.reverseOrder()).toList()) {
+                        boolean file = Files.isRegularFile(path);
+                        Files.deleteIfExists(path);
+                        if (file) {
+                            job.legacyFiles++;
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package property_pilot.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.CachePut;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.stereotype.Service;
+
+import property_pilot.config.CacheConfig;
+import property_pilot.model.Property;
+import property_pilot.repository.PropertyRepository;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Cached access to properties. Reads are served from the cache; every write replaces
+ * or evicts exactly the entries it affects.
+ * Cached instances are shared, so callers must not modify what these methods return.
+ */
+@Service
+public class PropertyService {
+
+    @Autowired
+    private PropertyRepository propertyRepository;
+
+    @Autowired
+    private PropertyDeletionService propertyDeletionService;
+
+    @Cacheable(cacheNames = CacheConfig.PROPERTIES, key = "#id")
+    public Optional<Property> findById(Long id) {
+        return propertyRepository.findById(id);
+    }
+
+    @Cacheable(cacheNames = CacheConfig.PROPERTY_LIST, key = "'all'")
+    public List<Property> findAll() {
+        return propertyRepository.findAll();
+    }
+
+    @Caching(
+            put = @CachePut(cacheNames = CacheConfig.PROPERTIES, key = "#result.id"),
+            evict = @CacheEvict(cacheNames = CacheConfig.PROPERTY_LIST, allEntries = true)
+    )
+    public Property create(Property property) {
+        return propertyRepository.save(property);
+    }
+
+    /**
+     * Copies name, address and notes onto the stored property.
+     * Loads from the repository, not the cache, so a failed save leaves the cache untouched.
+     */
+    @Caching(
+            put = @CachePut(cacheNames = CacheConfig.PROPERTIES, key = "#id", unless = "#result == null"),
+            evict = @CacheEvict(cacheNames = CacheConfig.PROPERTY_LIST, allEntries = true)
+    )
+    public Optional<Property> update(Long id, Property changes) {
+        return propertyRepository.findById(id).map(prop -> {
+            prop.setName(changes.getName());
+            prop.setAddress(changes.getAddress());
+            prop.setNotes(changes.getNotes());
+            return propertyRepository.save(prop);
+        });
+    }
+
+    /**
+     * Deletes a property with its expenses and queues the cleanup of their receipts.
+     * Returns the cleanup job, or empty if the property did not exist.
+     */
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfig.PROPERTIES, key = "#id"),
+            @CacheEvict(cacheNames = CacheConfig.PROPERTY_LIST, allEntries = true)
+    })
+    public Optional<PropertyDeletionService.Progress> delete(Long id) {
+        return propertyDeletionService.delete(id);
+    }
+}
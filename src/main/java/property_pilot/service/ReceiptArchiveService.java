@@ -0,0 +1,182 @@
+package property_pilot.service;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import property_pilot.model.Expense;
+import property_pilot.repository.ExpenseRepository;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Streams the receipts of the matching expenses as a ZIP archive, straight to the caller's
+ * output stream with no temp archive. The first entry, manifest.csv, lists every matching
+ * expense in the CSV export format; each receipt follows as receipts/{date}_{expenseId}_{fileName}.
+ * Receipts are read in on-disk order (by inode where the file system reports one) to keep
+ * the disk reading sequentially, and already-compressed formats are stored rather than deflated.
+ */
+@Service
+public class ReceiptArchiveService {
+
+    public static final String MANIFEST_NAME = "manifest.csv";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    @Autowired
+    private ExpenseRepository expenseRepository;
+
+    @Autowired
+    private FileStorageService storage;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // One receipt to add: where it is stored and what to call it in the archive
+    private record Receipt(String entryName, String receiptPath, String contentType, long inode) {
+    }
+
+    /**
+     * Writes the archive for the expenses matching the filters (each may be null).
+     * Returns the number of receipts written.
+     */
+    public long write(Long propertyId, LocalDate startDate, LocalDate endDate, OutputStream out) throws IOException {
+        ZipOutputStream zip = new ZipOutputStream(new BufferedOutputStream(out, BUFFER_SIZE));
+
+        // The database is only needed for the manifest; receipts are copied after the connection is returned
+        List<Receipt> receipts;
+        try {
+            receipts = writeManifest(zip, propertyId, startDate, endDate);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        receipts.sort(Comparator.comparingLong(Receipt::inode).thenComparing(Receipt::receiptPath));
+
+        long written = 0;
+        for (Receipt receipt : receipts) {
+            if (writeReceipt(zip, receipt)) {
+                written++;
+            }
+        }
+        zip.finish();
+        zip.flush();
+        return written;
+    }
+
+    private List<Receipt> writeManifest(ZipOutputStream zip, Long propertyId,
+                                        LocalDate startDate, LocalDate endDate) {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        return readOnly.execute(status -> {
+            List<Receipt> receipts = new ArrayList<>();
+            try {
+                zip.putNextEntry(new ZipEntry(MANIFEST_NAME));
+                Writer writer = new OutputStreamWriter(zip, StandardCharsets.UTF_8);
+                writer.write(ExpenseExportService.CSV_HEADER);
+                writer.write('\n');
+                try (Stream<Expense> rows = expenseRepository.streamFiltered(propertyId, startDate, endDate)) {
+                    Iterator<Expense> it = rows.iterator();
+                    while (it.hasNext()) {
+                        Expense expense = it.next();
+                        ExpenseExportService.writeCsvRow(writer, expense);
+                        if (expense.getReceiptPath() != null && !expense.getReceiptPath().isBlank()) {
+                            receipts.add(toReceipt(expense));
+                        }
+                        entityManager.detach(expense);
+                    }
+                }
+                writer.flush();
+                zip.closeEntry();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return receipts;
+        });
+    }
+
+    private Receipt toReceipt(Expense expense) {
+        String fileName = expense.getReceiptFileName() != null
+                ? expense.getReceiptFileName()
+                : Path.of(expense.getReceiptPath()).getFileName().toString();
+        String entryName = "receipts/" + expense.getDate() + "_" + expense.getId() + "_"
+                + FileStorageService.cleanFileName(fileName);
+        return new Receipt(entryName, expense.getReceiptPath(), expense.getReceiptContentType(),
+                inode(storage.resolve(expense.getReceiptPath())));
+    }
+
+    /**
+     * Adds one receipt. Returns false, leaving it out, if its file is missing.
+     */
+    private boolean writeReceipt(ZipOutputStream zip, Receipt receipt) throws IOException {
+        Path file = storage.resolve(receipt.receiptPath());
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+
+        ZipEntry entry = new ZipEntry(receipt.entryName());
+        entry.setLastModifiedTime(attributes.lastModifiedTime());
+        // The codec comes from the shared blob, which may be gzipped whatever this expense's type says
+        if (FileStorageService.Codec.of(receipt.receiptPath()) == FileStorageService.Codec.NONE
+                && !FileStorageService.isCompressible(receipt.contentType())) {
+            // STORED entries must declare size and CRC up front, taken from the bytes written below;
+            // the extra read is served from the page cache
+            CRC32 crc = new CRC32();
+            long size;
+            try (CheckedInputStream in = new CheckedInputStream(storage.openReceipt(receipt.receiptPath()), crc)) {
+                size = in.transferTo(OutputStream.nullOutputStream());
+            }
+            entry.setMethod(ZipEntry.STORED);
+            entry.setSize(size);
+            entry.setCompressedSize(size);
+            entry.setCrc(crc.getValue());
+        }
+        zip.putNextEntry(entry);
+        try (InputStream in = storage.openReceipt(receipt.receiptPath())) {
+            in.transferTo(zip);
+        }
+        zip.closeEntry();
+        return true;
+    }
+
+    /**
+     * The file's inode number, which tracks allocation order on most Unix file systems;
+     * 0 where the file system has none or the file is missing (order then falls back to path).
+     */
+    private static long inode(Path file) {
+        try {
+            return Files.getAttribute(file, "unix:ino") instanceof Long ino ? ino : 0;
+        } catch (IOException | UnsupportedOperationException | IllegalArgumentException e) {
+            return 0;
+        }
+    }
+}
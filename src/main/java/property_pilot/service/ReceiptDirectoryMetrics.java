@@ -0,0 +1,79 @@
+package property_pilot.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Gauges for the size of the receipts directory: receipts.directory.size (bytes on disk,
+ * thumbnails and staging files included) and receipts.directory.files. The tree is walked on
+ * a fixed delay rather than per scrape, so a scrape never touches the disk.
+ */
+@Component
+public class ReceiptDirectoryMetrics implements MeterBinder {
+
+    private static final Logger log = LoggerFactory.getLogger(ReceiptDirectoryMetrics.class);
+
+    @Value("${property_pilot.receipts.base-dir}")
+    private String baseDir;
+
+    private final AtomicLong bytes = new AtomicLong();
+    private final AtomicLong files = new AtomicLong();
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("receipts.directory.size", bytes, AtomicLong::get)
+                .baseUnit("bytes")
+                .description("Bytes under the receipts directory, as of the last scan")
+                .register(registry);
+        Gauge.builder("receipts.directory.files", files, AtomicLong::get)
+                .description("Files under the receipts directory, as of the last scan")
+                .register(registry);
+    }
+
+    /**
+     * Walks the receipts directory and updates the gauges.
+     */
+    @Scheduled(initialDelay = 0, fixedDelayString = "${property_pilot.metrics.receipts-directory-interval:PT5M}")
+    public void refresh() {
+        Path root = Path.of(baseDir);
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+        long[] totals = new long[2];
+        try {
+            Files.walkFileTree(root, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                    totals[0] += attributes.size();
+                    totals[1]++;
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    // Deleted mid-walk
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            log.warn("Could not scan receipts directory {}", root, e);
+            return;
+        }
+        bytes.set(totals[0]);
+        files.set(totals[1]);
+    }
+}
@@ -0,0 +1,133 @@
+package property_pilot.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import property_pilot.model.Expense;
+import property_pilot.repository.ExpenseRepository;
+import property_pilot.repository.ReceiptBlobRepository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Moves receipts from the old per-expense layout ({propertyId}_{slug}/{expenseId}_{slug}/file)
+ * into the content-addressed store. Each expense is switched over in its own transaction;
+ * the old file is removed only after that commits, so an interrupted run can simply be repeated.
+ * Runs on startup when property_pilot.receipts.migrate-legacy is true, or on demand.
+ */
+@Service
+public class ReceiptMigrationService {
+
+    private static final Logger log = LoggerFactory.getLogger(ReceiptMigrationService.class);
+
+    private static final int BATCH_SIZE = 500;
+
+    @Autowired
+    private FileStorageService storage;
+
+    @Autowired
+    private ExpenseRepository expenseRepository;
+
+    @Autowired
+    private ReceiptBlobRepository receiptBlobRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${property_pilot.receipts.migrate-legacy:false}")
+    private boolean migrateOnStartup;
+
+    /**
+     * Outcome of a migration run. Duplicates are receipts whose content was already stored,
+     * so their old file was freed outright; missing ones point at a file that no longer exists.
+     */
+    public record Result(long migrated, long duplicates, long missing, long bytesFreed) {
+    }
+
+    // One expense switched over, and the old file it no longer needs
+    private record Moved(Path legacy, boolean duplicate, long size) {
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrateIfEnabled() throws IOException {
+        if (migrateOnStartup) {
+            Result result = migrate();
+            log.info("Receipt migration: {}", result);
+        }
+    }
+
+    /**
+     * Migrates every expense whose receipt is still in the old layout.
+     */
+    public Result migrate() throws IOException {
+        long migrated = 0, duplicates = 0, missing = 0, bytesFreed = 0;
+        long afterId = 0;
+        List<Long> ids;
+        do {
+            ids = expenseRepository.findLegacyReceiptIds(afterId, Limit.of(BATCH_SIZE));
+            for (Long id : ids) {
+                afterId = id;
+                Moved moved = migrateOne(id);
+                if (moved == null) {
+                    missing++;
+                    continue;
+                }
+                if (moved.duplicate()) {
+                    duplicates++;
+                    bytesFreed += moved.size();
+                } else {
+                    migrated++;
+                }
+                Files.deleteIfExists(moved.legacy());
+                Files.deleteIfExists(moved.legacy().resolveSibling(
+                        moved.legacy().getFileName() + ThumbnailService.THUMBNAIL_SUFFIX));
+                Files.deleteIfExists(moved.legacy().resolveSibling(
+                        moved.legacy().getFileName() + ThumbnailService.FAILED_SUFFIX));
+                storage.deleteEmptyParents(moved.legacy(), storage.resolve(""));
+            }
+        } while (ids.size() == BATCH_SIZE);
+        return new Result(migrated, duplicates, missing, bytesFreed);
+    }
+
+    /**
+     * Points one expense at the blob for its old file. Returns the old file, now safe to delete,
+     * or null if the file is gone (the expense is then left as it was).
+     */
+    private Moved migrateOne(Long id) {
+        return transactionTemplate.execute(status -> {
+            Expense expense = expenseRepository.findById(id).orElse(null);
+            if (expense == null || expense.getReceiptHash() != null || expense.getReceiptPath() == null) {
+                return null;
+            }
+            Path legacy = storage.resolve(expense.getReceiptPath());
+            if (!Files.isRegularFile(legacy)) {
+                return null;
+            }
+            try {
+                String hash = storage.hash(legacy);
+                long size = Files.size(legacy);
+                receiptBlobRepository.addReference(hash, size);
+                boolean duplicate = !storage.adopt(legacy, hash);
+                expense.setReceiptHash(hash);
+                expense.setReceiptPath(storage.findBlob(hash));
+                if (expense.getReceiptFileName() == null) {
+                    expense.setReceiptFileName(legacy.getFileName().toString());
+                }
+                return new Moved(legacy, duplicate, size);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+}
@@ -0,0 +1,203 @@
+package property_pilot.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import property_pilot.model.Expense;
+import property_pilot.repository.ExpenseRepository;
+import property_pilot.repository.ReceiptBlobRepository;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Attaches receipts to expenses and keeps blob reference counts in step.
+ * A reference is taken or released in the same transaction as the expense change. Files are
+ * only touched once that transaction's outcome is known: a blob whose last reference went is
+ * deleted after commit, and a blob written for an upload that rolls back is deleted again.
+ */
+@Service
+public class ReceiptService {
+
+    private static final Logger log = LoggerFactory.getLogger(ReceiptService.class);
+
+    @Autowired
+    private FileStorageService storage;
+
+    @Autowired
+    private ExpenseRepository expenseRepository;
+
+    @Autowired
+    private ReceiptBlobRepository receiptBlobRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ThumbnailService thumbnailService;
+
+    // Blobs whose file may be deleted when a transaction completes. The row lock is released
+    // at commit, before the file goes, so an upload of the same content waits on this first.
+    private final Map<String, CountDownLatch> pendingDeletes = new ConcurrentHashMap<>();
+
+    /**
+     * Stores the content and makes it the expense's receipt, releasing any receipt it replaces.
+     * The upload is staged and hashed before the transaction starts; image receipts get a
+     * thumbnail queued once it commits.
+     */
+    public Expense attach(Expense expense, String originalFilename, String declaredType,
+                          InputStream content) throws IOException {
+        String fileName = FileStorageService.cleanFileName(originalFilename);
+        String contentType = storage.detectContentType(fileName, declaredType);
+        FileStorageService.StagedFile staged = storage.stage(content, contentType);
+        Expense saved;
+        try {
+            saved = transactionTemplate.execute(status -> {
+                // Lock the reference row first; a release of the same blob now waits for us
+                receiptBlobRepository.addReference(staged.sha256(), staged.size());
+                String receiptPath;
+                try {
+                    awaitPendingDelete(staged.sha256());
+                    boolean stored = storage.findBlob(staged.sha256()) != null;
+                    receiptPath = storage.commit(staged);
+                    if (!stored) {
+                        // Nothing else can reference a file we just wrote under the row lock
+                        deleteBlobAfter(staged.sha256(), TransactionSynchronization.STATUS_ROLLED_BACK);
+                    }
+                    detachFile(expense);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                expense.setReceiptHash(staged.sha256());
+                expense.setReceiptPath(receiptPath);
+                expense.setReceiptFileName(fileName);
+                expense.setReceiptContentType(contentType);
+                return expenseRepository.save(expense);
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            storage.discard(staged);
+        }
+        thumbnailService.request(saved);
+        return saved;
+    }
+
+    /**
+     * Removes the expense's receipt. Returns false if it had none.
+     */
+    @Transactional
+    public boolean detach(Expense expense) throws IOException {
+        if (expense.getReceiptPath() == null || expense.getReceiptPath().isBlank()) {
+            return false;
+        }
+        detachFile(expense);
+        expense.setReceiptHash(null);
+        expense.setReceiptPath(null);
+        expense.setReceiptFileName(null);
+        expense.setReceiptContentType(null);
+        expenseRepository.save(expense);
+        return true;
+    }
+
+    /**
+     * Drops one reference to a blob; if it was the last, the file is deleted after commit.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void release(String sha256) {
+        receiptBlobRepository.removeReference(sha256);
+        purge(sha256);
+    }
+
+    /**
+     * Deletes a blob's row if nothing references it any more, and its file after commit.
+     * Returns false if it is referenced again, or already gone.
+     */
+    @Transactional
+    public boolean purge(String sha256) {
+        if (receiptBlobRepository.deleteIfUnreferenced(sha256) == 0) {
+            return false;
+        }
+        deleteBlobAfter(sha256, TransactionSynchronization.STATUS_COMMITTED);
+        return true;
+    }
+
+    /**
+     * Lets go of the file behind the expense's current receipt, if any: a blob reference,
+     * or for receipts in the old layout the file itself and its emptied expense folder.
+     */
+    private void detachFile(Expense expense) {
+        if (expense.getReceiptHash() != null) {
+            release(expense.getReceiptHash());
+        } else if (expense.getReceiptPath() != null && !expense.getReceiptPath().isBlank()) {
+            Path file = storage.resolve(expense.getReceiptPath());
+            Path thumbnail = thumbnailService.thumbnailFile(expense.getReceiptPath());
+            Path failedMarker = thumbnailService.failedMarker(expense.getReceiptPath());
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    try {
+                        Files.deleteIfExists(file);
+                        Files.deleteIfExists(thumbnail);
+                        Files.deleteIfExists(failedMarker);
+                        storage.deleteEmptyParents(file, file.getParent().getParent());
+                    } catch (IOException e) {
+                        log.warn("Could not delete legacy receipt {}", file, e);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Deletes the blob's file when the current transaction completes with the given status.
+     * Must be called while holding the blob's row lock.
+     */
+    private void deleteBlobAfter(String sha256, int deleteOnStatus) {
+        CountDownLatch done = new CountDownLatch(1);
+        pendingDeletes.put(sha256, done);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                try {
+                    if (status == deleteOnStatus) {
+                        storage.deleteBlob(sha256);
+                    }
+                } catch (IOException e) {
+                    log.warn("Could not delete receipt blob {}", sha256, e);
+                } finally {
+                    pendingDeletes.remove(sha256, done);
+                    done.countDown();
+                }
+            }
+        });
+    }
+
+    // Called under the blob's row lock, so any delete still pending was registered before it
+    private void awaitPendingDelete(String sha256) throws IOException {
+        CountDownLatch pending = pendingDeletes.get(sha256);
+        if (pending == null) {
+            return;
+        }
+        try {
+            pending.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for blob " + sha256);
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package property_pilot.service;
+
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+import property_pilot.model.Expense;
+import property_pilot.model.Property;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Imports expense statements from XLSX workbooks.
+ * The first sheet is read with POI's SAX event API, one row at a time, and each row is handed
+ * to {@link ExpenseImportService} which writes them in batches. The first row must be a header
+ * naming the date, category and amount columns, plus optional description and property columns.
+ */
+@Service
+public class StatementImportService {
+
+    private enum Column { DATE, CATEGORY, AMOUNT, DESCRIPTION, PROPERTY }
+
+    private static final List<DateTimeFormatter> TEXT_DATE_FORMATS = List.of(
+            DateTimeFormatter.ISO_LOCAL_DATE,
+            DateTimeFormatter.ofPattern("M/d/yyyy"),
+            DateTimeFormatter.ofPattern("M/d/yy")
+    );
+
+    @Autowired
+    private ExpenseImportService importService;
+
+    /**
+     * Imports the first sheet of the workbook. Rows without a property column are assigned to
+     * defaultPropertyId, which may be null if the sheet names the property on every row.
+     */
+    public ImportResult importXlsx(MultipartFile file, Long defaultPropertyId) throws IOException {
+        // OPCPackage reads a file through random access; an InputStream would be inflated into memory
+        Path workbook = Files.createTempFile("statement-", ".xlsx");
+        try {
+            file.transferTo(workbook);
+            try (OPCPackage pkg = OPCPackage.open(workbook.toFile(), PackageAccess.READ)) {
+                XSSFReader reader = new XSSFReader(pkg);
+                ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg);
+                RowHandler rows = new RowHandler(importService.openSession(), defaultPropertyId);
+
+                Iterator<InputStream> sheets = reader.getSheetsData();
+                if (sheets.hasNext()) {
+                    try (InputStream sheet = sheets.next()) {
+                        XMLReader parser = XMLHelper.newXMLReader();
+                        parser.setContentHandler(new XSSFSheetXMLHandler(
+                                reader.getStylesTable(), strings, rows, new RawValueFormatter(), false));
+                        parser.parse(new InputSource(sheet));
+                    }
+                }
+                return rows.session.finish();
+            }
+        } catch (OpenXML4JException | SAXException | ParserConfigurationException e) {
+            throw new IOException("Unreadable XLSX statement: " + e.getMessage(), e);
+        } finally {
+            Files.deleteIfExists(workbook);
+        }
+    }
+
+    /**
+     * Collects the cells of each row and turns complete rows into expenses.
+     */
+    private static class RowHandler implements XSSFSheetXMLHandler.SheetContentsHandler {
+
+        private final ExpenseImportService.Session session;
+        private final Long defaultPropertyId;
+        private final List<String> cells = new ArrayList<>();
+        private Column[] columns;
+        private boolean headerRejected;
+
+        RowHandler(ExpenseImportService.Session session, Long defaultPropertyId) {
+            this.session = session;
+            this.defaultPropertyId = defaultPropertyId;
+        }
+
+        @Override
+        public void startRow(int rowNum) {
+            cells.clear();
+        }
+
+        @Override
+        public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+            int col = cellReference == null ? cells.size() : new CellReference(cellReference).getCol();
+            while (cells.size() <= col) {
+                cells.add(null);
+            }
+            cells.set(col, formattedValue == null ? null : formattedValue.trim());
+        }
+
+        @Override
+        public void endRow(int rowNum) {
+            long row = rowNum + 1L;
+            if (cells.stream().allMatch(c -> c == null || c.isEmpty())) {
+                return;
+            }
+            if (columns == null) {
+                readHeader(row);
+                return;
+            }
+            if (headerRejected) {
+                return;
+            }
+            try {
+                session.add(row, toExpense());
+            } catch (IllegalArgumentException | DateTimeParseException e) {
+                session.reject(row, e.getMessage());
+            }
+        }
+
+        private void readHeader(long row) {
+            columns = new Column[cells.size()];
+            for (int i = 0; i < cells.size(); i++) {
+                columns[i] = headerColumn(cells.get(i));
+            }
+            List<Column> present = Arrays.asList(columns);
+            for (Column required : List.of(Column.DATE, Column.CATEGORY, Column.AMOUNT)) {
+                if (!present.contains(required)) {
+                    headerRejected = true;
+                    session.reject(row, "Missing column: " + required.name().toLowerCase(Locale.ROOT));
+                }
+            }
+            if (!present.contains(Column.PROPERTY) && defaultPropertyId == null) {
+                headerRejected = true;
+                session.reject(row, "Missing column: property (or pass propertyId)");
+            }
+        }
+
+        private Expense toExpense() {
+            Expense expense = new Expense();
+            Property property = new Property();
+            property.setId(defaultPropertyId);
+            expense.setProperty(property);
+
+            for (int i = 0; i < cells.size() && i < columns.length; i++) {
+                String value = cells.get(i);
+                if (columns[i] == null || value == null || value.isEmpty()) {
+                    continue;
+                }
+                switch (columns[i]) {
+                    case DATE -> expense.setDate(parseDate(value));
+                    case CATEGORY -> expense.setCategory(value);
+                    case AMOUNT -> expense.setAmount(parseAmount(value));
+                    case DESCRIPTION -> expense.setDescription(value);
+                    case PROPERTY -> property.setId(parsePropertyId(value));
+                }
+            }
+            return expense;
+        }
+    }
+
+    /**
+     * Maps a header cell to a column, ignoring case, spaces and punctuation.
+     */
+    private static Column headerColumn(String header) {
+        if (header == null) {
+            return null;
+        }
+        return switch (header.toLowerCase(Locale.ROOT).replaceAll("[^a-z]", "")) {
+            case "date" -> Column.DATE;
+            case "category", "type" -> Column.CATEGORY;
+            case "amount" -> Column.AMOUNT;
+            case "description", "memo", "notes" -> Column.DESCRIPTION;
+            case "property", "propertyid" -> Column.PROPERTY;
+            default -> null;
+        };
+    }
+
+    private static LocalDate parseDate(String value) {
+        for (DateTimeFormatter format : TEXT_DATE_FORMATS) {
+            try {
+                return LocalDate.parse(value, format);
+            } catch (DateTimeParseException e) {
+                // try the next format
+            }
+        }
+        throw new IllegalArgumentException("Invalid date: " + value);
+    }
+
+    /**
+     * Parses amounts such as "1200.5", "$1,200.50" or "(45.00)" for a negative value.
+     */
+    private static BigDecimal parseAmount(String value) {
+        String cleaned = value.replaceAll("[$,\\s]", "");
+        boolean negative = cleaned.startsWith("(") && cleaned.endsWith(")");
+        if (negative) {
+            cleaned = cleaned.substring(1, cleaned.length() - 1);
+        }
+        try {
+            BigDecimal amount = new BigDecimal(cleaned);
+            return negative ? amount.negate() : amount;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid amount: " + value);
+        }
+    }
+
+    private static Long parsePropertyId(String value) {
+        try {
+            return new BigDecimal(value).longValueExact();
+        } catch (ArithmeticException | NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid property id: " + value);
+        }
+    }
+
+    /**
+     * Formats date cells as ISO dates and other numeric cells as plain numbers,
+     * so display formats such as currency or thousands separators never reach the parser.
+     */
+    private static class RawValueFormatter extends DataFormatter {
+
+        @Override
+        public String formatRawCellContents(double value, int formatIndex, String formatString,
+                                            boolean use1904Windowing) {
+            if (DateUtil.isADateFormat(formatIndex, formatString) && DateUtil.isValidExcelDate(value)) {
+                return DateUtil.getLocalDateTime(value, use1904Windowing).toLocalDate().toString();
+            }
+            return BigDecimal.valueOf(value).stripTrailingZeros().toPlainString();
+        }
+    }
+}
@@ -0,0 +1,304 @@
+package property_pilot.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import property_pilot.model.Expense;
+import property_pilot.repository.ExpenseRepository;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Fills the database with a seeded, realistic-looking ledger for load and scale testing:
+ * N properties, any number of expenses (tens of millions is fine; rows are written in JDBC
+ * batches, never held in memory) and receipt files of configurable sizes.
+ * Recurring categories (rent, mortgage, HOA, insurance) fall on the 1st of the month, the rest
+ * anywhere; utilities run higher in winter; amounts are log-normal around a per-category median.
+ * Ids come from the entities' own sequences, so the running application never collides with them.
+ * Runs on startup when property_pilot.generator.enabled is true; the same seed gives the same data.
+ */
+@Service
+public class SyntheticDataGenerator {
+
+    private static final Logger log = LoggerFactory.getLogger(SyntheticDataGenerator.class);
+
+    private static final int BATCH_SIZE = 10_000;
+
+    // Must match the allocationSize of the entities' @SequenceGenerator: each sequence value v covers ids v-49..v
+    private static final int ID_BLOCK = 50;
+
+    private static final String[] STREETS = {"Main", "Oak", "Pine", "Maple", "Cedar", "Elm", "Lake", "Hill", "Park", "River"};
+
+    // Category, share of rows, median amount, recurring on the 1st
+    private record Category(String name, double weight, double median, boolean recurring) {
+    }
+
+    private static final List<Category> CATEGORIES = List.of(
+            new Category("rent", 0.24, 1800, true),
+            new Category("mortgage", 0.14, 1400, true),
+            new Category("hoa", 0.08, 250, true),
+            new Category("insurance", 0.04, 120, true),
+            new Category("utilities", 0.22, 140, false),
+            new Category("maintenance", 0.14, 220, false),
+            new Category("repair", 0.10, 450, false),
+            new Category("tax", 0.04, 900, false));
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ExpenseRepository expenseRepository;
+
+    @Autowired
+    private ReceiptService receiptService;
+
+    @Autowired
+    private MonthlyTotalsService monthlyTotalsService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private ExpenseSearchIndex searchIndex;
+
+    @Autowired
+    private CategoryDictionary categoryDictionary;
+
+    @Autowired
+    private LedgerSnapshot ledgerSnapshot;
+
+    @Value("${property_pilot.generator.enabled:false}")
+    private boolean generateOnStartup;
+
+    @Value("${property_pilot.generator.properties:100}")
+    private int propertyCount;
+
+    @Value("${property_pilot.generator.expenses:100000}")
+    private long expenseCount;
+
+    @Value("${property_pilot.generator.receipts:1000}")
+    private int receiptCount;
+
+    @Value("${property_pilot.generator.receipt-min-size:20KB}")
+    private DataSize receiptMinSize;
+
+    @Value("${property_pilot.generator.receipt-max-size:2MB}")
+    private DataSize receiptMaxSize;
+
+    @Value("${property_pilot.generator.years:10}")
+    private int years;
+
+    @Value("${property_pilot.generator.seed:42}")
+    private long seed;
+
+    /**
+     * What a run created.
+     */
+    public record Result(int properties, long expenses, int receipts, long receiptBytes, long millis) {
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void generateIfEnabled() throws IOException {
+        if (generateOnStartup) {
+            log.info("Generating {} properties, {} expenses and {} receipts (seed {})",
+                    propertyCount, expenseCount, receiptCount, seed);
+            log.info("Synthetic data: {}", generate(propertyCount, expenseCount, receiptCount));
+        }
+    }
+
+    /**
+     * Adds the given numbers of properties, expenses and receipts, then rebuilds the monthly
+     * rollup, the search index and the analytics snapshot and clears the caches. Expenses are spread over the configured number of years up to today.
+     */
+    public Result generate(int properties, long expenses, int receipts) throws IOException {
+        if (properties < 1 && expenses > 0) {
+            throw new IllegalArgumentException("Expenses need at least one property");
+        }
+        long start = System.currentTimeMillis();
+        Random random = new Random(seed);
+
+        long[] propertyIds = insertProperties(properties, random);
+        long[] receiptIds = insertExpenses(expenses, propertyIds, Math.min(receipts, expenses), random);
+        monthlyTotalsService.rebuild();
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+        searchIndex.rebuild();
+        ledgerSnapshot.rebuild();
+
+        long receiptBytes = 0;
+        for (long id : receiptIds) {
+            receiptBytes += attachReceipt(id, random);
+        }
+        return new Result(properties, expenses, receiptIds.length, receiptBytes, System.currentTimeMillis() - start);
+    }
+
+    private long[] insertProperties(int count, Random random) {
+        IdAllocator ids = new IdAllocator("property_seq");
+        long[] propertyIds = new long[count];
+        List<Object[]> rows = new ArrayList<>(count);
+        Timestamp now = Timestamp.from(Instant.now());
+        for (int i = 0; i < count; i++) {
+            propertyIds[i] = ids.next();
+            rows.add(new Object[]{propertyIds[i], "Property " + (i + 1),
+                    (1 + random.nextInt(9999)) + " " + STREETS[random.nextInt(STREETS.length)] + " Street", now});
+        }
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO properties (id, name, address, version, last_modified) VALUES (?, ?, ?, 0, ?)", rows);
+        return propertyIds;
+    }
+
+    /**
+     * Inserts the expenses batch by batch. Returns the ids picked (uniformly, by reservoir
+     * sampling) to get a receipt.
+     */
+    private long[] insertExpenses(long count, long[] propertyIds, long receipts, Random random) {
+        IdAllocator ids = new IdAllocator("expense_seq");
+        Map<String, Integer> categoryCodes = new HashMap<>();
+        for (Category category : CATEGORIES) {
+            categoryCodes.put(category.name(), categoryDictionary.code(category.name()));
+        }
+        long[] picked = new long[(int) receipts];
+        LocalDate last = LocalDate.now();
+        LocalDate first = last.minusYears(years);
+        int days = (int) (last.toEpochDay() - first.toEpochDay());
+        Timestamp now = Timestamp.from(Instant.now());
+
+        List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+        for (long n = 0; n < count; n++) {
+            long id = ids.next();
+            if (n < picked.length) {
+                picked[(int) n] = id;
+            } else {
+                long slot = (long) (random.nextDouble() * (n + 1));
+                if (slot < picked.length) {
+                    picked[(int) slot] = id;
+                }
+            }
+
+            Category category = pickCategory(random);
+            LocalDate date = first.plusDays(random.nextInt(days + 1));
+            if (category.recurring()) {
+                date = date.withDayOfMonth(1);
+            }
+            double amount = category.median() * Math.exp(0.5 * random.nextGaussian());
+            if (category.name().equals("utilities")) {
+                // Heating: winter bills about twice the summer ones
+                amount *= 1 + 0.5 * Math.cos(2 * Math.PI * (date.getMonthValue() - 1) / 12.0);
+            }
+            batch.add(new Object[]{
+                    id,
+                    // Skewed towards the first properties, as real portfolios are
+                    propertyIds[(int) (propertyIds.length * Math.pow(random.nextDouble(), 1.5))],
+                    Date.valueOf(date),
+                    categoryCodes.get(category.name()),
+                    BigDecimal.valueOf(amount).setScale(2, RoundingMode.HALF_UP),
+                    random.nextInt(4) == 0 ? category.name() + " #" + (1 + random.nextInt(999)) : null,
+                    now
+            });
+            if (batch.size() == BATCH_SIZE) {
+                insertExpenseBatch(batch);
+            }
+        }
+        insertExpenseBatch(batch);
+        Arrays.sort(picked);
+        return picked;
+    }
+
+    private void insertExpenseBatch(List<Object[]> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO expenses (id, property_id, date, category_id, amount, description,"
+                + " version, last_modified) VALUES (?, ?, ?, ?, ?, ?, 0, ?)", batch);
+        batch.clear();
+    }
+
+    private static Category pickCategory(Random random) {
+        double r = random.nextDouble();
+        for (Category category : CATEGORIES) {
+            r -= category.weight();
+            if (r < 0) {
+                return category;
+            }
+        }
+        return CATEGORIES.get(CATEGORIES.size() - 1);
+    }
+
+    /**
+     * Attaches a receipt of random size (log-uniform between the configured bounds) through
+     * the normal receipt path. Text statements compress; "scanned" PDFs are noise and do not.
+     */
+    private long attachReceipt(long expenseId, Random random) throws IOException {
+        Expense expense = expenseRepository.findById(expenseId).orElse(null);
+        if (expense == null) {
+            return 0;
+        }
+        double minLog = Math.log(Math.max(1, receiptMinSize.toBytes()));
+        double maxLog = Math.log(Math.max(receiptMinSize.toBytes(), receiptMaxSize.toBytes()));
+        int size = (int) Math.exp(minLog + random.nextDouble() * (maxLog - minLog));
+
+        byte[] content = new byte[size];
+        String fileName;
+        if (random.nextBoolean()) {
+            byte[] line = ("Statement " + expenseId + ": " + expense.getCategory() + " " + expense.getAmount() + "\n")
+                    .getBytes(StandardCharsets.UTF_8);
+            for (int i = 0; i < size; i++) {
+                content[i] = line[i % line.length];
+            }
+            fileName = "statement-" + expenseId + ".txt";
+        } else {
+            random.nextBytes(content);
+            fileName = "scan-" + expenseId + ".pdf";
+        }
+        receiptService.attach(expense, fileName, null, new ByteArrayInputStream(content));
+        return size;
+    }
+
+    /**
+     * Hands out ids from a pooled sequence the way Hibernate does: each value v reserves v-49..v.
+     */
+    private class IdAllocator {
+
+        private final String sequence;
+        private long next;
+        private long last = -1;
+
+        IdAllocator(String sequence) {
+            this.sequence = sequence;
+        }
+
+        long next() {
+            while (next > last) {
+                Long value = jdbcTemplate.queryForObject("SELECT NEXT VALUE FOR " + sequence, Long.class);
+                // On its first call Hibernate takes the start value (1) and the next one as a single block
+                // (1..51); leaving both to it keeps the blocks disjoint whoever gets there first
+                if (value > 2 * ID_BLOCK) {
+                    next = value - ID_BLOCK + 1;
+                    last = value;
+                }
+            }
+            return next++;
+        }
+    }
+}
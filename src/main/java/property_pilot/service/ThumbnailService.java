@@ -0,0 +1,224 @@
+package property_pilot.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import property_pilot.model.Expense;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Makes small JPEG previews of image receipts on a fixed pool of worker threads.
+ * The work queue is bounded: when it is full a job is skipped rather than queued or run on the
+ * caller, and the preview is made later when it is first asked for. Large images are subsampled
+ * while they are decoded, so a worker never holds a full-resolution scan in memory.
+ * Thumbnails sit next to the receipt file, at {receiptPath}.thumb.jpg. A receipt that cannot be
+ * decoded gets an empty {receiptPath}.thumb.failed marker instead, so it is not tried again.
+ */
+@Service
+public class ThumbnailService {
+
+    public enum Status { READY, PENDING, UNAVAILABLE }
+
+    static final String THUMBNAIL_SUFFIX = ".thumb.jpg";
+
+    static final String FAILED_SUFFIX = ".thumb.failed";
+
+    @Autowired
+    private FileStorageService storage;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${property_pilot.receipts.thumbnail-size:256}")
+    private int maxEdge;
+
+    @Value("${property_pilot.receipts.thumbnail-threads:2}")
+    private int threads;
+
+    @Value("${property_pilot.receipts.thumbnail-queue:100}")
+    private int queueCapacity;
+
+    // Receipt paths with a job queued or running
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+
+    private ThreadPoolExecutor executor;
+    private ExecutorService monitoredExecutor;
+    private Counter rejected;
+    private Counter failed;
+    private Timer duration;
+
+    @PostConstruct
+    void start() {
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread t = new Thread(r, "thumbnail-" + threadCount.incrementAndGet());
+                    t.setDaemon(true);
+                    t.setPriority(Thread.MIN_PRIORITY);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        // executor.queued, executor.active, executor.completed, ... tagged name=thumbnails
+        monitoredExecutor = ExecutorServiceMetrics.monitor(meterRegistry, executor, "thumbnails");
+        rejected = meterRegistry.counter("receipts.thumbnails.rejected");
+        failed = meterRegistry.counter("receipts.thumbnails.failed");
+        duration = meterRegistry.timer("receipts.thumbnails.duration");
+    }
+
+    /**
+     * Queues a thumbnail for the expense's receipt if it is an image that has none yet.
+     */
+    public Status request(Expense expense) {
+        String receiptPath = expense.getReceiptPath();
+        if (receiptPath == null || !isImage(expense.getReceiptContentType())) {
+            return Status.UNAVAILABLE;
+        }
+        if (Files.exists(thumbnailFile(receiptPath))) {
+            return Status.READY;
+        }
+        if (Files.exists(failedMarker(receiptPath))) {
+            return Status.UNAVAILABLE;
+        }
+        // Identical receipts share a blob, so one job covers all of them
+        if (!pending.add(receiptPath)) {
+            return Status.PENDING;
+        }
+        try {
+            monitoredExecutor.execute(() -> {
+                try {
+                    duration.record(() -> generate(receiptPath));
+                } finally {
+                    pending.remove(receiptPath);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            pending.remove(receiptPath);
+            rejected.increment();
+        }
+        return Status.PENDING;
+    }
+
+    /**
+     * Location of the thumbnail for a stored receipt; it may not exist yet.
+     */
+    public Path thumbnailFile(String receiptPath) {
+        return storage.resolve(receiptPath + THUMBNAIL_SUFFIX);
+    }
+
+    /**
+     * Location of the marker left when a stored receipt could not be decoded.
+     */
+    public Path failedMarker(String receiptPath) {
+        return storage.resolve(receiptPath + FAILED_SUFFIX);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void generate(String receiptPath) {
+        Path source = storage.resolve(receiptPath);
+        Path target = thumbnailFile(receiptPath);
+        try {
+            BufferedImage image;
+            try {
+                image = readSubsampled(source);
+            } catch (IOException | RuntimeException e) {
+                // Truncated or otherwise corrupt content
+                image = null;
+            }
+            if (image == null) {
+                failed.increment();
+                if (Files.exists(source)) {
+                    Files.write(failedMarker(receiptPath), new byte[0]);
+                }
+                return;
+            }
+            Path temp = Files.createTempFile(target.getParent(), "thumb-", ".tmp");
+            try {
+                ImageIO.write(scale(image), "jpg", temp.toFile());
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException | RuntimeException e) {
+            failed.increment();
+        }
+    }
+
+    /**
+     * Decodes the image, skipping rows and columns so it comes out at most about
+     * twice the thumbnail size. Returns null if no ImageIO reader understands the file.
+     */
+    private BufferedImage readSubsampled(Path source) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(source.toFile())) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                int longest = Math.max(reader.getWidth(0), reader.getHeight(0));
+                int step = Math.max(1, longest / (maxEdge * 2));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(step, step, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private BufferedImage scale(BufferedImage image) {
+        double ratio = Math.min(1.0, (double) maxEdge / Math.max(image.getWidth(), image.getHeight()));
+        int width = Math.max(1, (int) Math.round(image.getWidth() * ratio));
+        int height = Math.max(1, (int) Math.round(image.getHeight() * ratio));
+        // JPEG has no alpha channel; transparent areas become white
+        BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = scaled.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, width, height);
+            g.drawImage(image, 0, 0, width, height, null);
+        } finally {
+            g.dispose();
+        }
+        return scaled;
+    }
+
+    private static boolean isImage(String contentType) {
+        return contentType != null && contentType.startsWith("image/");
+    }
+}
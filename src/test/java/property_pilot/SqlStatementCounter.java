@@ -0,0 +1,27 @@
+package property_pilot;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+
+/**
+ * Counts the JDBC statements Hibernate prepares while an action runs.
+ * Requires hibernate.generate_statistics, which the test profile turns on.
+ */
+public class SqlStatementCounter {
+
+    private final Statistics statistics;
+
+    public SqlStatementCounter(EntityManagerFactory entityManagerFactory) {
+        this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    /**
+     * Runs the action and returns how many statements were prepared meanwhile.
+     */
+    public long count(Runnable action) {
+        statistics.clear();
+        action.run();
+        return statistics.getPrepareStatementCount();
+    }
+}
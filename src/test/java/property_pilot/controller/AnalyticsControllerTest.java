@@ -0,0 +1,162 @@
+package property_pilot.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.*;
+import org.springframework.test.context.ActiveProfiles;
+
+import property_pilot.model.Expense;
+import property_pilot.model.LedgerTotal;
+import property_pilot.model.Property;
+import property_pilot.service.LedgerSnapshot;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * Integration tests for AnalyticsController.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+public class AnalyticsControllerTest {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    private ApiFixtures fixtures;
+
+    @Autowired
+    private LedgerSnapshot ledgerSnapshot;
+
+    private String getBaseUrl(String path) {
+        return "http://localhost:" + port + path;
+    }
+
+    @BeforeEach
+    void createFixtures() {
+        fixtures = new ApiFixtures(restTemplate, port);
+    }
+
+    @Test
+    void testAggregatesFollowWrites() {
+        Integer propertyId = fixtures.createProperty("Analytics Property");
+        Integer otherId = fixtures.createProperty("Other Analytics Property");
+        fixtures.createExpense(propertyId, "2031-01-05", "rent", "1000.00");
+        fixtures.createExpense(propertyId, "2031-01-20", "repair", "50.50");
+        fixtures.createExpense(propertyId, "2031-02-01", "Rent", "1000.00");
+        fixtures.createExpense(propertyId, "2032-01-01", "rent", "1100.00");
+        Integer lateRepair = fixtures.createExpense(propertyId, "2032-03-10", "repair", "10.00");
+        fixtures.createExpense(otherId, "2031-01-01", "rent", "500.00");
+
+        ResponseEntity<Map[]> monthly = restTemplate.getForEntity(
+                getBaseUrl("/api/analytics/monthly?propertyId=" + propertyId + "&start=2031-01-01&end=2031-12-31"),
+                Map[].class
+        );
+        assertThat(monthly.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(monthly.getBody())
+                .extracting(r -> r.get("period"), r -> r.get("total"), r -> r.get("count"))
+                .containsExactly(
+                        tuple("2031-01", 1050.5, 2),
+                        tuple("2031-02", 1000.0, 1));
+
+        ResponseEntity<Map[]> trends = restTemplate.getForEntity(
+                getBaseUrl("/api/analytics/categories?propertyId=" + propertyId + "&period=year"),
+                Map[].class
+        );
+        assertThat(trends.getBody())
+                .extracting(r -> r.get("category"), r -> r.get("period"), r -> r.get("total"))
+                .containsExactly(
+                        tuple("rent", "2031", 2000.0),
+                        tuple("rent", "2032", 1100.0),
+                        tuple("repair", "2031", 50.5),
+                        tuple("repair", "2032", 10.0));
+
+        ResponseEntity<Map[]> byProperty = restTemplate.getForEntity(
+                getBaseUrl("/api/analytics/totals?category=rent&start=2031-01-01&end=2032-12-31&groupBy=property"),
+                Map[].class
+        );
+        assertThat(byProperty.getBody())
+                .extracting(r -> r.get("propertyId"), r -> r.get("category"), r -> r.get("total"))
+                .containsExactly(
+                        tuple(propertyId, "rent", 3100.0),
+                        tuple(otherId, "rent", 500.0));
+
+        // A delete is reflected straight away
+        restTemplate.delete(getBaseUrl("/api/expenses/" + lateRepair));
+        ResponseEntity<Map[]> yearOverYear = restTemplate.getForEntity(
+                getBaseUrl("/api/analytics/year-over-year?propertyId=" + propertyId),
+                Map[].class
+        );
+        assertThat(yearOverYear.getBody())
+                .extracting(r -> r.get("year"), r -> r.get("total"), r -> r.get("previousTotal"))
+                .containsExactly(
+                        tuple(2031, 2050.5, null),
+                        tuple(2032, 1100.0, 2050.5));
+        assertThat((Double) yearOverYear.getBody()[1].get("change")).isCloseTo(-0.4635, within(0.0001));
+    }
+
+    @Test
+    void testRejectsUnknownGrouping() {
+        assertThat(restTemplate.getForEntity(getBaseUrl("/api/analytics/categories?period=week"), String.class)
+                .getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(restTemplate.getForEntity(getBaseUrl("/api/analytics/totals?groupBy=colour"), String.class)
+                .getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    void testSnapshotReportsSize() {
+        ResponseEntity<Map> stats = restTemplate.postForEntity(
+                getBaseUrl("/api/analytics/snapshot/rebuild"), null, Map.class);
+        assertThat(stats.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(stats.getBody()).containsEntry("deleted", 0).containsKey("loadMillis");
+        assertThat(((Number) stats.getBody().get("estimatedBytes")).longValue()).isPositive();
+    }
+
+    @Test
+    void testSnapshotFindsRowsCommittedOutOfIdOrder() {
+        // Not in the database; ids far above what the sequence hands out here
+        Property property = new Property();
+        property.setId(990_001L);
+        long[] commitOrder = {9_000_000_010L, 9_000_000_030L, 9_000_000_020L, 9_000_000_040L, 9_000_000_015L};
+        for (long id : commitOrder) {
+            ledgerSnapshot.add(expense(id, property, "100.00"));
+        }
+        // A replay overwrites rather than duplicates
+        ledgerSnapshot.add(expense(9_000_000_020L, property, "50.00"));
+        ledgerSnapshot.remove(9_000_000_015L);
+        ledgerSnapshot.remove(9_000_000_040L);
+
+        List<LedgerTotal> totals = ledgerSnapshot.totals(property.getId(), null, null, null,
+                false, false, LedgerSnapshot.Period.NONE);
+        assertThat(totals).extracting(LedgerTotal::total, LedgerTotal::count)
+                .containsExactly(tuple(new BigDecimal("250.00"), 3L));
+
+        for (long id : commitOrder) {
+            ledgerSnapshot.remove(id);
+        }
+        assertThat(ledgerSnapshot.totals(property.getId(), null, null, null, false, false,
+                LedgerSnapshot.Period.NONE)).isEmpty();
+    }
+
+    private static Expense expense(long id, Property property, String amount) {
+        Expense expense = new Expense();
+        expense.setId(id);
+        expense.setProperty(property);
+        expense.setDate(LocalDate.of(2040, 1, 1));
+        expense.setAmount(new BigDecimal(amount));
+        return expense;
+    }
+}
@@ -0,0 +1,93 @@
+package property_pilot.controller;
+
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.http.*;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Creates the properties, expenses and receipts the integration tests start from, through
+ * the API, failing the test if any call is rejected.
+ */
+class ApiFixtures {
+
+    private final TestRestTemplate restTemplate;
+    private final int port;
+
+    ApiFixtures(TestRestTemplate restTemplate, int port) {
+        this.restTemplate = restTemplate;
+        this.port = port;
+    }
+
+    private String getBaseUrl(String path) {
+        return "http://localhost:" + port + path;
+    }
+
+    Integer createProperty(String name) {
+        ResponseEntity<Map> response = restTemplate.postForEntity(
+                getBaseUrl("/api/properties"),
+                Map.of("name", name, "address", "1 Helper St"),
+                Map.class
+        );
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        return (Integer) response.getBody().get("id");
+    }
+
+    Integer createExpense(Integer propertyId, String date, String category, String amount) {
+        return createExpense(propertyId, date, category, amount, null);
+    }
+
+    Integer createExpense(Integer propertyId, String date, String category, String amount, String description) {
+        Map<String, Object> expense = new HashMap<>(Map.of(
+                "property", Map.of("id", propertyId),
+                "date", date,
+                "category", category,
+                "amount", new BigDecimal(amount)
+        ));
+        if (description != null) {
+            expense.put("description", description);
+        }
+        ResponseEntity<Map> response = restTemplate.postForEntity(getBaseUrl("/api/expenses"), expense, Map.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        return (Integer) response.getBody().get("id");
+    }
+
+    void uploadReceipt(Integer expenseId, String filename, byte[] content) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.MULTIPART_FORM_DATA);
+        MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
+        body.add("file", new ByteArrayResource(content) {
+            @Override
+            public String getFilename() {
+                return filename;
+            }
+        });
+        ResponseEntity<String> response = restTemplate.postForEntity(
+                getBaseUrl("/api/expenses/" + expenseId + "/upload"),
+                new HttpEntity<>(body, headers),
+                String.class
+        );
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+    }
+
+    /**
+     * The stored receipt path of one of the property's expenses, or null if it has none.
+     */
+    String receiptPathOf(Integer propertyId, Integer expenseId) {
+        ResponseEntity<List> response = restTemplate.getForEntity(
+                getBaseUrl("/api/expenses/property/" + propertyId), List.class);
+        return ((List<Map<String, Object>>) response.getBody()).stream()
+                .filter(e -> expenseId.equals(e.get("id")))
+                .findFirst()
+                .map(e -> (String) e.get("receiptPath"))
+                .orElse(null);
+    }
+}
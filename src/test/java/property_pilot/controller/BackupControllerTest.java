@@ -0,0 +1,148 @@
+package property_pilot.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.*;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Integration tests for BackupController.
+ * Runs against its own database, receipts directory and backup directory, since a restore
+ * replaces the whole database.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.datasource.url=jdbc:h2:mem:backupdb;DB_CLOSE_DELAY=-1",
+        "property_pilot.receipts.base-dir=/tmp/property_pilot_test/backup/receipts",
+        "property_pilot.backup.dir=/tmp/property_pilot_test/backup/snapshots"
+})
+@ActiveProfiles("test")
+public class BackupControllerTest {
+
+    private static final Path BACKUP_DIR = Path.of("/tmp/property_pilot_test/backup/snapshots");
+
+    private static final Path RECEIPTS_DIR = Path.of("/tmp/property_pilot_test/backup/receipts");
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    private ApiFixtures fixtures;
+
+    private String getBaseUrl(String path) {
+        return "http://localhost:" + port + path;
+    }
+
+    @BeforeEach
+    void createFixtures() {
+        fixtures = new ApiFixtures(restTemplate, port);
+    }
+
+    @BeforeEach
+    void cleanBackups() throws IOException {
+        FileSystemUtils.deleteRecursively(BACKUP_DIR);
+        FileSystemUtils.deleteRecursively(RECEIPTS_DIR);
+    }
+
+    @Test
+    void testIncrementalBackupAndRestore() {
+        Integer propertyId = fixtures.createProperty("Backup Property");
+        Integer expenseId = fixtures.createExpense(propertyId, "2019-01-01", "repair", "99.00");
+        putReceipt(expenseId, "Backed up receipt.");
+
+        Map<String, Object> first = restTemplate.postForObject(getBaseUrl("/api/backups"), null, Map.class);
+        assertThat(first.get("files")).isEqualTo(1);
+        assertThat(first.get("changedFiles")).isEqualTo(1);
+
+        // Nothing changed: the file is neither read nor copied again
+        Map<String, Object> second = restTemplate.postForObject(getBaseUrl("/api/backups"), null, Map.class);
+        assertThat(second.get("unchangedFiles")).isEqualTo(1);
+        assertThat(second.get("changedFiles")).isEqualTo(0);
+        assertThat(second.get("copiedBytes")).isEqualTo(0);
+
+        // Losing the expense also deletes its receipt file; the restore brings both back
+        restTemplate.delete(getBaseUrl("/api/expenses/" + expenseId));
+        assertThat(listExpenses(propertyId)).isEmpty();
+
+        String snapshot = (String) second.get("snapshot");
+        assertThat(restTemplate.getForObject(getBaseUrl("/api/backups"), List.class)).endsWith(snapshot);
+        ResponseEntity<Map> restored = restTemplate.postForEntity(
+                getBaseUrl("/api/backups/" + snapshot + "/restore"), null, Map.class);
+        assertThat(restored.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(restored.getBody().get("restored")).isEqualTo(true);
+
+        assertThat(listExpenses(propertyId)).extracting(e -> e.get("id")).containsExactly(expenseId);
+        assertThat(restTemplate.getForObject(getBaseUrl("/api/expenses/" + expenseId + "/receipt"), String.class))
+                .isEqualTo("Backed up receipt.");
+    }
+
+    @Test
+    void testVerifyAndRestoreRejectCorruptObjects() throws IOException {
+        Integer propertyId = fixtures.createProperty("Corrupt Property");
+        putReceipt(fixtures.createExpense(propertyId, "2019-01-01", "repair", "99.00"), "Receipt that will rot.");
+        putReceipt(fixtures.createExpense(propertyId, "2019-01-01", "repair", "99.00"), "Receipt that stays sound.");
+        Map<String, Object> backup = restTemplate.postForObject(getBaseUrl("/api/backups"), null, Map.class);
+        String snapshot = (String) backup.get("snapshot");
+
+        Path sound = null;
+        try (Stream<Path> receipts = Files.walk(RECEIPTS_DIR)) {
+            for (Path receipt : receipts.filter(Files::isRegularFile).toList()) {
+                if (Files.readString(receipt).equals("Receipt that stays sound.")) {
+                    sound = receipt;
+                }
+            }
+        }
+        try (Stream<Path> objects = Files.walk(BACKUP_DIR.resolve("objects"))) {
+            for (Path object : objects.filter(Files::isRegularFile).toList()) {
+                if (Files.readString(object).equals("Receipt that will rot.")) {
+                    Files.writeString(object, "bit rot");
+                }
+            }
+        }
+        // Changed after the backup: a restore would put the backed-up content back
+        Files.writeString(sound, "Changed since the backup.");
+
+        Map<String, Object> verified = restTemplate.postForObject(
+                getBaseUrl("/api/backups/" + snapshot + "/verify"), null, Map.class);
+        assertThat((List<?>) verified.get("corrupt")).isNotEmpty();
+
+        ResponseEntity<Map> restore = restTemplate.postForEntity(
+                getBaseUrl("/api/backups/" + snapshot + "/restore"), null, Map.class);
+        assertThat(restore.getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+        assertThat(restore.getBody().get("restored")).isEqualTo(false);
+        assertThat((List<?>) restore.getBody().get("corrupt")).hasSize(1);
+        // Nothing was copied back, not even the objects that were sound
+        assertThat(sound).hasContent("Changed since the backup.");
+
+        assertThat(restTemplate.postForEntity(getBaseUrl("/api/backups/nope/verify"), null, Map.class)
+                .getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
+    private void putReceipt(Integer expenseId, String content) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.TEXT_PLAIN);
+        ResponseEntity<String> response = restTemplate.exchange(
+                getBaseUrl("/api/expenses/" + expenseId + "/receipt?filename=receipt.txt"), HttpMethod.PUT,
+                new HttpEntity<>(content.getBytes(), headers), String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+    }
+
+    private List<Map<String, Object>> listExpenses(Integer propertyId) {
+        return restTemplate.getForObject(getBaseUrl("/api/expenses/property/" + propertyId), List.class);
+    }
+}
@@ -0,0 +1,97 @@
+package property_pilot.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import property_pilot.service.CategoryMigrationService;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+/**
+ * Integration test for moving a ledger with free-text categories onto the category dictionary.
+ * Rewrites the schema to the old layout, so it runs against its own database.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties =
+        "spring.datasource.url=jdbc:h2:mem:categorydb;DB_CLOSE_DELAY=-1")
+@ActiveProfiles("test")
+public class CategoryMigrationTest {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private CategoryMigrationService migrationService;
+
+    private String getBaseUrl(String path) {
+        return "http://localhost:" + port + path;
+    }
+
+    @Test
+    void testMigratesFreeTextCategories() {
+        // The schema as it was: category text on expenses and in the rollup key, no dictionary
+        jdbcTemplate.execute("DELETE FROM expenses");
+        jdbcTemplate.execute("DROP TABLE expense_monthly_totals");
+        jdbcTemplate.execute("CREATE TABLE expense_monthly_totals (property_id BIGINT NOT NULL,"
+                + " expense_month VARCHAR(7) NOT NULL, category VARCHAR(255) NOT NULL,"
+                + " total NUMERIC(38, 2) NOT NULL, expense_count BIGINT NOT NULL,"
+                + " PRIMARY KEY (property_id, expense_month, category))");
+        jdbcTemplate.execute("ALTER TABLE expenses DROP COLUMN category_id");
+        jdbcTemplate.execute("ALTER TABLE expenses ADD COLUMN category VARCHAR(255) NOT NULL DEFAULT ''");
+        jdbcTemplate.execute("DROP TABLE categories");
+
+        jdbcTemplate.update("INSERT INTO properties (id, name) VALUES (9001, 'Legacy Property')");
+        String[] texts = {"Rent", " rent", "RENT", "Homeowners Association", "Plumbing"};
+        for (int i = 0; i < texts.length; i++) {
+            jdbcTemplate.update("INSERT INTO expenses (id, property_id, date, category, amount)"
+                    + " VALUES (?, 9001, DATE '2021-03-01', ?, 10.00)", 9001 + i, texts[i]);
+        }
+
+        CategoryMigrationService.Result result = migrationService.migrate();
+        assertThat(result).isEqualTo(new CategoryMigrationService.Result(5, 3, 5));
+
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM INFORMATION_SCHEMA.COLUMNS"
+                + " WHERE TABLE_NAME = 'EXPENSES' AND COLUMN_NAME = 'CATEGORY'", Integer.class)).isZero();
+        assertThat(jdbcTemplate.queryForList("SELECT name FROM categories ORDER BY name", String.class))
+                .containsExactly("hoa", "plumbing", "rent");
+
+        // Entities, the rebuilt rollup and new writes all work off the codes
+        ResponseEntity<Map[]> rows = restTemplate.getForEntity(getBaseUrl("/api/expenses/property/9001"), Map[].class);
+        assertThat(rows.getBody()).extracting(r -> r.get("category"))
+                .containsExactly("rent", "rent", "rent", "hoa", "plumbing");
+        ResponseEntity<Map> created = restTemplate.postForEntity(getBaseUrl("/api/expenses"), Map.of(
+                "property", Map.of("id", 9001),
+                "date", "2021-03-15",
+                "category", "Plumbing",
+                "amount", new BigDecimal("5.00")), Map.class);
+        assertThat(created.getStatusCode()).isEqualTo(HttpStatus.OK);
+
+        ResponseEntity<Map[]> categories = restTemplate.getForEntity(
+                getBaseUrl("/api/summary/categories?propertyId=9001"), Map[].class);
+        assertThat(categories.getBody())
+                .extracting(r -> r.get("category"), r -> r.get("total"), r -> r.get("count"))
+                .containsExactly(
+                        tuple("hoa", 10.0, 1),
+                        tuple("plumbing", 15.0, 2),
+                        tuple("rent", 30.0, 3));
+
+        // Nothing left to do the second time
+        assertThat(migrationService.migrate()).isEqualTo(new CategoryMigrationService.Result(0, 0, 0));
+    }
+}
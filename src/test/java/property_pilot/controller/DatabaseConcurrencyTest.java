@@ -0,0 +1,101 @@
+package property_pilot.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+
+import property_pilot.config.ConcurrencyLimitingDataSource;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Integration tests for the database concurrency limit used in virtual-thread mode.
+ * Switched on explicitly here, since virtual threads themselves need Java 21+.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.datasource.url=jdbc:h2:mem:limitdb;DB_CLOSE_DELAY=-1",
+        "property_pilot.db.limit-concurrency=true",
+        "property_pilot.db.max-concurrency=2",
+        "property_pilot.db.acquire-timeout=5s"
+})
+@ActiveProfiles("test")
+public class DatabaseConcurrencyTest {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private String getBaseUrl(String path) {
+        return "http://localhost:" + port + path;
+    }
+
+    @Test
+    void testConcurrentRequestsShareTheLimitedConnections() throws Exception {
+        assertThat(dataSource).isInstanceOf(ConcurrencyLimitingDataSource.class);
+        ConcurrencyLimitingDataSource limited = (ConcurrencyLimitingDataSource) dataSource;
+        assertThat(limited.getLimit()).isEqualTo(2);
+
+        ExecutorService clients = Executors.newFixedThreadPool(16);
+        try {
+            List<Future<ResponseEntity<Map>>> responses = new ArrayList<>();
+            for (int i = 0; i < 48; i++) {
+                int n = i;
+                responses.add(clients.submit(() -> restTemplate.postForEntity(getBaseUrl("/api/properties"),
+                        Map.of("name", "Limited " + n, "address", n + " Queue St"), Map.class)));
+            }
+            for (Future<ResponseEntity<Map>> response : responses) {
+                assertThat(response.get().getStatusCode()).isEqualTo(HttpStatus.OK);
+            }
+        } finally {
+            clients.shutdown();
+        }
+
+        // Every permit came back with its connection
+        assertThat(limited.getActive()).isZero();
+        assertThat(limited.getWaiting()).isZero();
+    }
+
+    @Test
+    void testConcurrentCreatesWithNewCategoriesDoNotStarveEachOther() throws Exception {
+        Integer propertyId = (Integer) restTemplate.postForEntity(getBaseUrl("/api/properties"),
+                Map.of("name", "Category Race"), Map.class).getBody().get("id");
+
+        // Each adds a category, which must not need a second connection while holding the first
+        ExecutorService clients = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<ResponseEntity<Map>>> responses = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                int n = i;
+                responses.add(clients.submit(() -> restTemplate.postForEntity(getBaseUrl("/api/expenses"),
+                        Map.of("property", Map.of("id", propertyId), "date", "2020-01-01",
+                                "category", "race category " + n, "amount", new BigDecimal("1.00")),
+                        Map.class)));
+            }
+            for (Future<ResponseEntity<Map>> response : responses) {
+                assertThat(response.get().getStatusCode()).isEqualTo(HttpStatus.OK);
+            }
+        } finally {
+            clients.shutdown();
+        }
+        assertThat(((ConcurrencyLimitingDataSource) dataSource).getActive()).isZero();
+    }
+}
@@ -1,30 +1,51 @@
 package property_pilot.controller;
 
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import property_pilot.model.Expense;
+import property_pilot.repository.ExpenseRepository;
+import property_pilot.service.ReceiptService;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.client.TestRestTemplate;
 import org.springframework.boot.test.web.server.LocalServerPort;
 import org.springframework.core.io.ByteArrayResource;
 import org.springframework.http.*;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.core.io.ByteArrayResource;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
 
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.math.BigDecimal;
+import java.time.Instant;
 import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.List;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
 
 /**
  * Integration tests for ExpenseController.
@@ -40,10 +61,23 @@ public class ExpenseControllerTest {
     @Autowired
     private TestRestTemplate restTemplate;
 
+    private ApiFixtures fixtures;
+
+    @Autowired
+    private ExpenseRepository expenseRepository;
+
+    @Autowired
+    private ReceiptService receiptService;
+
     private String getBaseUrl(String path) {
         return "http://localhost:" + port + path;
     }
 
+    @BeforeEach
+    void createFixtures() {
+        fixtures = new ApiFixtures(restTemplate, port);
+    }
+
     @BeforeEach
     void cleanTestDirectory() throws IOException {
         Path testDir = Path.of("/tmp/property_pilot_test/receipts");
@@ -393,4 +427,749 @@ public class ExpenseControllerTest {
         }
         assertThat(receiptCleared).isTrue();
     }
+
+    @Test
+    void testListExpensesByPropertyPaginatesWithCursor() {
+        Integer propertyId = fixtures.createProperty("Paging Property");
+        fixtures.createExpense(propertyId, "2024-03-01", "rent", "1000.00");
+        fixtures.createExpense(propertyId, "2024-01-01", "rent", "1000.00");
+        fixtures.createExpense(propertyId, "2024-02-01", "rent", "1000.00");
+
+        // First page: two oldest rows plus a cursor
+        ResponseEntity<Map[]> firstPage = restTemplate.getForEntity(
+                getBaseUrl("/api/expenses/property/" + propertyId + "?limit=2"),
+                Map[].class
+        );
+
+        assertThat(firstPage.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(firstPage.getBody()).extracting(e -> e.get("date"))
+                .containsExactly("2024-01-01", "2024-02-01");
+        String cursor = firstPage.getHeaders().getFirst(ExpenseController.NEXT_CURSOR_HEADER);
+        assertThat(cursor).isNotBlank();
+
+        // Second page: the remaining row and no further cursor
+        ResponseEntity<Map[]> secondPage = restTemplate.getForEntity(
+                getBaseUrl("/api/expenses/property/" + propertyId + "?limit=2&cursor=" + cursor),
+                Map[].class
+        );
+
+        assertThat(secondPage.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(secondPage.getBody()).extracting(e -> e.get("date"))
+                .containsExactly("2024-03-01");
+        assertThat(secondPage.getHeaders().containsKey(ExpenseController.NEXT_CURSOR_HEADER)).isFalse();
+    }
+
+    @Test
+    void testListExpensesRejectsMalformedCursor() {
+        ResponseEntity<String> response = restTemplate.getForEntity(
+                getBaseUrl("/api/expenses?cursor=not-a-cursor"),
+                String.class
+        );
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    void testExportExpensesAsNdjsonAndCsv() {
+        Integer propertyId = fixtures.createProperty("Export Property");
+        fixtures.createExpense(propertyId, "2023-05-01", "hoa", "120.00");
+        fixtures.createExpense(propertyId, "2023-06-01", "hoa", "120.00");
+
+        // NDJSON is the default format
+        ResponseEntity<String> ndjson = restTemplate.getForEntity(
+                getBaseUrl("/api/expenses/export?propertyId=" + propertyId),
+                String.class
+        );
+
+        assertThat(ndjson.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(ndjson.getHeaders().getContentType().isCompatibleWith(ExpenseController.APPLICATION_NDJSON)).isTrue();
+        assertThat(ndjson.getBody().lines()).hasSize(2).allMatch(line -> line.startsWith("{"));
+
+        // CSV is picked with the Accept header and honours the date filter
+        HttpHeaders headers = new HttpHeaders();
+        headers.setAccept(List.of(ExpenseController.TEXT_CSV));
+        ResponseEntity<String> csv = restTemplate.exchange(
+                getBaseUrl("/api/expenses/export?propertyId=" + propertyId + "&start=2023-06-01&end=2023-06-30"),
+                HttpMethod.GET,
+                new HttpEntity<>(headers),
+                String.class
+        );
+
+        assertThat(csv.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(csv.getBody().lines()).hasSize(2);
+        assertThat(csv.getBody()).startsWith("id,date,propertyId").contains(",2023-06-01," + propertyId + ",hoa,120.00,");
+    }
+
+    @Test
+    void testBulkCreateReportsRejectedRows() {
+        Integer propertyId = fixtures.createProperty("Bulk Property");
+
+        List<Map<String, Object>> rows = List.of(
+                Map.of("property", Map.of("id", propertyId), "date", "2023-02-01",
+                        "category", "rent", "amount", new BigDecimal("900.00")),
+                Map.of("property", Map.of("id", 999999), "date", "2023-02-01",
+                        "category", "rent", "amount", new BigDecimal("900.00")),
+                Map.of("property", Map.of("id", propertyId), "date", "2023-02-01",
+                        "amount", new BigDecimal("900.00"))
+        );
+
+        ResponseEntity<Map> response = restTemplate.postForEntity(
+                getBaseUrl("/api/expenses/bulk"),
+                rows,
+                Map.class
+        );
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody().get("inserted")).isEqualTo(1);
+        assertThat(response.getBody().get("rejected")).isEqualTo(2);
+        assertThat((List<Map>) response.getBody().get("errors"))
+                .extracting(e -> e.get("row"))
+                .containsExactlyInAnyOrder(2, 3);
+
+        ResponseEntity<Map[]> listResponse = restTemplate.getForEntity(
+                getBaseUrl("/api/expenses/property/" + propertyId),
+                Map[].class
+        );
+        assertThat(listResponse.getBody()).hasSize(1);
+    }
+
+    @Test
+    void testImportXlsxStatement() throws IOException {
+        Integer propertyId = fixtures.createProperty("Statement Property");
+
+        byte[] workbook;
+        try (XSSFWorkbook wb = new XSSFWorkbook(); ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            CellStyle dateStyle = wb.createCellStyle();
+            dateStyle.setDataFormat(wb.getCreationHelper().createDataFormat().getFormat("m/d/yy"));
+            Sheet sheet = wb.createSheet("Statement");
+
+            Row header = sheet.createRow(0);
+            header.createCell(0).setCellValue("Date");
+            header.createCell(1).setCellValue("Category");
+            header.createCell(2).setCellValue("Amount");
+            header.createCell(3).setCellValue("Memo");
+
+            Row good = sheet.createRow(1);
+            good.createCell(0).setCellValue(LocalDate.of(2023, 7, 4));
+            good.getCell(0).setCellStyle(dateStyle);
+            good.createCell(1).setCellValue("maintenance");
+            good.createCell(2).setCellValue(310.25);
+            good.createCell(3).setCellValue("Plumber");
+
+            Row bad = sheet.createRow(2);
+            bad.createCell(0).setCellValue("not a date");
+            bad.createCell(1).setCellValue("maintenance");
+            bad.createCell(2).setCellValue(10);
+
+            Row text = sheet.createRow(3);
+            text.createCell(0).setCellValue("2023-07-05");
+            text.createCell(1).setCellValue("utilities");
+            text.createCell(2).setCellValue("$1,020.00");
+
+            wb.write(out);
+            workbook = out.toByteArray();
+        }
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.MULTIPART_FORM_DATA);
+        MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
+        body.add("file", new ByteArrayResource(workbook) {
+            @Override
+            public String getFilename() {
+                return "statement.xlsx";
+            }
+        });
+
+        ResponseEntity<Map> response = restTemplate.postForEntity(
+                getBaseUrl("/api/expenses/import/xlsx?propertyId=" + propertyId),
+                new HttpEntity<>(body, headers),
+                Map.class
+        );
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody().get("inserted")).isEqualTo(2);
+        assertThat(response.getBody().get("rejected")).isEqualTo(1);
+
+        ResponseEntity<Map[]> listResponse = restTemplate.getForEntity(
+                getBaseUrl("/api/expenses/property/" + propertyId),
+                Map[].class
+        );
+        assertThat(listResponse.getBody())
+                .extracting(e -> e.get("date"), e -> e.get("amount"), e -> e.get("description"))
+                .containsExactly(
+                        tuple("2023-07-04", 310.25, "Plumber"),
+                        tuple("2023-07-05", 1020.0, null));
+    }
+
+    @Test
+    void testExportWorkbookHasSheetPerProperty() throws IOException {
+        Integer firstId = fixtures.createProperty("Workbook North");
+        Integer secondId = fixtures.createProperty("Workbook South");
+        fixtures.createExpense(firstId, "2019-12-01", "rent", "1000.00");
+        fixtures.createExpense(firstId, "2019-12-15", "hoa", "250.50");
+        fixtures.createExpense(secondId, "2019-12-20", "rent", "800.00");
+
+        ResponseEntity<byte[]> response = restTemplate.getForEntity(
+                getBaseUrl("/api/expenses/export/xlsx?start=2019-12-01&end=2019-12-31"),
+                byte[].class
+        );
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        try (XSSFWorkbook wb = new XSSFWorkbook(new ByteArrayInputStream(response.getBody()))) {
+            Sheet north = wb.getSheet(firstId + " Workbook North");
+            assertThat(north).isNotNull();
+            assertThat(north.getRow(1).getCell(1).getStringCellValue()).isEqualTo("rent");
+            assertThat(north.getRow(2).getCell(2).getNumericCellValue()).isEqualTo(250.50);
+            assertThat(north.getRow(3).getCell(2).getCellFormula()).isEqualTo("SUM(C2:C3)");
+
+            Sheet south = wb.getSheet(secondId + " Workbook South");
+            assertThat(south).isNotNull();
+            assertThat(south.getLastRowNum()).isEqualTo(2);
+        }
+    }
+
+    @Test
+    void testSearchCombinesPropertyDateAndCategory() {
+        Integer propertyId = fixtures.createProperty("Search Property");
+        Integer otherId = fixtures.createProperty("Other Search Property");
+        fixtures.createExpense(propertyId, "2018-07-10", "repair", "200.00");
+        fixtures.createExpense(propertyId, "2018-08-10", "repair", "300.00");
+        fixtures.createExpense(propertyId, "2018-08-12", "rent", "900.00");
+        fixtures.createExpense(propertyId, "2018-10-01", "repair", "400.00");
+        fixtures.createExpense(otherId, "2018-08-10", "repair", "500.00");
+
+        ResponseEntity<Map[]> response = restTemplate.getForEntity(
+                getBaseUrl("/api/expenses/search?propertyId=" + propertyId
+                        + "&start=2018-07-01&end=2018-09-30&category=repair"),
+                Map[].class
+        );
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody()).extracting(e -> e.get("date"))
+                .containsExactly("2018-07-10", "2018-08-10");
+
+        // Keyset paging works the same as the other list endpoints
+        ResponseEntity<Map[]> firstPage = restTemplate.getForEntity(
+                getBaseUrl("/api/expenses/search?propertyId=" + propertyId + "&limit=3"),
+                Map[].class
+        );
+        String cursor = firstPage.getHeaders().getFirst(ExpenseController.NEXT_CURSOR_HEADER);
+        ResponseEntity<Map[]> secondPage = restTemplate.getForEntity(
+                getBaseUrl("/api/expenses/search?propertyId=" + propertyId + "&limit=3&cursor=" + cursor),
+                Map[].class
+        );
+        assertThat(secondPage.getBody()).extracting(e -> e.get("date")).containsExactly("2018-10-01");
+    }
+
+    @Test
+    void testTextSearchRanksPrefixMatchesAndFollowsWrites() {
+        Integer propertyId = fixtures.createProperty("Text Search Property");
+        Integer otherId = fixtures.createProperty("Other Text Search Property");
+        Integer plumber = fixtures.createExpense(propertyId, "2019-03-02", "repair", "180.00",
+                "Zephyrine plumber, kitchen sink");
+        Integer faucet = fixtures.createExpense(propertyId, "2019-05-20", "maintenance", "60.00",
+                "Zephyrine kitchen faucet");
+        fixtures.createExpense(propertyId, "2019-06-01", "repair", "90.00", "Zephyrine roof flashing");
+        fixtures.createExpense(otherId, "2019-03-15", "repair", "75.00", "Zephyrine kitchen tiles");
+
+        // Every word of the query matched, "kitch" as a prefix, beats matching only some
+        ResponseEntity<Map[]> response = restTemplate.getForEntity(
+                getBaseUrl("/api/expenses/search/text?q=zephyrine plumb kitch&propertyId=" + propertyId),
+                Map[].class
+        );
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody()).extracting(e -> e.get("id")).startsWith(plumber, faucet).hasSize(3);
+
+        ResponseEntity<Map[]> filtered = restTemplate.getForEntity(
+                getBaseUrl("/api/expenses/search/text?q=zephyrine kitchen&start=2019-03-01&end=2019-03-31"),
+                Map[].class
+        );
+        assertThat(filtered.getBody()).extracting(e -> e.get("description"))
+                .containsExactlyInAnyOrder("Zephyrine plumber, kitchen sink", "Zephyrine kitchen tiles");
+
+        // Deletes drop out of results without a rebuild
+        restTemplate.delete(getBaseUrl("/api/expenses/" + plumber));
+        ResponseEntity<Map[]> afterDelete = restTemplate.getForEntity(
+                getBaseUrl("/api/expenses/search/text?q=zephyrine"), Map[].class);
+        assertThat(afterDelete.getBody()).extracting(e -> e.get("id")).doesNotContain(plumber).hasSize(3);
+
+        ResponseEntity<Map> stats = restTemplate.postForEntity(
+                getBaseUrl("/api/expenses/search/text/index/rebuild"), null, Map.class);
+        assertThat(stats.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(stats.getBody()).containsEntry("deleted", 0);
+        assertThat(((Number) stats.getBody().get("estimatedBytes")).longValue()).isPositive();
+        assertThat(restTemplate.getForObject(
+                getBaseUrl("/api/expenses/search/text?q=zephyr"), Map[].class)).hasSize(3);
+    }
+
+    @Test
+    void testConditionalGetReturnsNotModified() {
+        Integer propertyId = fixtures.createProperty("Conditional Property");
+        fixtures.createExpense(propertyId, "2017-01-01", "rent", "700.00");
+        String url = getBaseUrl("/api/expenses/property/" + propertyId);
+
+        ResponseEntity<String> first = restTemplate.getForEntity(url, String.class);
+        String etag = first.getHeaders().getETag();
+        assertThat(etag).isNotBlank();
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setIfNoneMatch(etag);
+        ResponseEntity<String> unchanged = restTemplate.exchange(url, HttpMethod.GET, new HttpEntity<>(headers), String.class);
+        assertThat(unchanged.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(unchanged.getBody()).isNull();
+
+        // A new row changes the tag
+        fixtures.createExpense(propertyId, "2017-02-01", "rent", "700.00");
+        ResponseEntity<String> changed = restTemplate.exchange(url, HttpMethod.GET, new HttpEntity<>(headers), String.class);
+        assertThat(changed.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(changed.getHeaders().getETag()).isNotEqualTo(etag);
+    }
+
+    @Test
+    void testReceiptDownloadHonoursValidators() {
+        Integer propertyId = fixtures.createProperty("Validator Property");
+        Integer expenseId = fixtures.createExpense(propertyId, "2017-03-01", "repair", "90.00");
+        fixtures.uploadReceipt(expenseId, "validator.txt", "Validator receipt.".getBytes());
+        String url = getBaseUrl("/api/expenses/" + expenseId + "/receipt");
+
+        ResponseEntity<byte[]> first = restTemplate.getForEntity(url, byte[].class);
+        assertThat(first.getHeaders().getETag()).isNotBlank();
+        assertThat(first.getHeaders().getLastModified()).isPositive();
+
+        HttpHeaders byTag = new HttpHeaders();
+        byTag.setIfNoneMatch(first.getHeaders().getETag());
+        assertThat(restTemplate.exchange(url, HttpMethod.GET, new HttpEntity<>(byTag), byte[].class).getStatusCode())
+                .isEqualTo(HttpStatus.NOT_MODIFIED);
+
+        HttpHeaders byDate = new HttpHeaders();
+        byDate.setIfModifiedSince(first.getHeaders().getLastModified());
+        assertThat(restTemplate.exchange(url, HttpMethod.GET, new HttpEntity<>(byDate), byte[].class).getStatusCode())
+                .isEqualTo(HttpStatus.NOT_MODIFIED);
+    }
+
+    @Test
+    void testReceiptDownloadServesByteRanges() {
+        Integer propertyId = fixtures.createProperty("Range Property");
+        Integer expenseId = fixtures.createExpense(propertyId, "2017-04-01", "repair", "90.00");
+        fixtures.uploadReceipt(expenseId, "range.txt", "0123456789abcdefghij".getBytes());
+        String url = getBaseUrl("/api/expenses/" + expenseId + "/receipt");
+
+        // Single range
+        HttpHeaders single = new HttpHeaders();
+        single.set(HttpHeaders.RANGE, "bytes=5-9");
+        ResponseEntity<byte[]> partial = restTemplate.exchange(url, HttpMethod.GET, new HttpEntity<>(single), byte[].class);
+        assertThat(partial.getStatusCode()).isEqualTo(HttpStatus.PARTIAL_CONTENT);
+        assertThat(partial.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 5-9/20");
+        assertThat(partial.getHeaders().getContentType()).isEqualTo(MediaType.TEXT_PLAIN);
+        assertThat(new String(partial.getBody())).isEqualTo("56789");
+
+        // Suffix range resumes at the tail
+        single.set(HttpHeaders.RANGE, "bytes=-3");
+        ResponseEntity<byte[]> tail = restTemplate.exchange(url, HttpMethod.GET, new HttpEntity<>(single), byte[].class);
+        assertThat(new String(tail.getBody())).isEqualTo("hij");
+
+        // Multi-range
+        HttpHeaders multi = new HttpHeaders();
+        multi.set(HttpHeaders.RANGE, "bytes=0-1,10-11");
+        ResponseEntity<String> parts = restTemplate.exchange(url, HttpMethod.GET, new HttpEntity<>(multi), String.class);
+        assertThat(parts.getStatusCode()).isEqualTo(HttpStatus.PARTIAL_CONTENT);
+        assertThat(parts.getHeaders().getContentType().toString()).startsWith("multipart/byteranges");
+        assertThat(parts.getBody()).contains("Content-Range: bytes 0-1/20\r\n\r\n01")
+                .contains("Content-Range: bytes 10-11/20\r\n\r\nab");
+
+        // Unsatisfiable
+        single.set(HttpHeaders.RANGE, "bytes=50-60");
+        ResponseEntity<byte[]> outside = restTemplate.exchange(url, HttpMethod.GET, new HttpEntity<>(single), byte[].class);
+        assertThat(outside.getStatusCode()).isEqualTo(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE);
+    }
+
+    @Test
+    void testReceiptRangeHonoursIfRange() {
+        Integer propertyId = fixtures.createProperty("If-Range Property");
+        Integer expenseId = fixtures.createExpense(propertyId, "2017-05-01", "repair", "90.00");
+        fixtures.uploadReceipt(expenseId, "ifrange.txt", "0123456789abcdefghij".getBytes());
+        String url = getBaseUrl("/api/expenses/" + expenseId + "/receipt");
+        ResponseEntity<byte[]> first = restTemplate.getForEntity(url, byte[].class);
+
+        // Matching ETag: the range is served
+        HttpHeaders matching = new HttpHeaders();
+        matching.set(HttpHeaders.RANGE, "bytes=5-9");
+        matching.set(HttpHeaders.IF_RANGE, first.getHeaders().getETag());
+        ResponseEntity<byte[]> partial = restTemplate.exchange(url, HttpMethod.GET, new HttpEntity<>(matching), byte[].class);
+        assertThat(partial.getStatusCode()).isEqualTo(HttpStatus.PARTIAL_CONTENT);
+        assertThat(new String(partial.getBody())).isEqualTo("56789");
+
+        // Stale ETag: the whole receipt instead
+        HttpHeaders stale = new HttpHeaders();
+        stale.set(HttpHeaders.RANGE, "bytes=5-9");
+        stale.set(HttpHeaders.IF_RANGE, "\"0000-stale\"");
+        ResponseEntity<byte[]> whole = restTemplate.exchange(url, HttpMethod.GET, new HttpEntity<>(stale), byte[].class);
+        assertThat(whole.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(whole.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE)).isNull();
+        assertThat(new String(whole.getBody())).isEqualTo("0123456789abcdefghij");
+
+        // HTTP-date: the range only while it matches Last-Modified
+        HttpHeaders byDate = new HttpHeaders();
+        byDate.set(HttpHeaders.RANGE, "bytes=5-9");
+        byDate.setZonedDateTime(HttpHeaders.IF_RANGE,
+                Instant.ofEpochMilli(first.getHeaders().getLastModified()).atZone(ZoneOffset.UTC));
+        ResponseEntity<byte[]> current = restTemplate.exchange(url, HttpMethod.GET, new HttpEntity<>(byDate), byte[].class);
+        assertThat(current.getStatusCode()).isEqualTo(HttpStatus.PARTIAL_CONTENT);
+        assertThat(new String(current.getBody())).isEqualTo("56789");
+
+        byDate.setZonedDateTime(HttpHeaders.IF_RANGE,
+                Instant.ofEpochMilli(first.getHeaders().getLastModified()).minusSeconds(60).atZone(ZoneOffset.UTC));
+        ResponseEntity<byte[]> older = restTemplate.exchange(url, HttpMethod.GET, new HttpEntity<>(byDate), byte[].class);
+        assertThat(older.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(new String(older.getBody())).isEqualTo("0123456789abcdefghij");
+    }
+
+    @Test
+    void testIdenticalReceiptsShareOneBlob() throws IOException {
+        Integer propertyId = fixtures.createProperty("Shared Bill Property");
+        Integer first = fixtures.createExpense(propertyId, "2017-05-01", "utilities", "40.00");
+        Integer second = fixtures.createExpense(propertyId, "2017-05-01", "utilities", "60.00");
+        byte[] invoice = "Split utility invoice.".getBytes();
+        fixtures.uploadReceipt(first, "invoice.txt", invoice);
+        fixtures.uploadReceipt(second, "invoice-copy.txt", invoice);
+
+        String firstPath = fixtures.receiptPathOf(propertyId, first);
+        assertThat(firstPath).startsWith("blobs/").isEqualTo(fixtures.receiptPathOf(propertyId, second));
+        Path blob = Path.of("/tmp/property_pilot_test/receipts", firstPath);
+        assertThat(blob).hasContent("Split utility invoice.");
+
+        // Still referenced by the second expense
+        restTemplate.delete(getBaseUrl("/api/expenses/" + first + "/receipt"));
+        assertThat(blob).exists();
+        ResponseEntity<String> download = restTemplate.getForEntity(
+                getBaseUrl("/api/expenses/" + second + "/receipt"), String.class);
+        assertThat(download.getBody()).isEqualTo("Split utility invoice.");
+        assertThat(download.getHeaders().getContentDisposition().getFilename()).isEqualTo("invoice-copy.txt");
+
+        // Deleting the last expense that uses it removes the blob
+        restTemplate.delete(getBaseUrl("/api/expenses/" + second));
+        assertThat(blob).doesNotExist();
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void testRolledBackReceiptChangeLeavesFilesAlone() throws IOException {
+        Integer propertyId = fixtures.createProperty("Rollback Property");
+        Integer expenseId = fixtures.createExpense(propertyId, "2017-05-10", "repair", "20.00");
+        fixtures.uploadReceipt(expenseId, "kept.txt", "Kept receipt.".getBytes());
+        Path kept = Path.of("/tmp/property_pilot_test/receipts", fixtures.receiptPathOf(propertyId, expenseId));
+
+        // A stale copy fails its version check, so the replacement rolls back
+        Expense stale = expenseRepository.findById(expenseId.longValue()).orElseThrow();
+        stale.setVersion(stale.getVersion() - 1);
+        assertThatThrownBy(() -> receiptService.attach(stale, "new.txt", "text/plain",
+                new ByteArrayInputStream("Never committed.".getBytes())))
+                .isInstanceOf(ObjectOptimisticLockingFailureException.class);
+
+        // The old receipt was not released, and the new blob was removed again
+        assertThat(kept).hasContent("Kept receipt.");
+        try (Stream<Path> blobs = Files.walk(Path.of("/tmp/property_pilot_test/receipts/blobs"))) {
+            assertThat(blobs.filter(Files::isRegularFile)).containsExactly(kept);
+        }
+        ResponseEntity<String> download = restTemplate.getForEntity(
+                getBaseUrl("/api/expenses/" + expenseId + "/receipt"), String.class);
+        assertThat(download.getBody()).isEqualTo("Kept receipt.");
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void testMigratesLegacyReceiptTree() throws IOException {
+        Integer propertyId = fixtures.createProperty("Legacy Property");
+        Integer expenseId = fixtures.createExpense(propertyId, "2017-06-01", "repair", "75.00");
+        Path legacyDir = Path.of("/tmp/property_pilot_test/receipts",
+                propertyId + "_Legacy_Property", expenseId + "_repair_2017-06-01");
+        Files.createDirectories(legacyDir);
+        Files.writeString(legacyDir.resolve("old.txt"), "Legacy receipt.");
+        Expense expense = expenseRepository.findById(expenseId.longValue()).orElseThrow();
+        expense.setReceiptPath(propertyId + "_Legacy_Property/" + expenseId + "_repair_2017-06-01/old.txt");
+        expenseRepository.save(expense);
+
+        ResponseEntity<Map> result = restTemplate.postForEntity(
+                getBaseUrl("/api/expenses/receipts/migrate"), null, Map.class);
+        assertThat(result.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(result.getBody().get("migrated")).isEqualTo(1);
+
+        assertThat(fixtures.receiptPathOf(propertyId, expenseId)).startsWith("blobs/");
+        assertThat(legacyDir.getParent()).doesNotExist();
+        ResponseEntity<String> download = restTemplate.getForEntity(
+                getBaseUrl("/api/expenses/" + expenseId + "/receipt"), String.class);
+        assertThat(download.getBody()).isEqualTo("Legacy receipt.");
+        assertThat(download.getHeaders().getContentDisposition().getFilename()).isEqualTo("old.txt");
+
+        restTemplate.delete(getBaseUrl("/api/expenses/" + expenseId));
+        restTemplate.delete(getBaseUrl("/api/properties/" + propertyId));
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void testDeletingPropertyCascadesAndCleansUpReceipts() throws Exception {
+        Integer propertyId = fixtures.createProperty("Sold Property");
+        Integer otherId = fixtures.createProperty("Kept Property");
+        Integer own = fixtures.createExpense(propertyId, "2017-08-01", "repair", "90.00", "cascadeunique boiler");
+        Integer shared = fixtures.createExpense(propertyId, "2017-08-02", "utilities", "30.00");
+        Integer legacy = fixtures.createExpense(propertyId, "2017-08-03", "repair", "15.00");
+        Integer kept = fixtures.createExpense(otherId, "2017-08-02", "utilities", "30.00");
+        fixtures.uploadReceipt(own, "boiler.txt", "Boiler invoice.".getBytes());
+        fixtures.uploadReceipt(shared, "water.txt", "Shared water bill.".getBytes());
+        fixtures.uploadReceipt(kept, "water.txt", "Shared water bill.".getBytes());
+        Path ownBlob = Path.of("/tmp/property_pilot_test/receipts", fixtures.receiptPathOf(propertyId, own));
+        Path sharedBlob = Path.of("/tmp/property_pilot_test/receipts", fixtures.receiptPathOf(otherId, kept));
+        Path legacyDir = Path.of("/tmp/property_pilot_test/receipts", propertyId + "_Sold_Property");
+        Files.createDirectories(legacyDir.resolve(legacy + "_repair_2017-08-03"));
+        Files.writeString(legacyDir.resolve(legacy + "_repair_2017-08-03/old.txt"), "Legacy receipt.");
+        Expense legacyExpense = expenseRepository.findById(legacy.longValue()).orElseThrow();
+        legacyExpense.setReceiptPath(propertyId + "_Sold_Property/" + legacy + "_repair_2017-08-03/old.txt");
+        expenseRepository.save(legacyExpense);
+
+        ResponseEntity<Map> deleted = restTemplate.exchange(getBaseUrl("/api/properties/" + propertyId),
+                HttpMethod.DELETE, null, Map.class);
+        assertThat(deleted.getStatusCode()).isEqualTo(HttpStatus.ACCEPTED);
+        assertThat(deleted.getBody()).containsEntry("expenses", 3).containsEntry("blobs", 2);
+
+        // The ledger side is gone as soon as the call returns
+        assertThat(restTemplate.getForEntity(getBaseUrl("/api/expenses/property/" + propertyId),
+                List.class).getBody()).isEmpty();
+        assertThat(restTemplate.getForEntity(getBaseUrl("/api/summary/monthly?propertyId=" + propertyId),
+                List.class).getBody()).isEmpty();
+        assertThat(restTemplate.getForEntity(getBaseUrl("/api/analytics/totals?propertyId=" + propertyId),
+                List.class).getBody()).isEmpty();
+        assertThat(restTemplate.getForEntity(getBaseUrl("/api/expenses/search/text?q=cascadeunique"),
+                List.class).getBody()).isEmpty();
+
+        // The files follow in the background
+        String progressUrl = getBaseUrl(deleted.getHeaders().getLocation().toString());
+        Map progress = restTemplate.getForObject(progressUrl, Map.class);
+        for (int i = 0; i < 100 && !"DONE".equals(progress.get("state")); i++) {
+            Thread.sleep(50);
+            progress = restTemplate.getForObject(progressUrl, Map.class);
+        }
+        assertThat(progress).containsEntry("state", "DONE").containsEntry("blobsDone", 2)
+                .containsEntry("blobsPurged", 1).containsEntry("legacyFiles", 1);
+        assertThat(ownBlob).doesNotExist();
+        assertThat(legacyDir).doesNotExist();
+        assertThat(sharedBlob).exists();
+        assertThat(restTemplate.getForEntity(getBaseUrl("/api/expenses/" + kept + "/receipt"), String.class)
+                .getBody()).isEqualTo("Shared water bill.");
+        assertThat(restTemplate.getForEntity(getBaseUrl("/api/properties/deletions/999999"), String.class)
+                .getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
+    @Test
+    void testStreamingReceiptUpload() {
+        Integer propertyId = fixtures.createProperty("Streaming Property");
+        Integer expenseId = fixtures.createExpense(propertyId, "2017-07-01", "repair", "80.00");
+        String url = getBaseUrl("/api/expenses/" + expenseId + "/receipt");
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
+        headers.setContentDisposition(ContentDisposition.attachment().filename("scan.txt").build());
+        ResponseEntity<String> put = restTemplate.exchange(url, HttpMethod.PUT,
+                new HttpEntity<>("Streamed scan.".getBytes(), headers), String.class);
+        assertThat(put.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(put.getHeaders().getETag()).hasSize(66);
+
+        ResponseEntity<String> download = restTemplate.getForEntity(url, String.class);
+        assertThat(download.getBody()).isEqualTo("Streamed scan.");
+        assertThat(download.getHeaders().getContentType()).isEqualTo(MediaType.TEXT_PLAIN);
+        assertThat(download.getHeaders().getETag()).isEqualTo(put.getHeaders().getETag());
+    }
+
+    @Test
+    void testStreamingReceiptUploadRejectsOversizedBody() {
+        Integer propertyId = fixtures.createProperty("Oversize Property");
+        Integer expenseId = fixtures.createExpense(propertyId, "2017-08-01", "repair", "80.00");
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
+        ResponseEntity<String> put = restTemplate.exchange(
+                getBaseUrl("/api/expenses/" + expenseId + "/receipt?filename=big.pdf"), HttpMethod.PUT,
+                new HttpEntity<>(new byte[65 * 1024], headers), String.class);
+        assertThat(put.getStatusCode()).isEqualTo(HttpStatus.PAYLOAD_TOO_LARGE);
+        assertThat(fixtures.receiptPathOf(propertyId, expenseId)).isNull();
+    }
+
+    @Test
+    void testMultipartReceiptUploadStreamsFilePart() {
+        Integer propertyId = fixtures.createProperty("Multipart Property");
+        Integer expenseId = fixtures.createExpense(propertyId, "2017-08-02", "repair", "80.00");
+
+        // Every byte value, line breaks that look like the start of a boundary, and more than one read buffer
+        byte[] content = new byte[40 * 1024];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) i;
+        }
+        byte[] lookalike = "\r\n--\r\n--".getBytes();
+        for (int i = 0; i + lookalike.length < content.length; i += 4099) {
+            System.arraycopy(lookalike, 0, content, i, lookalike.length);
+        }
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.MULTIPART_FORM_DATA);
+        MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
+        body.add("note", "sent before the file");
+        body.add("file", new ByteArrayResource(content) {
+            @Override
+            public String getFilename() {
+                return "scan.bin";
+            }
+        });
+        body.add("after", "sent after the file");
+        ResponseEntity<String> upload = restTemplate.postForEntity(
+                getBaseUrl("/api/expenses/" + expenseId + "/upload"), new HttpEntity<>(body, headers), String.class);
+        assertThat(upload.getStatusCode()).isEqualTo(HttpStatus.OK);
+
+        ResponseEntity<byte[]> download = restTemplate.getForEntity(
+                getBaseUrl("/api/expenses/" + expenseId + "/receipt"), byte[].class);
+        assertThat(download.getBody()).isEqualTo(content);
+        assertThat(download.getHeaders().getContentDisposition().getFilename()).isEqualTo("scan.bin");
+    }
+
+    @Test
+    void testMultipartReceiptUploadRejectsOversizedOrMissingFile() {
+        Integer propertyId = fixtures.createProperty("Multipart Limit Property");
+        Integer expenseId = fixtures.createExpense(propertyId, "2017-08-03", "repair", "80.00");
+        String url = getBaseUrl("/api/expenses/" + expenseId + "/upload");
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.MULTIPART_FORM_DATA);
+        MultiValueMap<String, Object> oversized = new LinkedMultiValueMap<>();
+        oversized.add("file", new ByteArrayResource(new byte[65 * 1024]) {
+            @Override
+            public String getFilename() {
+                return "big.pdf";
+            }
+        });
+        assertThat(restTemplate.postForEntity(url, new HttpEntity<>(oversized, headers), String.class)
+                .getStatusCode()).isEqualTo(HttpStatus.PAYLOAD_TOO_LARGE);
+
+        MultiValueMap<String, Object> noFile = new LinkedMultiValueMap<>();
+        noFile.add("note", "no receipt attached");
+        assertThat(restTemplate.postForEntity(url, new HttpEntity<>(noFile, headers), String.class)
+                .getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+
+        HttpHeaders truncated = new HttpHeaders();
+        truncated.set(HttpHeaders.CONTENT_TYPE, "multipart/form-data; boundary=cut");
+        String cut = "--cut\r\nContent-Disposition: form-data; name=\"file\"; filename=\"cut.txt\"\r\n\r\nno end";
+        assertThat(restTemplate.postForEntity(url, new HttpEntity<>(cut.getBytes(), truncated), String.class)
+                .getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(fixtures.receiptPathOf(propertyId, expenseId)).isNull();
+    }
+
+    @Test
+    void testImageReceiptGetsThumbnail() throws Exception {
+        Integer propertyId = fixtures.createProperty("Thumbnail Property");
+        Integer photoId = fixtures.createExpense(propertyId, "2017-09-01", "repair", "30.00");
+        Integer textId = fixtures.createExpense(propertyId, "2017-09-02", "repair", "30.00");
+
+        BufferedImage photo = new BufferedImage(1200, 800, BufferedImage.TYPE_INT_RGB);
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(photo, "png", png);
+        fixtures.uploadReceipt(photoId, "photo.png", png.toByteArray());
+        fixtures.uploadReceipt(textId, "note.txt", "Not an image.".getBytes());
+
+        // Generated in the background; poll until it is ready
+        String url = getBaseUrl("/api/expenses/" + photoId + "/receipt/thumbnail");
+        ResponseEntity<byte[]> thumbnail = restTemplate.getForEntity(url, byte[].class);
+        for (int i = 0; i < 50 && thumbnail.getStatusCode() == HttpStatus.ACCEPTED; i++) {
+            Thread.sleep(100);
+            thumbnail = restTemplate.getForEntity(url, byte[].class);
+        }
+        assertThat(thumbnail.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(thumbnail.getHeaders().getContentType()).isEqualTo(MediaType.IMAGE_JPEG);
+        BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(thumbnail.getBody()));
+        assertThat(decoded.getWidth()).isEqualTo(256);
+        assertThat(decoded.getHeight()).isEqualTo(171);
+
+        assertThat(restTemplate.getForEntity(getBaseUrl("/api/expenses/" + textId + "/receipt/thumbnail"),
+                byte[].class).getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
+    @Test
+    void testUndecodableImageThumbnailIsNotRetried() throws Exception {
+        Integer propertyId = fixtures.createProperty("Broken Image Property");
+        Integer expenseId = fixtures.createExpense(propertyId, "2017-09-03", "repair", "30.00");
+        // PNG signature followed by garbage: stored as an image, but no reader can decode it
+        byte[] corrupt = new byte[64];
+        System.arraycopy(new byte[]{(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n'}, 0, corrupt, 0, 8);
+        fixtures.uploadReceipt(expenseId, "broken.png", corrupt);
+
+        String url = getBaseUrl("/api/expenses/" + expenseId + "/receipt/thumbnail");
+        ResponseEntity<byte[]> thumbnail = restTemplate.getForEntity(url, byte[].class);
+        for (int i = 0; i < 50 && thumbnail.getStatusCode() == HttpStatus.ACCEPTED; i++) {
+            Thread.sleep(100);
+            thumbnail = restTemplate.getForEntity(url, byte[].class);
+        }
+        assertThat(thumbnail.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+        Path marker = Path.of("/tmp/property_pilot_test/receipts",
+                fixtures.receiptPathOf(propertyId, expenseId) + ".thumb.failed");
+        assertThat(marker).exists();
+
+        // The marker goes with the blob
+        restTemplate.delete(getBaseUrl("/api/expenses/" + expenseId));
+        assertThat(marker).doesNotExist();
+    }
+
+    @Test
+    void testReceiptArchiveStreamsManifestAndReceipts() throws IOException {
+        Integer propertyId = fixtures.createProperty("Archive Property");
+        Integer textId = fixtures.createExpense(propertyId, "2017-10-01", "utilities", "20.00");
+        Integer photoId = fixtures.createExpense(propertyId, "2017-10-02", "repair", "35.00");
+        fixtures.createExpense(propertyId, "2017-10-03", "rent", "900.00");
+        fixtures.uploadReceipt(textId, "bill.txt", "Archived bill.".getBytes());
+        fixtures.uploadReceipt(photoId, "photo.jpg", new byte[]{(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, 0x01});
+
+        ResponseEntity<byte[]> response = restTemplate.getForEntity(
+                getBaseUrl("/api/expenses/receipts/archive?propertyId=" + propertyId), byte[].class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getHeaders().getContentType().toString()).isEqualTo("application/zip");
+
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        Map<String, Integer> methods = new HashMap<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(response.getBody()))) {
+            for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+                entries.put(entry.getName(), zip.readAllBytes());
+                methods.put(entry.getName(), entry.getMethod());
+            }
+        }
+        String textEntry = "receipts/2017-10-01_" + textId + "_bill.txt";
+        String photoEntry = "receipts/2017-10-02_" + photoId + "_photo.jpg";
+        assertThat(entries.keySet()).first().isEqualTo("manifest.csv");
+        assertThat(entries.keySet()).containsExactlyInAnyOrder("manifest.csv", textEntry, photoEntry);
+        assertThat(new String(entries.get(textEntry))).isEqualTo("Archived bill.");
+        assertThat(methods.get(textEntry)).isEqualTo(ZipEntry.DEFLATED);
+        assertThat(methods.get(photoEntry)).isEqualTo(ZipEntry.STORED);
+        assertThat(new String(entries.get("manifest.csv")).lines())
+                .hasSize(4)
+                .first().isEqualTo("id,date,propertyId,category,amount,description,receiptPath");
+    }
+
+    @Test
+    void testPrometheusScrapeExposesOperationalMetrics() {
+        Integer propertyId = fixtures.createProperty("Metrics Property");
+        Integer expenseId = fixtures.createExpense(propertyId, "2017-10-01", "repair", "80.00");
+        String url = getBaseUrl("/api/expenses/" + expenseId + "/receipt?filename=metered.txt");
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.TEXT_PLAIN);
+        restTemplate.exchange(url, HttpMethod.PUT, new HttpEntity<>("Metered receipt.".getBytes(), headers), String.class);
+        assertThat(restTemplate.getForObject(url, String.class)).isEqualTo("Metered receipt.");
+
+        String scrape = restTemplate.getForObject(getBaseUrl("/actuator/prometheus"), String.class);
+        assertThat(scrape)
+                // Per-endpoint latency histograms and percentiles
+                .contains("http_server_requests_seconds_bucket{")
+                .containsPattern("http_server_requests_seconds\\{.*uri=\"/api/expenses/\\{id\\}/receipt\",quantile=\"0\\.99\"")
+                // Receipt storage timers and byte counters
+                .containsPattern("receipts_storage_seconds_count\\{operation=\"receive\",\\} [1-9]")
+                .containsPattern("receipts_storage_seconds_count\\{operation=\"download\",\\} [1-9]")
+                .containsPattern("receipts_storage_bytes_total\\{direction=\"served\",\\} [1-9]")
+                // Connection pool, Hibernate statistics and the receipts directory gauge
+                .contains("hikaricp_connections_active")
+                .contains("hibernate_statements_total")
+                .contains("receipts_directory_size_bytes");
+    }
 } // END: public class ExpenseControllerTest 
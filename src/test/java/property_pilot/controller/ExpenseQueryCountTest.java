@@ -0,0 +1,140 @@
+package property_pilot.controller;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.*;
+import org.springframework.test.context.ActiveProfiles;
+
+import property_pilot.SqlStatementCounter;
+import property_pilot.repository.ExpenseRepository;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Guards expense endpoints against N+1 queries: each list page must be served by a
+ * single SQL statement, and bulk inserts must go out in JDBC batches.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class ExpenseQueryCountTest {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private ExpenseRepository expenseRepository;
+
+    private SqlStatementCounter counter;
+
+    private Integer propertyId;
+
+    private String getBaseUrl(String path) {
+        return "http://localhost:" + port + path;
+    }
+
+    @BeforeAll
+    void seedExpensesAcrossProperties() {
+        counter = new SqlStatementCounter(entityManagerFactory);
+        for (int p = 0; p < 3; p++) {
+            ResponseEntity<Map> property = restTemplate.postForEntity(
+                    getBaseUrl("/api/properties"),
+                    Map.of("name", "Count Property " + p),
+                    Map.class
+            );
+            propertyId = (Integer) property.getBody().get("id");
+            for (int month = 1; month <= 4; month++) {
+                restTemplate.postForEntity(
+                        getBaseUrl("/api/expenses"),
+                        Map.of(
+                                "property", Map.of("id", propertyId),
+                                "date", "2022-0" + month + "-15",
+                                "category", "utilities",
+                                "amount", new BigDecimal("42.00")
+                        ),
+                        Map.class
+                );
+            }
+        }
+    }
+
+    @Test
+    void testListAllIssuesOneStatement() {
+        assertSingleStatement("/api/expenses?limit=10");
+    }
+
+    @Test
+    void testListByPropertyIssuesOneStatement() {
+        assertSingleStatement("/api/expenses/property/" + propertyId);
+    }
+
+    @Test
+    void testListInRangeIssuesOneStatement() {
+        assertSingleStatement("/api/expenses/range?start=2022-01-01&end=2022-12-31&limit=10");
+    }
+
+    @Test
+    void testListRowsCarryPropertyIdOnly() {
+        ResponseEntity<Map[]> response = restTemplate.getForEntity(
+                getBaseUrl("/api/expenses/property/" + propertyId),
+                Map[].class
+        );
+
+        assertThat(response.getBody()).isNotEmpty().allSatisfy(row -> {
+            assertThat(row).doesNotContainKey("property");
+            assertThat(row.get("propertyId")).isEqualTo(propertyId);
+        });
+    }
+
+    @Test
+    void testBulkInsertIsBatched() {
+        StringBuilder ndjson = new StringBuilder();
+        for (int i = 0; i < 120; i++) {
+            ndjson.append("{\"property\":{\"id\":").append(propertyId)
+                  .append("},\"date\":\"2021-01-01\",\"category\":\"bulk\",\"amount\":1.00}\n");
+        }
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.valueOf("application/x-ndjson"));
+
+        long statements = counter.count(() -> {
+            ResponseEntity<Map> response = restTemplate.postForEntity(
+                    getBaseUrl("/api/expenses/bulk"),
+                    new HttpEntity<>(ndjson.toString(), headers),
+                    Map.class
+            );
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+            assertThat(response.getBody().get("inserted")).isEqualTo(120);
+        });
+
+        // One property check, a few sequence fetches and one statement per JDBC batch
+        assertThat(statements).isLessThan(12);
+
+        expenseRepository.deleteAllInBatch(expenseRepository.findByPropertyId(propertyId.longValue()).stream()
+                .filter(e -> "bulk".equals(e.getCategory()))
+                .toList());
+    }
+
+    private void assertSingleStatement(String path) {
+        long statements = counter.count(() -> {
+            ResponseEntity<Map[]> response = restTemplate.getForEntity(getBaseUrl(path), Map[].class);
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+            assertThat(response.getBody()).isNotEmpty();
+        });
+        assertThat(statements).as("SQL statements for GET %s", path).isEqualTo(1);
+    }
+}
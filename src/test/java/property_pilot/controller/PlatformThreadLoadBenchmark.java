@@ -0,0 +1,17 @@
+package property_pilot.controller;
+
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+/**
+ * RequestLoadBenchmark against Tomcat's default platform-thread pool (the current mode).
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.datasource.url=jdbc:h2:mem:loadplatformdb;DB_CLOSE_DELAY=-1",
+        "property_pilot.receipts.base-dir=/tmp/property_pilot_test/load-platform",
+        "property_pilot.receipts.max-upload-size=1MB",
+        "spring.threads.virtual.enabled=false"
+})
+@ActiveProfiles("test")
+public class PlatformThreadLoadBenchmark extends RequestLoadBenchmark {
+}
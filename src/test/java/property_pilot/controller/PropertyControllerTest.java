@@ -9,6 +9,9 @@ import org.springframework.http.*;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.transaction.annotation.Transactional;
 
+import jakarta.persistence.EntityManagerFactory;
+import property_pilot.SqlStatementCounter;
+
 import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -27,6 +30,9 @@ public class PropertyControllerTest {
     @Autowired
     private TestRestTemplate restTemplate;
 
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
     private String getBaseUrl() {
         return "http://localhost:" + port + "/api/properties";
     }
@@ -71,4 +77,64 @@ public class PropertyControllerTest {
 
         assertThat(afterDeleteResponse.getStatusCode()).isEqualTo(HttpStatus.OK);
     }
+
+    @Test
+    void testGetPropertyIsCachedAndUpdateRefreshesIt() {
+        ResponseEntity<Map> createResponse = restTemplate.postForEntity(
+                getBaseUrl(),
+                Map.of("name", "Cached Property"),
+                Map.class
+        );
+        Integer id = (Integer) createResponse.getBody().get("id");
+        SqlStatementCounter counter = new SqlStatementCounter(entityManagerFactory);
+
+        // Served from the cache populated by the create
+        long statements = counter.count(() -> {
+            ResponseEntity<Map> response = restTemplate.getForEntity(getBaseUrl() + "/" + id, Map.class);
+            assertThat(response.getBody().get("name")).isEqualTo("Cached Property");
+        });
+        assertThat(statements).isZero();
+
+        // An update replaces the cached entry
+        restTemplate.put(getBaseUrl() + "/" + id, Map.of("name", "Renamed Property"));
+        ResponseEntity<Map> afterUpdate = restTemplate.getForEntity(getBaseUrl() + "/" + id, Map.class);
+        assertThat(afterUpdate.getBody().get("name")).isEqualTo("Renamed Property");
+
+        // A delete evicts it
+        restTemplate.delete(getBaseUrl() + "/" + id);
+        ResponseEntity<Map> afterDelete = restTemplate.getForEntity(getBaseUrl() + "/" + id, Map.class);
+        assertThat(afterDelete.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
+    @Test
+    void testCacheStatisticsAreExposed() {
+        restTemplate.getForEntity(getBaseUrl(), Map[].class);
+
+        ResponseEntity<Map> metric = restTemplate.getForEntity(
+                "http://localhost:" + port + "/actuator/metrics/cache.gets?tag=cache:properties",
+                Map.class
+        );
+
+        assertThat(metric.getStatusCode()).isEqualTo(HttpStatus.OK);
+    }
+
+    @Test
+    void testPropertyListETagChangesOnUpdate() {
+        ResponseEntity<Map> createResponse = restTemplate.postForEntity(
+                getBaseUrl(),
+                Map.of("name", "Tagged Property"),
+                Map.class
+        );
+        Integer id = (Integer) createResponse.getBody().get("id");
+
+        String etag = restTemplate.getForEntity(getBaseUrl(), Map[].class).getHeaders().getETag();
+        HttpHeaders headers = new HttpHeaders();
+        headers.setIfNoneMatch(etag);
+        ResponseEntity<Map[]> unchanged = restTemplate.exchange(getBaseUrl(), HttpMethod.GET, new HttpEntity<>(headers), Map[].class);
+        assertThat(unchanged.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+
+        restTemplate.put(getBaseUrl() + "/" + id, Map.of("name", "Retagged Property"));
+        ResponseEntity<Map[]> changed = restTemplate.exchange(getBaseUrl(), HttpMethod.GET, new HttpEntity<>(headers), Map[].class);
+        assertThat(changed.getStatusCode()).isEqualTo(HttpStatus.OK);
+    }
 }
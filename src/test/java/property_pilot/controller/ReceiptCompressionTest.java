@@ -0,0 +1,123 @@
+package property_pilot.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.*;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Integration tests for receipts stored gzip-compressed at rest.
+ * Runs against its own database and receipts directory with compression switched on.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.datasource.url=jdbc:h2:mem:compressdb;DB_CLOSE_DELAY=-1",
+        "property_pilot.receipts.base-dir=/tmp/property_pilot_test/compressed",
+        "property_pilot.receipts.compression=gzip"
+})
+@ActiveProfiles("test")
+public class ReceiptCompressionTest {
+
+    private static final String BASE_DIR = "/tmp/property_pilot_test/compressed";
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    private ApiFixtures fixtures;
+
+    private String getBaseUrl(String path) {
+        return "http://localhost:" + port + path;
+    }
+
+    @BeforeEach
+    void createFixtures() {
+        fixtures = new ApiFixtures(restTemplate, port);
+    }
+
+    @Test
+    void testTextReceiptIsStoredCompressedAndServedEitherWay() throws IOException {
+        Integer propertyId = fixtures.createProperty("Compressed Property");
+        Integer expenseId = fixtures.createExpense(propertyId, "2018-01-01", "utilities", "12.50");
+        byte[] statement = "Line item: water, 12.50\n".repeat(400).getBytes(StandardCharsets.UTF_8);
+        fixtures.uploadReceipt(expenseId, "statement.txt", statement);
+
+        String receiptPath = fixtures.receiptPathOf(propertyId, expenseId);
+        assertThat(receiptPath).endsWith(".gz");
+        assertThat(Files.size(Path.of(BASE_DIR, receiptPath))).isLessThan(statement.length / 10);
+
+        // Without Accept-Encoding the receipt is decompressed on the way out
+        String url = getBaseUrl("/api/expenses/" + expenseId + "/receipt");
+        ResponseEntity<byte[]> plain = restTemplate.getForEntity(url, byte[].class);
+        assertThat(plain.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING)).isNull();
+        assertThat(plain.getHeaders().getContentLength()).isEqualTo(statement.length);
+        assertThat(plain.getBody()).isEqualTo(statement);
+
+        // With it, the stored bytes pass straight through
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate");
+        ResponseEntity<byte[]> gzipped = restTemplate.exchange(url, HttpMethod.GET, new HttpEntity<>(headers), byte[].class);
+        assertThat(gzipped.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+        assertThat(gzipped.getHeaders().getVary()).contains(HttpHeaders.ACCEPT_ENCODING);
+        assertThat(gzipped.getHeaders().getETag()).isNotEqualTo(plain.getHeaders().getETag());
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(gzipped.getBody()))) {
+            assertThat(in.readAllBytes()).isEqualTo(statement);
+        }
+    }
+
+    @Test
+    void testAlreadyCompressedFormatsAreStoredAsIs() {
+        Integer propertyId = fixtures.createProperty("Photo Property");
+        Integer expenseId = fixtures.createExpense(propertyId, "2018-01-01", "utilities", "12.50");
+        fixtures.uploadReceipt(expenseId, "photo.jpg", new byte[]{(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, 0x00});
+
+        assertThat(fixtures.receiptPathOf(propertyId, expenseId)).doesNotEndWith(".gz");
+    }
+
+    @Test
+    void testArchiveReadsReceiptDeduplicatedOntoGzippedBlob() throws IOException {
+        Integer propertyId = fixtures.createProperty("Archive Compressed Property");
+        Integer textId = fixtures.createExpense(propertyId, "2018-01-01", "utilities", "12.50");
+        Integer imageId = fixtures.createExpense(propertyId, "2018-01-01", "utilities", "12.50");
+        byte[] content = "Meter reading: 4711\n".repeat(200).getBytes(StandardCharsets.UTF_8);
+        fixtures.uploadReceipt(textId, "reading.txt", content);
+        // Same bytes under an image name: the expense says image/png, the shared blob is gzipped
+        fixtures.uploadReceipt(imageId, "reading.png", content);
+        assertThat(fixtures.receiptPathOf(propertyId, imageId)).endsWith(".gz")
+                .isEqualTo(fixtures.receiptPathOf(propertyId, textId));
+
+        ResponseEntity<byte[]> response = restTemplate.getForEntity(
+                getBaseUrl("/api/expenses/receipts/archive?propertyId=" + propertyId), byte[].class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+
+        Map<String, byte[]> entries = new HashMap<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(response.getBody()))) {
+            for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+                entries.put(entry.getName(), zip.readAllBytes());
+            }
+        }
+        assertThat(entries).containsKeys("receipts/2018-01-01_" + textId + "_reading.txt",
+                "receipts/2018-01-01_" + imageId + "_reading.png");
+        assertThat(entries.get("receipts/2018-01-01_" + imageId + "_reading.png")).isEqualTo(content);
+        assertThat(entries.get("receipts/2018-01-01_" + textId + "_reading.txt")).isEqualTo(content);
+    }
+}
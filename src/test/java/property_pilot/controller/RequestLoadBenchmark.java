@@ -0,0 +1,170 @@
+package property_pilot.controller;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.core.env.Environment;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Upload-burst load test: many concurrent clients each create an expense, upload its receipt,
+ * list the property's expenses and download the receipt, against a real server. Prints throughput
+ * and latency percentiles for the threading mode the subclass starts the server in; run both subclasses
+ * with {@code mvn test -Pbenchmark -Dtest='*ThreadLoadBenchmark'} (the virtual-thread one needs Java 21+).
+ * Size with -Dbench.clients and -Dbench.rounds.
+ */
+@Tag("benchmark")
+public abstract class RequestLoadBenchmark {
+
+    private static final int CLIENTS = Integer.getInteger("bench.clients", 400);
+    private static final int ROUNDS = Integer.getInteger("bench.rounds", 10);
+    private static final int PROPERTIES = 20;
+    private static final int RECEIPT_SIZE = 16 * 1024;
+    private static final LocalDate FIRST_DAY = LocalDate.of(2015, 1, 1);
+    private static final String[] REQUESTS = {"create expense", "upload receipt", "list expenses", "download receipt"};
+    private static final Pattern ID = Pattern.compile("\"id\":(\\d+)");
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private Environment environment;
+
+    private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+    @Test
+    void uploadBurst() throws Exception {
+        List<Long> properties = new ArrayList<>();
+        for (int p = 0; p < PROPERTIES; p++) {
+            properties.add(id(post("/api/properties", "{\"name\":\"Load " + p + "\",\"address\":\"1 Load St\"}")));
+        }
+
+        run(properties, CLIENTS / 4, 2, new long[REQUESTS.length][CLIENTS / 4 * 2]);
+        long[][] latencies = new long[REQUESTS.length][CLIENTS * ROUNDS];
+        long start = System.nanoTime();
+        int failures = run(properties, CLIENTS, ROUNDS, latencies);
+        long elapsed = System.nanoTime() - start;
+
+        long[] all = Arrays.stream(latencies).flatMapToLong(Arrays::stream).sorted().toArray();
+        System.out.printf("%nRequest load, %s threads, %d clients x %d rounds, %d failures%n",
+                environment.getProperty("spring.threads.virtual.enabled", Boolean.class, false) ? "virtual" : "platform",
+                CLIENTS, ROUNDS, failures);
+        System.out.printf("  throughput       : %8.1f req/s%n", all.length / (elapsed / 1e9));
+        System.out.printf("  all requests     : p50 %8.2f ms   p99 %8.2f ms%n",
+                percentile(all, 0.50) / 1e6, percentile(all, 0.99) / 1e6);
+        for (int i = 0; i < REQUESTS.length; i++) {
+            Arrays.sort(latencies[i]);
+            System.out.printf("  %-16s : p50 %8.2f ms   p99 %8.2f ms%n", REQUESTS[i],
+                    percentile(latencies[i], 0.50) / 1e6, percentile(latencies[i], 0.99) / 1e6);
+        }
+
+        assertThat(failures).isZero();
+    }
+
+    /**
+     * Runs every client to completion, recording each request's latency. Returns the number of failed requests.
+     */
+    private int run(List<Long> properties, int clients, int rounds, long[][] latencies) throws Exception {
+        AtomicInteger failures = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(clients);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int c = 0; c < clients; c++) {
+                int clientIndex = c;
+                futures.add(pool.submit(() -> {
+                    Random random = new Random(clientIndex);
+                    for (int r = 0; r < rounds; r++) {
+                        int slot = clientIndex * rounds + r;
+                        long propertyId = properties.get(random.nextInt(properties.size()));
+                        byte[] receipt = new byte[RECEIPT_SIZE];
+                        random.nextBytes(receipt);
+                        try {
+                            long start = System.nanoTime();
+                            long expenseId = id(post("/api/expenses", "{\"property\":{\"id\":" + propertyId
+                                    + "},\"date\":\"" + FIRST_DAY.plusDays(random.nextInt(3650)) + "\",\"category\":\"repair\",\"amount\":10.00}"));
+                            latencies[0][slot] = System.nanoTime() - start;
+
+                            start = System.nanoTime();
+                            HttpResponse<Void> put = client.send(HttpRequest.newBuilder(uri("/api/expenses/"
+                                            + expenseId + "/receipt?filename=load.bin"))
+                                    .header("Content-Type", "application/octet-stream")
+                                    .PUT(HttpRequest.BodyPublishers.ofByteArray(receipt)).build(),
+                                    HttpResponse.BodyHandlers.discarding());
+                            latencies[1][slot] = System.nanoTime() - start;
+
+                            start = System.nanoTime();
+                            HttpResponse<Void> list = client.send(HttpRequest.newBuilder(
+                                    uri("/api/expenses/property/" + propertyId)).build(),
+                                    HttpResponse.BodyHandlers.discarding());
+                            latencies[2][slot] = System.nanoTime() - start;
+
+                            start = System.nanoTime();
+                            HttpResponse<byte[]> get = client.send(HttpRequest.newBuilder(
+                                    uri("/api/expenses/" + expenseId + "/receipt")).build(),
+                                    HttpResponse.BodyHandlers.ofByteArray());
+                            latencies[3][slot] = System.nanoTime() - start;
+
+                            if (put.statusCode() != 200 || list.statusCode() != 200
+                                    || !Arrays.equals(get.body(), receipt)) {
+                                failures.incrementAndGet();
+                            }
+                        } catch (Exception e) {
+                            failures.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+        return failures.get();
+    }
+
+    private String post(String path, String json) throws Exception {
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(uri(path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json)).build(), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() / 100 != 2) {
+            throw new IllegalStateException(path + " -> " + response.statusCode());
+        }
+        return response.body();
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+
+    private static long id(String json) {
+        Matcher matcher = ID.matcher(json);
+        if (!matcher.find()) {
+            throw new IllegalStateException("No id in " + json);
+        }
+        return Long.parseLong(matcher.group(1));
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(p * sorted.length) - 1)];
+    }
+}
@@ -0,0 +1,137 @@
+package property_pilot.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.*;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+/**
+ * Integration tests for SummaryController.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+public class SummaryControllerTest {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    private ApiFixtures fixtures;
+
+    private String getBaseUrl(String path) {
+        return "http://localhost:" + port + path;
+    }
+
+    @BeforeEach
+    void createFixtures() {
+        fixtures = new ApiFixtures(restTemplate, port);
+    }
+
+    @Test
+    void testMonthlyTotalsFollowCreateAndDelete() {
+        Integer propertyId = fixtures.createProperty("Summary Property");
+        fixtures.createExpense(propertyId, "2020-01-05", "rent", "1000.00");
+        fixtures.createExpense(propertyId, "2020-01-20", "rent", "50.25");
+        Integer repairId = fixtures.createExpense(propertyId, "2020-02-10", "repair", "300.00");
+        fixtures.createExpense(propertyId, "2020-02-11", "rent", "1000.00");
+
+        ResponseEntity<Map[]> monthly = restTemplate.getForEntity(
+                getBaseUrl("/api/summary/monthly?propertyId=" + propertyId),
+                Map[].class
+        );
+
+        assertThat(monthly.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(monthly.getBody())
+                .extracting(r -> r.get("month"), r -> r.get("category"), r -> r.get("total"), r -> r.get("count"))
+                .containsExactly(
+                        tuple("2020-01", "rent", 1050.25, 2),
+                        tuple("2020-02", "rent", 1000.0, 1),
+                        tuple("2020-02", "repair", 300.0, 1));
+
+        // Removing the only repair drops its bucket
+        restTemplate.delete(getBaseUrl("/api/expenses/" + repairId));
+
+        ResponseEntity<Map[]> february = restTemplate.getForEntity(
+                getBaseUrl("/api/summary/monthly?propertyId=" + propertyId + "&start=2020-02&end=2020-02"),
+                Map[].class
+        );
+        assertThat(february.getBody()).extracting(r -> r.get("category")).containsExactly("rent");
+    }
+
+    @Test
+    void testCategoryTotalsIncludeBulkImports() {
+        Integer propertyId = fixtures.createProperty("Summary Bulk Property");
+        List<Map<String, Object>> rows = List.of(
+                Map.of("property", Map.of("id", propertyId), "date", "2020-03-01",
+                        "category", "hoa", "amount", new BigDecimal("75.00")),
+                Map.of("property", Map.of("id", propertyId), "date", "2020-04-01",
+                        "category", "hoa", "amount", new BigDecimal("75.00"))
+        );
+        restTemplate.postForEntity(getBaseUrl("/api/expenses/bulk"), rows, Map.class);
+
+        ResponseEntity<Map[]> categories = restTemplate.getForEntity(
+                getBaseUrl("/api/summary/categories?propertyId=" + propertyId + "&start=2020-01&end=2020-12"),
+                Map[].class
+        );
+
+        assertThat(categories.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(categories.getBody())
+                .extracting(r -> r.get("category"), r -> r.get("total"), r -> r.get("count"))
+                .containsExactly(tuple("hoa", 150.0, 2));
+    }
+
+    @Test
+    void testCategoriesAreFoldedOnWrite() {
+        Integer propertyId = fixtures.createProperty("Summary Folding Property");
+        fixtures.createExpense(propertyId, "2019-05-01", "Rent", "900.00");
+        fixtures.createExpense(propertyId, "2019-05-02", "  RENT ", "100.00");
+        fixtures.createExpense(propertyId, "2019-05-03", "Repairs", "40.00");
+        ResponseEntity<Map> alias = restTemplate.postForEntity(getBaseUrl("/api/expenses"), Map.of(
+                "property", Map.of("id", propertyId),
+                "date", "2019-05-04",
+                "category", "Homeowners  Association",
+                "amount", new BigDecimal("60.00")), Map.class);
+        assertThat(alias.getBody().get("category")).isEqualTo("hoa");
+
+        ResponseEntity<Map[]> categories = restTemplate.getForEntity(
+                getBaseUrl("/api/summary/categories?propertyId=" + propertyId),
+                Map[].class
+        );
+        assertThat(categories.getBody())
+                .extracting(r -> r.get("category"), r -> r.get("total"), r -> r.get("count"))
+                .containsExactly(
+                        tuple("hoa", 60.0, 1),
+                        tuple("rent", 1000.0, 2),
+                        tuple("repair", 40.0, 1));
+
+        // Filters fold the same way
+        ResponseEntity<Map[]> monthly = restTemplate.getForEntity(
+                getBaseUrl("/api/summary/monthly?propertyId=" + propertyId + "&category=REPAIRS"),
+                Map[].class
+        );
+        assertThat(monthly.getBody()).extracting(r -> r.get("category")).containsExactly("repair");
+        ResponseEntity<Map[]> search = restTemplate.getForEntity(
+                getBaseUrl("/api/expenses/search?propertyId=" + propertyId + "&category=Rent"),
+                Map[].class
+        );
+        assertThat(search.getBody()).extracting(r -> r.get("category")).containsExactly("rent", "rent");
+        ResponseEntity<Map[]> unknown = restTemplate.getForEntity(
+                getBaseUrl("/api/expenses/search?propertyId=" + propertyId + "&category=no-such-category"),
+                Map[].class
+        );
+        assertThat(unknown.getBody()).isEmpty();
+    }
+}
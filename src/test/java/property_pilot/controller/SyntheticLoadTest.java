@@ -0,0 +1,90 @@
+package property_pilot.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import property_pilot.load.LoadTestHarness;
+import property_pilot.service.SyntheticDataGenerator;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Integration tests for the synthetic data generator and the load-test harness, at toy scale.
+ * Runs against its own database and receipts directory.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.datasource.url=jdbc:h2:mem:syntheticdb;DB_CLOSE_DELAY=-1",
+        "property_pilot.receipts.base-dir=/tmp/property_pilot_test/synthetic",
+        "property_pilot.generator.receipt-min-size=1KB",
+        "property_pilot.generator.receipt-max-size=32KB"
+})
+@ActiveProfiles("test")
+public class SyntheticLoadTest {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private SyntheticDataGenerator generator;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private String getBaseUrl(String path) {
+        return "http://localhost:" + port + path;
+    }
+
+    @Test
+    void testGeneratedLedgerServesMixedLoad() throws Exception {
+        SyntheticDataGenerator.Result result = generator.generate(5, 3_000, 12);
+        assertThat(result.receipts()).isEqualTo(12);
+
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM expenses", Long.class)).isEqualTo(3_000);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM expenses WHERE receipt_hash IS NOT NULL",
+                Long.class)).isEqualTo(12);
+        // Recurring categories land on the 1st
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM expenses e JOIN categories c ON c.id = e.category_id"
+                        + " WHERE c.name = 'rent' AND DAY_OF_MONTH(e.date) <> 1", Long.class))
+                .isZero();
+
+        // The rollup was rebuilt and the property cache cleared
+        List<Map<String, Object>> categories = restTemplate.getForObject(getBaseUrl("/api/summary/categories"), List.class);
+        assertThat(categories).extracting(c -> c.get("category")).contains("rent", "utilities", "repair");
+        assertThat(restTemplate.getForObject(getBaseUrl("/api/properties"), List.class)).hasSize(5);
+
+        // Ids handed out afterwards do not collide with generated ones
+        Long propertyId = jdbcTemplate.queryForObject("SELECT MIN(id) FROM properties", Long.class);
+        ResponseEntity<Map> created = restTemplate.postForEntity(getBaseUrl("/api/expenses"), Map.of(
+                "property", Map.of("id", propertyId),
+                "date", "2024-01-01",
+                "category", "repair",
+                "amount", new BigDecimal("10.00")), Map.class);
+        assertThat(created.getStatusCode()).isEqualTo(HttpStatus.OK);
+
+        LoadTestHarness.Report report = new LoadTestHarness(new LoadTestHarness.Settings(
+                URI.create(getBaseUrl("/")), 4, Duration.ZERO, Duration.ofSeconds(3),
+                4 * 1024, 10, 7, Path.of("target/loadtest-results.json"))).run();
+        assertThat(report.errors()).isZero();
+        assertThat(report.endpoints()).extracting(LoadTestHarness.EndpointStats::endpoint)
+                .contains("GET /api/expenses/property/{id}", "GET /api/expenses/{id}/receipt");
+        assertThat(report.endpoints()).allSatisfy(e -> assertThat(e.p99()).isGreaterThanOrEqualTo(e.p50()));
+    }
+}
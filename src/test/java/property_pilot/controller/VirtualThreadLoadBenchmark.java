@@ -0,0 +1,21 @@
+package property_pilot.controller;
+
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.JRE;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+/**
+ * RequestLoadBenchmark with request handling on virtual threads and database access
+ * bounded by the connection-pool-sized semaphore. Needs Java 21+.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.datasource.url=jdbc:h2:mem:loadvirtualdb;DB_CLOSE_DELAY=-1",
+        "property_pilot.receipts.base-dir=/tmp/property_pilot_test/load-virtual",
+        "property_pilot.receipts.max-upload-size=1MB",
+        "spring.threads.virtual.enabled=true"
+})
+@ActiveProfiles("test")
+@EnabledForJreRange(min = JRE.JAVA_21)
+public class VirtualThreadLoadBenchmark extends RequestLoadBenchmark {
+}
@@ -0,0 +1,327 @@
+package property_pilot.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * End-to-end load test for a running instance. Concurrent clients replay a weighted mix of
+ * reads (property and expense lists, range and search queries, summaries), receipt uploads and
+ * receipt downloads for a fixed time after a warm-up, then the harness reports throughput and
+ * p50/p95/p99 latency per endpoint, on stdout and as JSON.
+ * Pair it with the synthetic data generator (property_pilot.generator.*) on the target.
+ * Run with {@code mvn test -Ploadtest -Dload.url=http://localhost:8080}; see {@link Settings} for the knobs.
+ */
+public class LoadTestHarness {
+
+    private static final ObjectMapper JSON = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    private static final String[] CATEGORIES = {"rent", "mortgage", "hoa", "utilities", "maintenance", "repair"};
+
+    /**
+     * Run settings, read from load.* system properties: url, clients, warmup and duration
+     * (ISO-8601, e.g. PT60S), upload-size in bytes, years of data to query, seed and output (JSON path).
+     */
+    public record Settings(URI baseUrl, int clients, Duration warmup, Duration duration,
+                           int uploadSize, int years, long seed, Path output) {
+
+        public static Settings fromSystemProperties() {
+            return new Settings(
+                    URI.create(System.getProperty("load.url", "http://localhost:8080")),
+                    Integer.getInteger("load.clients", 32),
+                    Duration.parse(System.getProperty("load.warmup", "PT10S")),
+                    Duration.parse(System.getProperty("load.duration", "PT60S")),
+                    Integer.getInteger("load.upload-size", 64 * 1024),
+                    Integer.getInteger("load.years", 10),
+                    Long.getLong("load.seed", 42),
+                    Path.of(System.getProperty("load.output", "target/loadtest-results.json")));
+        }
+    }
+
+    /**
+     * Results for one endpoint (method and URI template). Latencies in milliseconds.
+     */
+    public record EndpointStats(String endpoint, long requests, long errors, double throughput,
+                                double p50, double p95, double p99, double max) {
+    }
+
+    public record Report(double seconds, long requests, long errors, double throughput,
+                         List<EndpointStats> endpoints) {
+    }
+
+    // Traffic mix: relative weight of each action
+    private enum Action {
+        LIST_PROPERTIES(5),
+        GET_PROPERTY(10),
+        LIST_EXPENSES(25),
+        RANGE(10),
+        SEARCH(10),
+        MONTHLY_SUMMARY(5),
+        UPLOAD(10),
+        DOWNLOAD(25);
+
+        private final int weight;
+
+        Action(int weight) {
+            this.weight = weight;
+        }
+    }
+
+    // Latencies (nanoseconds) and failures recorded by one client for one endpoint
+    private static class Samples {
+        long[] values = new long[1024];
+        int size;
+        long errors;
+
+        void add(long nanos, boolean ok) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = nanos;
+            if (!ok) {
+                errors++;
+            }
+        }
+
+        void addAll(Samples other) {
+            for (int i = 0; i < other.size; i++) {
+                add(other.values[i], true);
+            }
+            errors += other.errors;
+        }
+    }
+
+    private final Settings settings;
+    private final HttpClient client;
+    private final List<Long> propertyIds = new ArrayList<>();
+    private final List<Long> receiptExpenseIds = new ArrayList<>();
+
+    public LoadTestHarness(Settings settings) {
+        this.settings = settings;
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+    }
+
+    public static void main(String[] args) throws Exception {
+        Settings settings = Settings.fromSystemProperties();
+        System.out.printf("Load test against %s: %d clients, %s warm-up, %s measured%n",
+                settings.baseUrl(), settings.clients(), settings.warmup(), settings.duration());
+        Report report = new LoadTestHarness(settings).run();
+        print(report);
+        Files.createDirectories(settings.output().toAbsolutePath().getParent());
+        JSON.writeValue(settings.output().toFile(), report);
+        System.out.println("Results written to " + settings.output().toAbsolutePath());
+    }
+
+    /**
+     * Discovers the target's data, runs the clients and returns the merged report.
+     */
+    public Report run() throws Exception {
+        discover();
+        long warmupEnd = System.nanoTime() + settings.warmup().toNanos();
+        long end = warmupEnd + settings.duration().toNanos();
+
+        ExecutorService pool = Executors.newFixedThreadPool(settings.clients());
+        Map<String, Samples> merged = new TreeMap<>();
+        try {
+            List<Future<Map<String, Samples>>> futures = new ArrayList<>();
+            for (int c = 0; c < settings.clients(); c++) {
+                Random random = new Random(settings.seed() + c);
+                futures.add(pool.submit(() -> runClient(random, warmupEnd, end)));
+            }
+            for (Future<Map<String, Samples>> future : futures) {
+                future.get().forEach((endpoint, samples) ->
+                        merged.computeIfAbsent(endpoint, e -> new Samples()).addAll(samples));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        double seconds = settings.duration().toNanos() / 1e9;
+        List<EndpointStats> endpoints = new ArrayList<>();
+        long requests = 0, errors = 0;
+        for (Map.Entry<String, Samples> entry : merged.entrySet()) {
+            Samples samples = entry.getValue();
+            long[] sorted = Arrays.copyOf(samples.values, samples.size);
+            Arrays.sort(sorted);
+            endpoints.add(new EndpointStats(entry.getKey(), sorted.length, samples.errors, sorted.length / seconds,
+                    millis(percentile(sorted, 0.50)), millis(percentile(sorted, 0.95)),
+                    millis(percentile(sorted, 0.99)), millis(sorted[sorted.length - 1])));
+            requests += sorted.length;
+            errors += samples.errors;
+        }
+        return new Report(seconds, requests, errors, requests / seconds, endpoints);
+    }
+
+    private void discover() throws IOException, InterruptedException {
+        for (JsonNode property : getJson("/api/properties")) {
+            propertyIds.add(property.get("id").asLong());
+        }
+        if (propertyIds.isEmpty()) {
+            throw new IllegalStateException("No properties on " + settings.baseUrl() + "; generate some data first");
+        }
+        for (Long propertyId : propertyIds.subList(0, Math.min(50, propertyIds.size()))) {
+            for (JsonNode expense : getJson("/api/expenses/property/" + propertyId + "?limit=100")) {
+                if (!expense.path("receiptPath").isNull() && !expense.path("receiptPath").isMissingNode()) {
+                    receiptExpenseIds.add(expense.get("id").asLong());
+                }
+            }
+        }
+    }
+
+    private Map<String, Samples> runClient(Random random, long warmupEnd, long end) {
+        Map<String, Samples> samples = new HashMap<>();
+        byte[] upload = new byte[settings.uploadSize()];
+        int totalWeight = Arrays.stream(Action.values()).mapToInt(a -> a.weight).sum();
+        while (System.nanoTime() < end) {
+            int r = random.nextInt(totalWeight);
+            Action action = Action.values()[0];
+            for (Action candidate : Action.values()) {
+                r -= candidate.weight;
+                if (r < 0) {
+                    action = candidate;
+                    break;
+                }
+            }
+            boolean measured = System.nanoTime() >= warmupEnd;
+            perform(action, random, upload, measured ? samples : new HashMap<>());
+        }
+        return samples;
+    }
+
+    private void perform(Action action, Random random, byte[] upload, Map<String, Samples> samples) {
+        long propertyId = propertyIds.get(random.nextInt(propertyIds.size()));
+        LocalDate quarter = LocalDate.now().minusYears(settings.years())
+                .plusMonths(3L * random.nextInt(settings.years() * 4)).withDayOfMonth(1);
+        switch (action) {
+            case LIST_PROPERTIES -> send(samples, "GET /api/properties", get("/api/properties"));
+            case GET_PROPERTY -> send(samples, "GET /api/properties/{id}", get("/api/properties/" + propertyId));
+            case LIST_EXPENSES -> send(samples, "GET /api/expenses/property/{id}",
+                    get("/api/expenses/property/" + propertyId));
+            case RANGE -> send(samples, "GET /api/expenses/range",
+                    get("/api/expenses/range?start=" + quarter + "&end=" + quarter.plusMonths(3).minusDays(1)));
+            case SEARCH -> send(samples, "GET /api/expenses/search",
+                    get("/api/expenses/search?propertyId=" + propertyId + "&start=" + quarter.withMonth(1)
+                            + "&end=" + quarter.withMonth(12).withDayOfMonth(31)
+                            + "&category=" + CATEGORIES[random.nextInt(CATEGORIES.length)]));
+            case MONTHLY_SUMMARY -> send(samples, "GET /api/summary/monthly",
+                    get("/api/summary/monthly?propertyId=" + propertyId));
+            case UPLOAD -> {
+                HttpResponse<byte[]> created = send(samples, "POST /api/expenses",
+                        HttpRequest.newBuilder(uri("/api/expenses"))
+                                .header("Content-Type", "application/json")
+                                .POST(HttpRequest.BodyPublishers.ofString("{\"property\":{\"id\":" + propertyId
+                                        + "},\"date\":\"" + quarter + "\",\"category\":\"repair\",\"amount\":125.00}")));
+                if (created == null || created.statusCode() != 200) {
+                    return;
+                }
+                long expenseId = readId(created.body());
+                random.nextBytes(upload);
+                HttpResponse<byte[]> stored = send(samples, "PUT /api/expenses/{id}/receipt",
+                        HttpRequest.newBuilder(uri("/api/expenses/" + expenseId + "/receipt?filename=load.pdf"))
+                                .header("Content-Type", "application/pdf")
+                                .PUT(HttpRequest.BodyPublishers.ofByteArray(upload)));
+                if (stored != null && stored.statusCode() == 200) {
+                    synchronized (receiptExpenseIds) {
+                        receiptExpenseIds.add(expenseId);
+                    }
+                }
+            }
+            case DOWNLOAD -> {
+                long expenseId;
+                synchronized (receiptExpenseIds) {
+                    if (receiptExpenseIds.isEmpty()) {
+                        return;
+                    }
+                    expenseId = receiptExpenseIds.get(random.nextInt(receiptExpenseIds.size()));
+                }
+                send(samples, "GET /api/expenses/{id}/receipt", get("/api/expenses/" + expenseId + "/receipt"));
+            }
+        }
+    }
+
+    /**
+     * Sends the request, reading the whole body, and records its latency under the endpoint.
+     * Returns null if the request failed outright.
+     */
+    private HttpResponse<byte[]> send(Map<String, Samples> samples, String endpoint, HttpRequest.Builder request) {
+        long start = System.nanoTime();
+        try {
+            HttpResponse<byte[]> response = client.send(request.timeout(Duration.ofSeconds(60)).build(),
+                    HttpResponse.BodyHandlers.ofByteArray());
+            samples.computeIfAbsent(endpoint, e -> new Samples())
+                    .add(System.nanoTime() - start, response.statusCode() < 400);
+            return response;
+        } catch (IOException e) {
+            samples.computeIfAbsent(endpoint, k -> new Samples()).add(System.nanoTime() - start, false);
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    private HttpRequest.Builder get(String path) {
+        return HttpRequest.newBuilder(uri(path)).GET();
+    }
+
+    private JsonNode getJson(String path) throws IOException, InterruptedException {
+        HttpResponse<String> response = client.send(get(path).build(), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IOException("GET " + path + " returned " + response.statusCode());
+        }
+        return JSON.readTree(response.body());
+    }
+
+    private URI uri(String path) {
+        return settings.baseUrl().resolve(path);
+    }
+
+    private static long readId(byte[] json) {
+        try {
+            return JSON.readTree(json).get("id").asLong();
+        } catch (IOException e) {
+            throw new IllegalStateException("Unexpected response: " + new String(json), e);
+        }
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(p * sorted.length) - 1)];
+    }
+
+    private static double millis(long nanos) {
+        return Math.round(nanos / 1e4) / 100.0;
+    }
+
+    private static void print(Report report) {
+        System.out.printf("%n%-36s %9s %7s %9s %9s %9s %9s %9s%n",
+                "endpoint", "requests", "errors", "req/s", "p50 ms", "p95 ms", "p99 ms", "max ms");
+        for (EndpointStats s : report.endpoints()) {
+            System.out.printf("%-36s %9d %7d %9.1f %9.2f %9.2f %9.2f %9.2f%n", s.endpoint(), s.requests(),
+                    s.errors(), s.throughput(), s.p50(), s.p95(), s.p99(), s.max());
+        }
+        System.out.printf("%-36s %9d %7d %9.1f%n", "total", report.requests(), report.errors(), report.throughput());
+    }
+}
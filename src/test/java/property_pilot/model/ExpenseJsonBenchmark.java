@@ -0,0 +1,80 @@
+package property_pilot.model;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH microbenchmarks for serializing expense lists the way the list endpoints do:
+ * full Expense entities with their nested Property, against the ExpenseView projection.
+ * Uses an ObjectMapper configured like Spring Boot's. Run with {@code mvn test -Pjmh -Djmh.include=ExpenseJson}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(time = 1)
+@Measurement(time = 1)
+public class ExpenseJsonBenchmark {
+
+    private static final int PROPERTIES = 20;
+
+    // Expenses per list
+    @Param({"100", "1000"})
+    private int size;
+
+    private ObjectMapper objectMapper;
+    private List<Expense> expenses;
+    private List<ExpenseView> views;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+        List<Property> properties = new ArrayList<>();
+        for (long p = 1; p <= PROPERTIES; p++) {
+            Property property = new Property();
+            property.setId(p);
+            property.setName("Property " + p);
+            property.setAddress(p + " Main Street");
+            property.setVersion(0L);
+            property.setLastModified(Instant.parse("2024-01-01T00:00:00Z"));
+            properties.add(property);
+        }
+
+        expenses = new ArrayList<>(size);
+        views = new ArrayList<>(size);
+        LocalDate day = LocalDate.of(2024, 1, 1);
+        for (long id = 1; id <= size; id++) {
+            Expense expense = new Expense();
+            expense.setId(id);
+            expense.setProperty(properties.get((int) (id % PROPERTIES)));
+            expense.setDate(day.plusDays(id % 365));
+            expense.setCategory("maintenance");
+            expense.setAmount(new BigDecimal("125.40"));
+            expense.setDescription("Gutter cleaning");
+            expense.setReceiptPath(id % 3 == 0 ? "blobs/9f/86/9f86d081884c7d659a2feaa0c55ad015" : null);
+            expense.setVersion(0L);
+            expense.setLastModified(Instant.parse("2024-01-01T00:00:00Z"));
+            expenses.add(expense);
+            views.add(new ExpenseView(id, expense.getProperty().getId(), expense.getDate(), expense.getCategory(),
+                    expense.getAmount(), expense.getDescription(), expense.getReceiptPath(), expense.getVersion()));
+        }
+    }
+
+    @Benchmark
+    public byte[] serializeEntities() throws Exception {
+        return objectMapper.writeValueAsBytes(expenses);
+    }
+
+    @Benchmark
+    public byte[] serializeViews() throws Exception {
+        return objectMapper.writeValueAsBytes(views);
+    }
+}
@@ -0,0 +1,138 @@
+package property_pilot.repository;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import property_pilot.model.Expense;
+import property_pilot.model.ExpenseView;
+import property_pilot.service.CategoryDictionary;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares the combined property + date-range search against the two single-criterion
+ * queries it replaces, on a seeded H2 ledger, and prints the query plans.
+ * Tagged "benchmark": run with {@code mvn test -Pbenchmark}; size with -Dbench.rows.
+ */
+@Tag("benchmark")
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:benchdb;DB_CLOSE_DELAY=-1")
+@ActiveProfiles("test")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class ExpenseQueryBenchmark {
+
+    private static final int ROWS = Integer.getInteger("bench.rows", 500_000);
+    private static final int PROPERTIES = 200;
+    private static final int ITERATIONS = 20;
+    private static final LocalDate FIRST_DAY = LocalDate.of(2015, 1, 1);
+    private static final LocalDate Q3_START = LocalDate.of(2022, 7, 1);
+    private static final LocalDate Q3_END = LocalDate.of(2022, 9, 30);
+    private static final long TARGET_PROPERTY = 1;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ExpenseRepository expenseRepository;
+
+    @Autowired
+    private CategoryDictionary categoryDictionary;
+
+    @BeforeAll
+    void seed() {
+        jdbcTemplate.execute("DELETE FROM expenses");
+        jdbcTemplate.execute("DELETE FROM properties");
+        List<Object[]> properties = new ArrayList<>();
+        for (long p = 1; p <= PROPERTIES; p++) {
+            properties.add(new Object[]{p, "Bench " + p});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO properties (id, name) VALUES (?, ?)", properties);
+
+        Integer rent = categoryDictionary.code("rent");
+        Random random = new Random(42);
+        int days = (int) (LocalDate.of(2024, 12, 31).toEpochDay() - FIRST_DAY.toEpochDay());
+        List<Object[]> batch = new ArrayList<>(10_000);
+        for (long id = 1; id <= ROWS; id++) {
+            batch.add(new Object[]{
+                    id,
+                    1 + random.nextInt(PROPERTIES),
+                    Date.valueOf(FIRST_DAY.plusDays(random.nextInt(days))),
+                    rent,
+                    random.nextInt(100_000) / 100.0
+            });
+            if (batch.size() == 10_000) {
+                insert(batch);
+            }
+        }
+        insert(batch);
+        jdbcTemplate.execute("ANALYZE");
+    }
+
+    private void insert(List<Object[]> batch) {
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO expenses (id, property_id, date, category_id, amount) VALUES (?, ?, ?, ?, ?)", batch);
+        batch.clear();
+    }
+
+    @Test
+    void compareCombinedFilterWithSingleCriterionQueries() {
+        ExpenseFilter filter = new ExpenseFilter(TARGET_PROPERTY, Q3_START, Q3_END, null);
+
+        int expected = expenseRepository.search(filter, null, null, ROWS).size();
+
+        long byProperty = time(() -> expenseRepository.findByPropertyId(TARGET_PROPERTY).stream()
+                .filter(e -> !e.getDate().isBefore(Q3_START) && !e.getDate().isAfter(Q3_END))
+                .count());
+        long byDate = time(() -> expenseRepository.findByDateBetween(Q3_START, Q3_END).stream()
+                .map(Expense::getProperty)
+                .filter(p -> p.getId() == TARGET_PROPERTY)
+                .count());
+        long combined = time(() -> (long) expenseRepository.search(filter, null, null, ROWS).size());
+
+        System.out.printf("%nExpense query benchmark, %,d rows, %d properties, %d matches%n", ROWS, PROPERTIES, expected);
+        System.out.printf("  findByPropertyId + filter dates : %8.2f ms/query%n", byProperty / 1e6);
+        System.out.printf("  findByDateBetween + filter prop : %8.2f ms/query%n", byDate / 1e6);
+        System.out.printf("  search(property, date range)    : %8.2f ms/query%n", combined / 1e6);
+
+        String plan = explain("SELECT id FROM expenses WHERE property_id = ? AND date BETWEEN ? AND ? ORDER BY date, id",
+                TARGET_PROPERTY, Date.valueOf(Q3_START), Date.valueOf(Q3_END));
+        String rangePlan = explain("SELECT id FROM expenses WHERE date BETWEEN ? AND ? ORDER BY date, id",
+                Date.valueOf(Q3_START), Date.valueOf(Q3_END));
+        System.out.println("Plan, property + date range:\n" + plan);
+        System.out.println("Plan, date range:\n" + rangePlan);
+
+        assertThat(plan).containsIgnoringCase("idx_expenses_property_date");
+        assertThat(rangePlan).containsIgnoringCase("idx_expenses_date");
+        assertThat(combined).isLessThan(byProperty);
+    }
+
+    private String explain(String sql, Object... args) {
+        return String.join("\n", jdbcTemplate.queryForList("EXPLAIN " + sql, String.class, args));
+    }
+
+    /**
+     * Mean nanoseconds per call after a warm-up round.
+     */
+    private long time(Supplier<Long> query) {
+        for (int i = 0; i < 3; i++) {
+            query.get();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            query.get();
+        }
+        return (System.nanoTime() - start) / ITERATIONS;
+    }
+}
@@ -0,0 +1,104 @@
+package property_pilot.repository;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import property_pilot.PropertyPilotApplication;
+import property_pilot.model.Expense;
+import property_pilot.model.ExpenseView;
+import property_pilot.service.CategoryDictionary;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH microbenchmarks for ExpenseRepository range queries against a seeded in-memory H2,
+ * through the full Spring Data / Hibernate stack. Seeds {@code rows} expenses over ten years
+ * and queries one quarter. Run with {@code mvn test -Pjmh -Djmh.include=ExpenseRangeQuery}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ExpenseRangeQueryBenchmark {
+
+    private static final int PROPERTIES = 200;
+    private static final LocalDate FIRST_DAY = LocalDate.of(2015, 1, 1);
+    private static final LocalDate Q3_START = LocalDate.of(2022, 7, 1);
+    private static final LocalDate Q3_END = LocalDate.of(2022, 9, 30);
+    private static final long TARGET_PROPERTY = 1;
+    private static final int PAGE_SIZE = 100;
+
+    @Param({"100000"})
+    private int rows;
+
+    private ConfigurableApplicationContext context;
+    private ExpenseRepository expenseRepository;
+
+    @Setup
+    public void setUp() {
+        // SecurityConfig needs a servlet context, so the server starts too, on a random port
+        context = new SpringApplicationBuilder(PropertyPilotApplication.class)
+                .profiles("test")
+                .properties("server.port=0", "spring.datasource.url=jdbc:h2:mem:jmhdb;DB_CLOSE_DELAY=-1",
+                        "spring.jpa.properties.hibernate.generate_statistics=false")
+                .run();
+        expenseRepository = context.getBean(ExpenseRepository.class);
+        seed(context.getBean(JdbcTemplate.class), context.getBean(CategoryDictionary.class).code("rent"));
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    private void seed(JdbcTemplate jdbcTemplate, Integer rent) {
+        List<Object[]> properties = new ArrayList<>();
+        for (long p = 1; p <= PROPERTIES; p++) {
+            properties.add(new Object[]{p, "Bench " + p});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO properties (id, name) VALUES (?, ?)", properties);
+
+        Random random = new Random(42);
+        int days = (int) (LocalDate.of(2024, 12, 31).toEpochDay() - FIRST_DAY.toEpochDay());
+        List<Object[]> batch = new ArrayList<>();
+        for (long id = 1; id <= rows; id++) {
+            batch.add(new Object[]{
+                    id,
+                    1 + random.nextInt(PROPERTIES),
+                    Date.valueOf(FIRST_DAY.plusDays(random.nextInt(days))),
+                    rent,
+                    random.nextInt(100_000) / 100.0
+            });
+        }
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO expenses (id, property_id, date, category_id, amount) VALUES (?, ?, ?, ?, ?)", batch);
+        jdbcTemplate.execute("ANALYZE");
+    }
+
+    // Whole quarter as entities, as GET /api/expenses/range used to load it
+    @Benchmark
+    public List<Expense> findByDateBetween() {
+        return expenseRepository.findByDateBetween(Q3_START, Q3_END);
+    }
+
+    // First keyset page of the quarter as views
+    @Benchmark
+    public List<ExpenseView> findViewPageByDate() {
+        return expenseRepository.findViewPageByDate(Q3_START, Q3_END, Limit.of(PAGE_SIZE));
+    }
+
+    // Property + quarter through the criteria search
+    @Benchmark
+    public List<ExpenseView> searchPropertyAndRange() {
+        return expenseRepository.search(new ExpenseFilter(TARGET_PROPERTY, Q3_START, Q3_END, null), null, null, PAGE_SIZE);
+    }
+}
@@ -0,0 +1,110 @@
+package property_pilot.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH microbenchmarks for the per-upload work in FileStorageService: file name cleaning,
+ * blob path construction, content-type detection, and staging (hash + write, optionally gzip).
+ * Run with {@code mvn test -Pjmh -Djmh.include=FileStorage}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(time = 1)
+@Measurement(time = 1)
+public class FileStorageBenchmark {
+
+    private static final String SHA256 = "9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08";
+
+    private FileStorageService storage;
+
+    @Setup
+    public void setUp() {
+        storage = storage(Path.of("/tmp/storage-bench"), FileStorageService.Codec.NONE);
+    }
+
+    @Benchmark
+    public String cleanFileName() {
+        return FileStorageService.cleanFileName("C:\\Users\\me\\Scans\\../2024 March/Water bill (final).pdf");
+    }
+
+    @Benchmark
+    public Path blobPathAndResolve() {
+        return storage.resolve(FileStorageService.blobPath(SHA256));
+    }
+
+    @Benchmark
+    public String detectContentType() throws IOException {
+        return storage.detectContentType("Water bill (final).pdf", "application/octet-stream");
+    }
+
+    @Benchmark
+    public String stage(Staging staging) throws IOException {
+        FileStorageService.StagedFile staged =
+                staging.storage.stage(new ByteArrayInputStream(staging.receipt), "text/plain");
+        staging.storage.discard(staged);
+        return staged.sha256();
+    }
+
+    /**
+     * A storage directory and receipt for the staging benchmark, per size and codec.
+     */
+    @State(Scope.Benchmark)
+    public static class Staging {
+
+        // Receipt size in bytes
+        @Param({"65536", "1048576"})
+        private int size;
+
+        @Param({"NONE", "GZIP"})
+        private FileStorageService.Codec codec;
+
+        private Path baseDir;
+        private FileStorageService storage;
+        private byte[] receipt;
+
+        @Setup
+        public void setUp() throws IOException {
+            baseDir = Files.createTempDirectory("storage-bench");
+            storage = storage(baseDir, codec);
+
+            // Half text, half noise: roughly what a scanned statement compresses like
+            receipt = new byte[size];
+            byte[] text = "Line item: water, 12.50\n".getBytes(StandardCharsets.UTF_8);
+            for (int i = 0; i < size / 2; i++) {
+                receipt[i] = text[i % text.length];
+            }
+            byte[] noise = new byte[size - size / 2];
+            new Random(42).nextBytes(noise);
+            System.arraycopy(noise, 0, receipt, size / 2, noise.length);
+        }
+
+        @TearDown
+        public void tearDown() throws IOException {
+            FileSystemUtils.deleteRecursively(baseDir);
+        }
+    }
+
+    private static FileStorageService storage(Path baseDir, FileStorageService.Codec codec) {
+        FileStorageService storage = new FileStorageService();
+        ReflectionTestUtils.setField(storage, "baseDir", baseDir.toString());
+        ReflectionTestUtils.setField(storage, "maxUploadSize", DataSize.ofMegabytes(50));
+        ReflectionTestUtils.setField(storage, "compression", codec);
+        ReflectionTestUtils.setField(storage, "compressionLevel", 6);
+        ReflectionTestUtils.setField(storage, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.invokeMethod(storage, "registerMeters");
+        return storage;
+    }
+}
@@ -0,0 +1,86 @@
+package property_pilot.service;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import property_pilot.model.Expense;
+import property_pilot.model.LedgerTotal;
+import property_pilot.model.Property;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH microbenchmarks for LedgerSnapshot scans over {@code rows} expenses spread across
+ * 200 properties and ten years. Rows are added without a category, so no dictionary is needed.
+ * Run with {@code mvn test -Pjmh -Djmh.include=LedgerSnapshot}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(time = 2)
+@Measurement(time = 2)
+@Fork(jvmArgsAppend = "-Xmx2g")
+public class LedgerSnapshotBenchmark {
+
+    private static final int PROPERTIES = 200;
+    private static final long TARGET_PROPERTY = 1;
+    private static final LocalDate FIRST_DAY = LocalDate.of(2015, 1, 1);
+    private static final LocalDate YEAR_START = LocalDate.of(2022, 1, 1);
+    private static final LocalDate YEAR_END = LocalDate.of(2022, 12, 31);
+
+    @Param({"1000000", "10000000"})
+    private int rows;
+
+    private LedgerSnapshot snapshot;
+
+    @Setup
+    public void setUp() {
+        snapshot = new LedgerSnapshot();
+        // Never consulted for rows without a category
+        ReflectionTestUtils.setField(snapshot, "categoryDictionary", new CategoryDictionary());
+        List<Property> properties = new ArrayList<>();
+        for (long p = 1; p <= PROPERTIES; p++) {
+            Property property = new Property();
+            property.setId(p);
+            properties.add(property);
+        }
+        Random random = new Random(42);
+        List<Expense> batch = new ArrayList<>();
+        for (long id = 1; id <= rows; id++) {
+            Expense expense = new Expense();
+            expense.setId(id);
+            expense.setProperty(properties.get(random.nextInt(PROPERTIES)));
+            expense.setDate(FIRST_DAY.plusDays(random.nextInt(3650)));
+            expense.setAmount(BigDecimal.valueOf(random.nextInt(100_000), 2));
+            batch.add(expense);
+            if (batch.size() == 100_000) {
+                snapshot.addAll(batch);
+                batch.clear();
+            }
+        }
+        snapshot.addAll(batch);
+    }
+
+    // Monthly burn over the whole ledger
+    @Benchmark
+    public List<LedgerTotal> monthlyBurn() {
+        return snapshot.totals(null, null, null, null, false, false, LedgerSnapshot.Period.MONTH);
+    }
+
+    // Every property's total for one year
+    @Benchmark
+    public List<LedgerTotal> propertyTotalsForYear() {
+        return snapshot.totals(null, null, YEAR_START, YEAR_END, true, false, LedgerSnapshot.Period.NONE);
+    }
+
+    // One property, year by year
+    @Benchmark
+    public List<LedgerTotal> oneProperty() {
+        return snapshot.totals(TARGET_PROPERTY, null, null, null, false, false, LedgerSnapshot.Period.YEAR);
+    }
+}